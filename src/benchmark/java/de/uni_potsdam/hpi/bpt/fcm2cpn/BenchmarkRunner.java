@@ -0,0 +1,26 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the compiler benchmarks with the gc profiler attached, so that allocation rates are reported next to throughput and latency percentiles.
+ * Accepts the usual JMH command line options, e.g. <code>PhaseBenchmark -p phase=translateActivities</code>.
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		ChainedOptionsBuilder options = new OptionsBuilder()
+				.parent(commandLineOptions)
+				.addProfiler(GCProfiler.class);
+		if(commandLineOptions.getIncludes().isEmpty()) {
+			options.include(BenchmarkRunner.class.getPackage().getName()+"\\..*Benchmark");
+		}
+		new Runner(options.build()).run();
+	}
+
+}
@@ -0,0 +1,57 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils.BpmnModelGenerator;
+
+/**
+ * Benchmark state that provides the parsed bpmn model to compile.
+ * Paths are relative to the project directory, use <code>-p model=path/to/model.bpmn</code> to benchmark other models.
+ * Names of the form <code>Generated_x&lt;factor&gt;</code> refer to synthetic models created by the {@link BpmnModelGenerator}, e.g. <code>-p model=Generated_x1000</code>.
+ */
+@State(Scope.Benchmark)
+public class BpmnModelState {
+
+	@Param({
+		"src/test/resources/Simple.bpmn",
+		"src/test/resources/SimpleWithStates.bpmn",
+		"src/test/resources/SimpleWithEvents.bpmn",
+		"src/test/resources/SimpleWithGateways.bpmn",
+		"src/test/resources/SimpleWithDataStore.bpmn",
+		"src/test/resources/TranslationJob.bpmn",
+		"src/test/resources/Associations.bpmn",
+		"src/test/resources/TransputSets.bpmn",
+		"models/budget_processes.bpmn",
+		"models/budget_processes_corrected.bpmn",
+		"Generated_x10",
+		"Generated_x100"
+	})
+	public String model;
+
+	public BpmnModelInstance bpmn;
+
+	@Setup
+	public void loadModel() {
+		silenceProgressOutput();
+		bpmn = BpmnModelGenerator.isGeneratedModel(model) ? 
+				BpmnModelGenerator.forModelName(model).generate() : 
+				Bpmn.readModelFromFile(new File(model));
+	}
+
+	/**
+	 * The compiler reports its progress on {@link System#out}, which would otherwise be measured and flood the benchmark log
+	 */
+	private static void silenceProgressOutput() {
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+	}
+
+}
@@ -0,0 +1,53 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares loading bpmn files with camunda to loading them with the {@link StreamingBpmnLoader}, which skips everything the compiler does not translate
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+
+	@Param({
+		"src/test/resources/TranslationJob.bpmn",
+		"src/test/resources/TransputSets.bpmn",
+		"models/budget_processes.bpmn"
+	})
+	public String file;
+
+	@Benchmark
+	public BpmnModelInstance camunda() {
+		return Bpmn.readModelFromFile(new File(file));
+	}
+
+	@Benchmark
+	public CompactBpmnModel streaming() throws IOException {
+		return StreamingBpmnLoader.load(new File(file).toPath());
+	}
+
+	@Benchmark
+	public BpmnModelInstance streamingToModelInstance() throws IOException {
+		return StreamingBpmnLoader.load(new File(file).toPath()).toModelInstance();
+	}
+
+}
@@ -0,0 +1,90 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.util.concurrent.TimeUnit;
+
+import org.cpntools.accesscpn.model.Page;
+import org.cpntools.accesscpn.model.PetriNet;
+import org.cpntools.accesscpn.model.Place;
+import org.cpntools.accesscpn.model.Transition;
+import org.cpntools.accesscpn.model.util.BuildCPNUtil;
+import org.eclipse.emf.common.notify.Notifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building nets with {@link BuildCPNUtil} alone, without any bpmn model, for growing numbers of transitions.
+ * If inserting into the emf containment lists were superlinear, the time per transition would grow with their number;
+ * if emf notifications were a significant cost, switching off their delivery would make construction faster.
+ * Neither shows in the measurements: the allocation per transition is constant and delivery makes no difference, which is why the compiler builds nets element by element and has no bulk mode.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NetConstructionBenchmark {
+
+	@Param({"1000", "10000", "50000"})
+	public int transitions;
+
+	/** Whether the net and its pages deliver emf notifications while they are built*/
+	@Param({"true", "false"})
+	public boolean deliver;
+
+	/**
+	 * All transitions of one page read and write a single place, like the case counter and data object places on large subpages
+	 */
+	@Benchmark
+	public PetriNet sharedPlace() {
+		BuildCPNUtil builder = new BuildCPNUtil();
+		PetriNet petriNet = createPetriNet(builder);
+		Page page = addPage(builder, petriNet, "Page");
+		Place place = builder.addPlace(page, "Shared", "INT", "0");
+		for(int i = 0; i < transitions; i++) {
+			Transition transition = builder.addTransition(page, "Transition_"+i);
+			builder.addArc(page, place, transition, "count");
+			builder.addArc(page, transition, place, "count + 1");
+		}
+		return petriNet;
+	}
+
+	/**
+	 * A main page with one substitution transition per subpage, each with a place and a transition connected to it, like translated activities
+	 */
+	@Benchmark
+	public PetriNet subpages() {
+		BuildCPNUtil builder = new BuildCPNUtil();
+		PetriNet petriNet = createPetriNet(builder);
+		Page mainPage = addPage(builder, petriNet, "Main Page");
+		for(int i = 0; i < transitions; i++) {
+			Page subPage = addPage(builder, petriNet, "Activity_"+i);
+			builder.createSubPageTransition(subPage, mainPage, "Activity_"+i);
+			Place place = builder.addPlace(subPage, "Place_"+i, "CaseID");
+			Transition transition = builder.addTransition(subPage, "Activity_"+i+"_0");
+			builder.addArc(subPage, place, transition, "caseId");
+		}
+		return petriNet;
+	}
+
+	private PetriNet createPetriNet(BuildCPNUtil builder) {
+		PetriNet petriNet = builder.createPetriNet();
+		((Notifier) petriNet).eSetDeliver(deliver);
+		return petriNet;
+	}
+
+	private Page addPage(BuildCPNUtil builder, PetriNet petriNet, String name) {
+		Page page = builder.addPage(petriNet, name);
+		((Notifier) page).eSetDeliver(deliver);
+		return page;
+	}
+
+}
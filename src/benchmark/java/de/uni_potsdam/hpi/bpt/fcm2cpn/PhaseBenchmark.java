@@ -0,0 +1,134 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.io.OutputStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.cpntools.accesscpn.model.exporter.DOMGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures single phases of the translation.
+ * Before each invocation, a fresh compiler is created and all phases preceding the measured one are run.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PhaseBenchmark {
+
+	/** Phases of {@link CompilerApp#translateBPMN2CPN()} in the order they are run, followed by the alternative exports*/
+	public enum Phase {
+		estimateNetSize {
+			@Override
+			Object run(CompilerApp compiler) throws Exception {
+				compiler.estimateNetSize();
+				return compiler;
+			}
+		},
+		initializeCPNModel {
+			@Override
+			Object run(CompilerApp compiler) throws Exception {
+				compiler.initializeCPNModel();
+				return compiler;
+			}
+		},
+		translateData {
+			@Override
+			Object run(CompilerApp compiler) throws Exception {
+				compiler.translateData();
+				return compiler;
+			}
+		},
+		translateActivities {
+			@Override
+			Object run(CompilerApp compiler) throws Exception {
+				compiler.translateActivities();
+				return compiler;
+			}
+		},
+		translateEvents {
+			@Override
+			Object run(CompilerApp compiler) throws Exception {
+				compiler.translateEvents();
+				return compiler;
+			}
+		},
+		translateGateways {
+			@Override
+			Object run(CompilerApp compiler) throws Exception {
+				compiler.translateGateways();
+				return compiler;
+			}
+		},
+		translateControlFlow {
+			@Override
+			Object run(CompilerApp compiler) throws Exception {
+				compiler.translateControlFlow();
+				return compiler;
+			}
+		},
+		runDeferredCalls {
+			@Override
+			Object run(CompilerApp compiler) throws Exception {
+				compiler.runDeferredCalls();
+				return compiler;
+			}
+		},
+		export {
+			@Override
+			Object run(CompilerApp compiler) throws Exception {
+				return DOMGenerator.export(compiler.getPetriNet(), OutputStream.nullOutputStream());
+			}
+		},
+		streamingExport {
+			@Override
+			Object run(CompilerApp compiler) throws Exception {
+				StreamingNetExporter.export(compiler.getPetriNet(), OutputStream.nullOutputStream());
+				return compiler;
+			}
+		},
+		parallelExport {
+			@Override
+			Object run(CompilerApp compiler) throws Exception {
+				StreamingNetExporter.export(compiler.getPetriNet(), OutputStream.nullOutputStream(), ForkJoinPool.commonPool());
+				return compiler;
+			}
+		};
+
+		abstract Object run(CompilerApp compiler) throws Exception;
+	}
+
+	@Param
+	public Phase phase;
+
+	private CompilerApp compiler;
+
+	@Setup(Level.Invocation)
+	public void runPrecedingPhases(BpmnModelState model) throws Exception {
+		compiler = new CompilerApp(model.bpmn);
+		for(Phase precedingPhase : Phase.values()) {
+			if(precedingPhase == phase || precedingPhase == Phase.export) break;
+			precedingPhase.run(compiler);
+		}
+	}
+
+	@Benchmark
+	public Object runPhase() throws Exception {
+		return phase.run(compiler);
+	}
+
+}
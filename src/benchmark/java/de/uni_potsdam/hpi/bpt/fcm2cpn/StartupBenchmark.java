@@ -0,0 +1,37 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.util.concurrent.TimeUnit;
+
+import org.cpntools.accesscpn.model.PetriNet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency of single compilations: in a fresh jvm (cold start, as for each call of the command line tool)
+ * and in a jvm that has compiled before (warm start, as in batch and daemon mode, where e.g. the declaration template is reused).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(5)
+public class StartupBenchmark {
+
+	@Benchmark
+	@Warmup(iterations = 0)
+	@Measurement(iterations = 1)
+	public PetriNet coldStart(BpmnModelState model) {
+		return CompilerApp.translateBPMN2CPN(model.bpmn);
+	}
+
+	@Benchmark
+	@Warmup(iterations = 50)
+	@Measurement(iterations = 20)
+	public PetriNet warmStart(BpmnModelState model) {
+		return CompilerApp.translateBPMN2CPN(model.bpmn);
+	}
+
+}
@@ -0,0 +1,29 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.util.concurrent.TimeUnit;
+
+import org.cpntools.accesscpn.model.PetriNet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the complete translation of a bpmn model, as done by {@link CompilerApp#translateBPMN2CPN(org.camunda.bpm.model.bpmn.BpmnModelInstance)}
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TranslationBenchmark {
+
+	@Benchmark
+	public PetriNet translateBPMN2CPN(BpmnModelState model) {
+		return CompilerApp.translateBPMN2CPN(model.bpmn);
+	}
+
+}
@@ -0,0 +1,99 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.camunda.bpm.model.bpmn.instance.Activity;
+import org.camunda.bpm.model.bpmn.instance.DataInputAssociation;
+import org.camunda.bpm.model.bpmn.instance.DataOutputAssociation;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.TransputSetWrapper.InputSetWrapper;
+import de.uni_potsdam.hpi.bpt.fcm2cpn.TransputSetWrapper.OutputSetWrapper;
+
+/**
+ * The transput sets of one activity, resolved from the bpmn model so that they can be enumerated without accessing the model again, e.g. from other threads.<br>
+ * The transput sets are given as products: each combination of an input set and an output set of the same product is one transput set.
+ */
+public class ActivityTransputSets {
+
+	private final Activity activity;
+	/** All data input associations of the activity, split by state*/
+	private final List<StatefulDataAssociation<DataInputAssociation>> inputs;
+	/** All data output associations of the activity, split by state*/
+	private final List<StatefulDataAssociation<DataOutputAssociation>> outputs;
+	private final List<Product> products = new ArrayList<>();
+
+	public ActivityTransputSets(Activity activity, List<StatefulDataAssociation<DataInputAssociation>> inputs, List<StatefulDataAssociation<DataOutputAssociation>> outputs) {
+		this.activity = activity;
+		this.inputs = inputs;
+		this.outputs = outputs;
+	}
+
+	/**
+	 * Adds all combinations of the given input and output sets; the additional associations, e.g. of data stores, are added to each of them
+	 * @param outputsOuter whether the combinations are enumerated per output set instead of per input set, which determines the numbering of the subpage transitions
+	 */
+	public void addProduct(CartesianProduct<StatefulDataAssociation<DataInputAssociation>> inputSets, CartesianProduct<StatefulDataAssociation<DataOutputAssociation>> outputSets,
+			List<StatefulDataAssociation<DataInputAssociation>> additionalInputs, List<StatefulDataAssociation<DataOutputAssociation>> additionalOutputs, boolean outputsOuter) {
+		products.add(new Product(inputSets, outputSets, additionalInputs, additionalOutputs, outputsOuter));
+	}
+
+	public boolean isEmpty() {
+		return products.stream().allMatch(Product::isEmpty);
+	}
+
+	/**
+	 * Lazily creates the transput sets; each one gets its own wrappers, so they can be consumed independently
+	 */
+	public Stream<Pair<InputSetWrapper, OutputSetWrapper>> stream() {
+		return products.stream().flatMap(Product::stream);
+	}
+
+	public Activity getActivity() {
+		return activity;
+	}
+
+	public List<StatefulDataAssociation<DataInputAssociation>> getInputs() {
+		return inputs;
+	}
+
+	public List<StatefulDataAssociation<DataOutputAssociation>> getOutputs() {
+		return outputs;
+	}
+
+	private static class Product {
+		private final CartesianProduct<StatefulDataAssociation<DataInputAssociation>> inputSets;
+		private final CartesianProduct<StatefulDataAssociation<DataOutputAssociation>> outputSets;
+		private final List<StatefulDataAssociation<DataInputAssociation>> additionalInputs;
+		private final List<StatefulDataAssociation<DataOutputAssociation>> additionalOutputs;
+		private final boolean outputsOuter;
+
+		private Product(CartesianProduct<StatefulDataAssociation<DataInputAssociation>> inputSets, CartesianProduct<StatefulDataAssociation<DataOutputAssociation>> outputSets,
+				List<StatefulDataAssociation<DataInputAssociation>> additionalInputs, List<StatefulDataAssociation<DataOutputAssociation>> additionalOutputs, boolean outputsOuter) {
+			this.inputSets = inputSets;
+			this.outputSets = outputSets;
+			this.additionalInputs = additionalInputs;
+			this.additionalOutputs = additionalOutputs;
+			this.outputsOuter = outputsOuter;
+		}
+
+		private boolean isEmpty() {
+			return inputSets.isEmpty() || outputSets.isEmpty();
+		}
+
+		private Stream<Pair<InputSetWrapper, OutputSetWrapper>> stream() {
+			if(outputsOuter) return outputSets.stream().flatMap(outputSet -> inputSets.stream().map(inputSet -> transputSet(inputSet, outputSet)));
+			return inputSets.stream().flatMap(inputSet -> outputSets.stream().map(outputSet -> transputSet(inputSet, outputSet)));
+		}
+
+		private Pair<InputSetWrapper, OutputSetWrapper> transputSet(List<StatefulDataAssociation<DataInputAssociation>> inputSet, List<StatefulDataAssociation<DataOutputAssociation>> outputSet) {
+			InputSetWrapper inputs = new InputSetWrapper(inputSet);
+			OutputSetWrapper outputs = new OutputSetWrapper(outputSet);
+			inputs.addAll(additionalInputs);
+			outputs.addAll(additionalOutputs);
+			return new Pair<>(inputs, outputs);
+		}
+	}
+
+}
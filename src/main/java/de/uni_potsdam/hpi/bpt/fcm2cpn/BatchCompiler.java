@@ -0,0 +1,320 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.cpntools.accesscpn.model.PetriNet;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.CompilerApp.StateEncoding;
+
+/**
+ * Headless compilation of many bpmn files at once.<br>
+ * Inputs can be files, directories (all contained .bpmn files) and glob patterns like <code>models/**.bpmn</code>.
+ * The models are compiled concurrently, each by its own {@link CompilerApp}, and the resulting nets are written to the output directory.
+ * A summary with status and timings per file is printed; the exit code is non-zero if any file failed.<br>
+ * With a {@link CompilationCache}, files that were compiled before are not parsed and translated again, but their net is read from the cache.
+ */
+public class BatchCompiler {
+
+	public static final String USAGE = "Usage: BatchCompiler [-o <output directory>] [-j <threads>] [--symbolic-states] [--streaming-loader] [--cache <directory> [--cache-size <megabytes>] [--verify-cache]] <file|directory|glob>...";
+
+	/** Exit code if all files were compiled*/
+	public static final int SUCCESS = 0;
+	/** Exit code if at least one file could not be compiled*/
+	public static final int FAILURE = 1;
+	/** Exit code if the arguments are invalid*/
+	public static final int USAGE_ERROR = 2;
+
+	private final List<String> inputs = new ArrayList<>();
+	private Path outputDirectory = Paths.get(".");
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private StateEncoding stateEncoding = StateEncoding.EXPANDED;
+	/** Whether models are read by the {@link StreamingBpmnLoader} instead of camunda*/
+	private boolean streamingLoader = false;
+	private Path cacheDirectory = null;
+	private long cacheBytes = CompilationCache.DEFAULT_MAX_BYTES;
+	private boolean verifyCache = false;
+	private CompilationCache cache = null;
+
+	public static void main(String[] args) {
+		System.exit(run(args, System.out));
+	}
+
+	/**
+	 * Compiles all files specified by the command line arguments and prints the summary to <code>out</code>
+	 * @return the exit code, see {@link #SUCCESS}, {@link #FAILURE} and {@link #USAGE_ERROR}
+	 */
+	public static int run(String[] args, PrintStream out) {
+		BatchCompiler compiler = new BatchCompiler();
+		try {
+			compiler.parseArguments(args);
+		} catch (IllegalArgumentException e) {
+			out.println(e.getMessage());
+			out.println(USAGE);
+			return USAGE_ERROR;
+		}
+		return compiler.compileAll(out);
+	}
+
+	private void parseArguments(String[] args) {
+		for(int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "-o":
+			case "--output":
+				outputDirectory = Paths.get(valueOf(args, ++i));
+				break;
+			case "-j":
+			case "--threads":
+				try {
+					threads = Integer.parseInt(valueOf(args, ++i));
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Number of threads is not a number: "+args[i]);
+				}
+				if(threads < 1) throw new IllegalArgumentException("Number of threads must be positive: "+threads);
+				break;
+			case "--symbolic-states":
+				stateEncoding = StateEncoding.SYMBOLIC;
+				break;
+			case "--streaming-loader":
+				streamingLoader = true;
+				break;
+			case "--cache":
+				cacheDirectory = Paths.get(valueOf(args, ++i));
+				break;
+			case "--cache-size":
+				cacheBytes = CompilerApp.megabytes(valueOf(args, ++i), "Cache size");
+				break;
+			case "--verify-cache":
+				verifyCache = true;
+				break;
+			default:
+				if(args[i].startsWith("-")) throw new IllegalArgumentException("Unknown option: "+args[i]);
+				inputs.add(args[i]);
+			}
+		}
+		if(verifyCache && cacheDirectory == null) throw new IllegalArgumentException("No cache to verify given");
+		if(inputs.isEmpty() && !verifyCache) throw new IllegalArgumentException("No input files given");
+	}
+
+	private static String valueOf(String[] args, int index) {
+		if(index >= args.length) throw new IllegalArgumentException("Missing value for option "+args[index - 1]);
+		return args[index];
+	}
+
+	private int compileAll(PrintStream out) {
+		if(cacheDirectory != null) {
+			try {
+				cache = new CompilationCache(cacheDirectory, cacheBytes);
+				if(verifyCache) {
+					CompilationCache.Verification verification = cache.verify();
+					verification.getCorruptEntries().forEach(entry -> out.println("Removed corrupt cache entry "+entry));
+					out.println(String.format("%d cache entries verified, %d corrupt entries removed", verification.getValidEntries(), verification.getCorruptEntries().size()));
+					if(inputs.isEmpty()) return SUCCESS;
+				}
+			} catch (IOException e) {
+				out.println("Could not open cache: "+e);
+				return FAILURE;
+			}
+		}
+
+		List<Result> results = new ArrayList<>();
+		Set<Path> files = new LinkedHashSet<>();
+		for(String input : inputs) {
+			try {
+				List<Path> resolved = resolve(input);
+				if(resolved.isEmpty()) results.add(Result.failed(Paths.get(input), "No bpmn files found"));
+				files.addAll(resolved);
+			} catch (IOException e) {
+				results.add(Result.failed(Paths.get(input), e.toString()));
+			}
+		}
+
+		try {
+			Files.createDirectories(outputDirectory);
+		} catch (IOException e) {
+			out.println("Could not create output directory: "+e);
+			return FAILURE;
+		}
+
+		long start = System.nanoTime();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			Map<Path, Path> outputFiles = new HashMap<>();
+			List<Future<Result>> futures = new ArrayList<>();
+			for(Path file : files) {
+				Path outputFile = outputDirectory.resolve(file.getFileName().toString().replaceAll("\\.bpmn$", "")+".cpn");
+				Path previous = outputFiles.putIfAbsent(outputFile, file);
+				if(previous != null) {
+					results.add(Result.failed(file, "Output file "+outputFile+" is already written for "+previous));
+				} else {
+					futures.add(executor.submit(() -> compile(file, outputFile)));
+				}
+			}
+			for(Future<Result> future : futures) {
+				results.add(future.get());
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			out.println("Batch compilation was aborted: "+e);
+			return FAILURE;
+		} finally {
+			executor.shutdownNow();
+		}
+		long totalMillis = (System.nanoTime() - start) / 1_000_000;
+
+		printSummary(out, results, totalMillis);
+		return results.stream().allMatch(Result::isSuccess) ? SUCCESS : FAILURE;
+	}
+
+	/**
+	 * Resolves a command line input to the bpmn files it denotes
+	 */
+	private static List<Path> resolve(String input) throws IOException {
+		if(input.chars().anyMatch(c -> "*?[{".indexOf(c) >= 0)) {
+			// Walk from the longest prefix without glob characters
+			String prefix = input.split("[*?\\[{]", 2)[0];
+			int lastSeparator = Math.max(prefix.lastIndexOf('/'), prefix.lastIndexOf(File.separatorChar));
+			Path base = Paths.get(lastSeparator >= 0 ? prefix.substring(0, lastSeparator + 1) : ".");
+			PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:"+input);
+			if(!Files.isDirectory(base)) return new ArrayList<>();
+			try (Stream<Path> paths = Files.walk(base)) {
+				return paths
+					.filter(Files::isRegularFile)
+					.filter(path -> matcher.matches(lastSeparator >= 0 ? path : base.relativize(path)))
+					.sorted()
+					.collect(Collectors.toList());
+			}
+		}
+		Path path = Paths.get(input);
+		if(Files.isDirectory(path)) {
+			try (Stream<Path> paths = Files.walk(path)) {
+				return paths
+					.filter(Files::isRegularFile)
+					.filter(each -> each.getFileName().toString().endsWith(".bpmn"))
+					.sorted()
+					.collect(Collectors.toList());
+			}
+		}
+		if(!Files.isRegularFile(path)) throw new IOException("File not found: "+input);
+		List<Path> file = new ArrayList<>();
+		file.add(path);
+		return file;
+	}
+
+	private Result compile(Path file, Path outputFile) {
+		Result result = new Result(file);
+		try {
+			long start = System.nanoTime();
+			PetriNet petriNet = null;
+			byte[] content = null;
+			String cacheKey = null;
+			if(cache != null) {
+				content = Files.readAllBytes(file);
+				cacheKey = CompilationCache.key(content, stateEncoding);
+				petriNet = cache.get(cacheKey);
+				result.cached = petriNet != null;
+			}
+			long loaded = System.nanoTime();
+			if(petriNet == null) {
+				BpmnModelInstance bpmn;
+				if(streamingLoader) {
+					bpmn = (content != null ? StreamingBpmnLoader.load(new ByteArrayInputStream(content)) : StreamingBpmnLoader.load(file)).toModelInstance();
+				} else {
+					bpmn = content != null ? Bpmn.readModelFromStream(new ByteArrayInputStream(content)) : Bpmn.readModelFromFile(file.toFile());
+				}
+				loaded = System.nanoTime();
+				petriNet = new CompilerApp(bpmn, stateEncoding)
+						.setProgressOutput(new PrintStream(OutputStream.nullOutputStream()))
+						.translateBPMN2CPN();
+				if(cache != null) cache.put(cacheKey, petriNet);
+			}
+			long translated = System.nanoTime();
+			try(OutputStream out = StreamingNetExporter.openOutput(outputFile)) {
+				CompilerApp.streamPetriNet(petriNet, out);
+			}
+			long exported = System.nanoTime();
+			result.succeeded(outputFile, loaded - start, translated - loaded, exported - translated);
+		} catch (Exception | AssertionError e) {
+			result.failed(e.toString());
+		}
+		return result;
+	}
+
+	private static void printSummary(PrintStream out, List<Result> results, long totalMillis) {
+		out.println(String.format("%-6s %8s %8s %8s  %s", "Status", "Load", "Compile", "Export", "File"));
+		for(Result result : results) {
+			if(result.isSuccess()) {
+				out.println(String.format("%-6s %6dms %6dms %6dms  %s -> %s", result.cached ? "CACHED" : "OK",
+						result.loadNanos / 1_000_000, result.compileNanos / 1_000_000, result.exportNanos / 1_000_000,
+						result.file, result.outputFile));
+			} else {
+				out.println(String.format("%-6s %8s %8s %8s  %s: %s", "FAILED", "", "", "", result.file, result.error));
+			}
+		}
+		long failed = results.stream().filter(result -> !result.isSuccess()).count();
+		long cached = results.stream().filter(result -> result.isSuccess() && result.cached).count();
+		out.println(String.format("%d files compiled, %d failed, %dms total", results.size() - failed, failed, totalMillis)
+				+ (cached > 0 ? String.format(", %d from cache", cached) : ""));
+	}
+
+	/**
+	 * Status and timings of the compilation of a single file
+	 */
+	private static class Result {
+		private final Path file;
+		private Path outputFile;
+		private String error;
+		private long loadNanos;
+		private long compileNanos;
+		private long exportNanos;
+		/** Whether the net was read from the cache instead of being compiled*/
+		private boolean cached = false;
+
+		private Result(Path file) {
+			this.file = file;
+		}
+
+		private static Result failed(Path file, String error) {
+			Result result = new Result(file);
+			result.failed(error);
+			return result;
+		}
+
+		private void failed(String error) {
+			this.error = error;
+		}
+
+		private void succeeded(Path outputFile, long loadNanos, long compileNanos, long exportNanos) {
+			this.outputFile = outputFile;
+			this.loadNanos = loadNanos;
+			this.compileNanos = compileNanos;
+			this.exportNanos = exportNanos;
+		}
+
+		private boolean isSuccess() {
+			return error == null;
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazy n-fold cartesian product of a collection of lists.<br>
+ * Combinations are not materialized but computed from their index when they are iterated, the first list varies fastest.
+ * Example: the product of [a, b] and [1, 2] is [a, 1], [b, 1], [a, 2], [b, 2].<br>
+ * The number of combinations is checked for overflow and against a maximum, see {@link #DEFAULT_MAXIMUM_SIZE}.
+ * Streams of combinations can be split for parallel consumption.
+ */
+public class CartesianProduct<T> implements Iterable<List<T>> {
+
+	/** Maximum number of combinations a product may have: the {@link NetSizeLimits#DEFAULT default} maximum of transitions per activity, as each combination of a transput set becomes a transition*/
+	public static final long DEFAULT_MAXIMUM_SIZE = NetSizeLimits.DEFAULT.getMaxTransitionsPerActivity();
+
+	private final List<List<T>> sets;
+	private final long size;
+
+	public CartesianProduct(Collection<List<T>> sets) {
+		this(sets, DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the product has more than <code>maximumSize</code> combinations
+	 */
+	public CartesianProduct(Collection<List<T>> sets, long maximumSize) {
+		this.sets = new ArrayList<>(sets);
+		long size = 1;
+		try {
+			for(List<T> set : this.sets) size = Math.multiplyExact(size, set.size());
+		} catch (ArithmeticException overflow) {
+			throw new IllegalArgumentException("Number of combinations of "+setSizes()+" exceeds "+Long.MAX_VALUE, overflow);
+		}
+		if(size > maximumSize) throw new IllegalArgumentException("Number of combinations of "+setSizes()+" is "+size+", which exceeds the maximum of "+maximumSize);
+		this.size = size;
+	}
+
+	private String setSizes() {
+		return sets.stream().map(List::size).collect(Collectors.toList()).toString();
+	}
+
+	public long size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Computes the combination with the given index
+	 */
+	public List<T> get(long index) {
+		if(index < 0 || index >= size) throw new IndexOutOfBoundsException("Index "+index+" for "+size+" combinations");
+		List<T> combination = new ArrayList<>(sets.size());
+		long remainder = index;
+		for(List<T> set : sets) {
+			combination.add(set.get((int) (remainder % set.size())));
+			remainder /= set.size();
+		}
+		return Collections.unmodifiableList(combination);
+	}
+
+	@Override
+	public Iterator<List<T>> iterator() {
+		return new Iterator<List<T>>() {
+			private long next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public List<T> next() {
+				if(!hasNext()) throw new NoSuchElementException();
+				return get(next++);
+			}
+		};
+	}
+
+	@Override
+	public Spliterator<List<T>> spliterator() {
+		return new CombinationSpliterator(0, size);
+	}
+
+	public Stream<List<T>> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	public Stream<List<T>> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+
+	/**
+	 * Spliterator over a range of combination indices, is split by halving the range
+	 */
+	private class CombinationSpliterator implements Spliterator<List<T>> {
+		private long from;
+		private final long to;
+
+		private CombinationSpliterator(long from, long to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super List<T>> action) {
+			if(from >= to) return false;
+			action.accept(get(from++));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super List<T>> action) {
+			while(from < to) action.accept(get(from++));
+		}
+
+		@Override
+		public Spliterator<List<T>> trySplit() {
+			long middle = from + (to - from) / 2;
+			if(middle <= from) return null;
+			Spliterator<List<T>> prefix = new CombinationSpliterator(from, middle);
+			from = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return to - from;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+		}
+	}
+
+}
@@ -0,0 +1,195 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelException;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.impl.BpmnModelConstants;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.camunda.bpm.model.xml.type.ModelElementType;
+
+/**
+ * Compact representation of the parts of a bpmn model that the compiler translates, as read by {@link StreamingBpmnLoader}.<br>
+ * Elements are numbered in document order, element 0 being the definitions. Kind, parent, children, attributes and text of each element are stored in arrays indexed by that number,
+ * so the model needs neither a dom nor an object per element. Instances are immutable.
+ */
+public class CompactBpmnModel {
+
+	/** Index returned if there is no such element*/
+	public static final int NO_ELEMENT = -1;
+
+	/** Distinct local names of the element kinds, {@link #kinds} index into it*/
+	private final String[] kindNames;
+	private final int[] kinds;
+	private final int[] parents;
+	private final int[] firstChildren;
+	private final int[] nextSiblings;
+	/** The attributes of element i are at positions attributeStarts[i] to attributeStarts[i+1] (exclusive)*/
+	private final int[] attributeStarts;
+	private final String[] attributeNames;
+	private final String[] attributeValues;
+	/** Text content, null for elements without text*/
+	private final String[] texts;
+	private final Map<String, Integer> indicesById;
+
+	private CompactBpmnModel(Builder builder) {
+		int size = builder.size;
+		this.kindNames = builder.kindNames.keySet().toArray(new String[0]);
+		builder.kindNames.forEach((name, kind) -> kindNames[kind] = name);
+		this.kinds = Arrays.copyOf(builder.kinds, size);
+		this.parents = Arrays.copyOf(builder.parents, size);
+		this.attributeStarts = Arrays.copyOf(builder.attributeStarts, size + 1);
+		this.attributeStarts[size] = builder.attributes;
+		this.attributeNames = Arrays.copyOf(builder.attributeNames, builder.attributes);
+		this.attributeValues = Arrays.copyOf(builder.attributeValues, builder.attributes);
+		this.texts = Arrays.copyOf(builder.texts, size);
+
+		this.firstChildren = new int[size];
+		this.nextSiblings = new int[size];
+		Arrays.fill(firstChildren, NO_ELEMENT);
+		Arrays.fill(nextSiblings, NO_ELEMENT);
+		int[] lastChildren = new int[size];
+		this.indicesById = new HashMap<>();
+		for(int element = 0; element < size; element++) {
+			int parent = parents[element];
+			if(parent != NO_ELEMENT) {
+				if(firstChildren[parent] == NO_ELEMENT) firstChildren[parent] = element;
+				else nextSiblings[lastChildren[parent]] = element;
+				lastChildren[parent] = element;
+			}
+			String id = attribute(element, "id");
+			if(id != null) indicesById.putIfAbsent(id, element);
+		}
+	}
+
+	/** Number of elements*/
+	public int size() {
+		return kinds.length;
+	}
+
+	/** Local name of the element, e.g. <code>task</code>*/
+	public String kind(int element) {
+		return kindNames[kinds[element]];
+	}
+
+	public int parent(int element) {
+		return parents[element];
+	}
+
+	public int firstChild(int element) {
+		return firstChildren[element];
+	}
+
+	public int nextSibling(int element) {
+		return nextSiblings[element];
+	}
+
+	public String attribute(int element, String name) {
+		for(int i = attributeStarts[element]; i < attributeStarts[element + 1]; i++) {
+			if(attributeNames[i].equals(name)) return attributeValues[i];
+		}
+		return null;
+	}
+
+	public String id(int element) {
+		return attribute(element, "id");
+	}
+
+	public String text(int element) {
+		return texts[element];
+	}
+
+	/** Index of the element with the id, {@link #NO_ELEMENT} if there is none*/
+	public int indexOf(String id) {
+		return indicesById.getOrDefault(id, NO_ELEMENT);
+	}
+
+	/** Indices of all elements of the kind, in document order*/
+	public int[] elementsOfKind(String kind) {
+		return IntStream.range(0, size()).filter(element -> kindNames[kinds[element]].equals(kind)).toArray();
+	}
+
+	/**
+	 * Creates a camunda model instance that contains exactly the elements of this model, so that the compiler can translate it.
+	 * The elements are appended in document order, which is also the order the bpmn schema requires.
+	 */
+	public BpmnModelInstance toModelInstance() {
+		BpmnModelInstance bpmn = Bpmn.createEmptyModel();
+		ModelElementInstance[] instances = new ModelElementInstance[size()];
+		for(int element = 0; element < size(); element++) {
+			ModelElementType type = bpmn.getModel().getTypeForName(BpmnModelConstants.BPMN20_NS, kind(element));
+			if(type == null) throw new BpmnModelException("Unknown bpmn element "+kind(element));
+			ModelElementInstance instance = bpmn.newInstance(type, id(element));
+			for(int i = attributeStarts[element]; i < attributeStarts[element + 1]; i++) {
+				if(!attributeNames[i].equals("id")) instance.setAttributeValue(attributeNames[i], attributeValues[i]);
+			}
+			if(texts[element] != null) instance.setTextContent(texts[element]);
+			if(parents[element] == NO_ELEMENT) {
+				bpmn.setDocumentElement(instance);
+			} else {
+				instances[parents[element]].getDomElement().appendChild(instance.getDomElement());
+			}
+			instances[element] = instance;
+		}
+		return bpmn;
+	}
+
+	/**
+	 * Collects the elements of a model in document order, used by the {@link StreamingBpmnLoader}
+	 */
+	static class Builder {
+		private final Map<String, Integer> kindNames = new HashMap<>();
+		private int size = 0;
+		private int[] kinds = new int[64];
+		private int[] parents = new int[64];
+		private int[] attributeStarts = new int[64];
+		private String[] texts = new String[64];
+		private int attributes = 0;
+		private String[] attributeNames = new String[256];
+		private String[] attributeValues = new String[256];
+
+		/**
+		 * Adds an element; its attributes have to be added before the next element
+		 * @return the index of the element
+		 */
+		int addElement(String kind, int parent) {
+			if(size == kinds.length) {
+				kinds = Arrays.copyOf(kinds, size * 2);
+				parents = Arrays.copyOf(parents, size * 2);
+				attributeStarts = Arrays.copyOf(attributeStarts, size * 2 + 1);
+				texts = Arrays.copyOf(texts, size * 2);
+			}
+			kinds[size] = kindNames.computeIfAbsent(kind, name -> kindNames.size());
+			parents[size] = parent;
+			attributeStarts[size] = attributes;
+			return size++;
+		}
+
+		void addAttribute(String name, String value) {
+			if(attributes == attributeNames.length) {
+				attributeNames = Arrays.copyOf(attributeNames, attributes * 2);
+				attributeValues = Arrays.copyOf(attributeValues, attributes * 2);
+			}
+			attributeNames[attributes] = name;
+			attributeValues[attributes] = value;
+			attributes++;
+		}
+
+		int parentOf(int element) {
+			return parents[element];
+		}
+
+		void setText(int element, String text) {
+			texts[element] = text;
+		}
+
+		CompactBpmnModel build() {
+			if(size == 0) throw new BpmnModelException("Model has no elements");
+			return new CompactBpmnModel(this);
+		}
+	}
+}
@@ -0,0 +1,345 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.cpntools.accesscpn.model.PetriNet;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.CompilerApp.StateEncoding;
+
+/**
+ * Persistent cache of compiled nets, so that unchanged bpmn files are not parsed and translated again.<br>
+ * Entries are keyed by a hash of the bpmn file content, the compiler and the options that influence the net (see {@link #key(byte[], StateEncoding)}).
+ * Each entry is a file in the cache directory that holds the net in the emf binary resource format, preceded by a digest of it, which is checked on every read and by {@link #verify()}.<br>
+ * The cache is bounded in size: reading an entry marks it as used, and when the cache grows beyond its limit, the least recently used entries are removed.
+ * Several compilers, also in different processes, may share a cache directory.
+ */
+public class CompilationCache {
+
+	/** Default limit of the cache size in bytes*/
+	public static final long DEFAULT_MAX_BYTES = 1L << 30;
+
+	private static final String ENTRY_SUFFIX = ".net";
+	private static final byte[] MAGIC = "FCM2CPN-NET".getBytes(StandardCharsets.US_ASCII);
+	/** Version of the entry format, part of every key*/
+	private static final int FORMAT_VERSION = 1;
+	private static final int DIGEST_LENGTH = 32;
+	private static final URI RESOURCE_URI = URI.createURI("fcm2cpn:/cache"+ENTRY_SUFFIX);
+
+	/** Identifies the compiler code, so that entries of other compiler versions are never hit, see {@link #fingerprintCompiler()}*/
+	private static String compilerFingerprint;
+
+	private final Path directory;
+	private final long maxBytes;
+	/** Size of the entries, as far as this instance knows; only when it exceeds the limit, the directory is scanned*/
+	private final AtomicLong bytes;
+
+	public CompilationCache(Path directory) throws IOException {
+		this(directory, DEFAULT_MAX_BYTES);
+	}
+
+	public CompilationCache(Path directory, long maxBytes) throws IOException {
+		if(maxBytes <= 0) throw new IllegalArgumentException("Cache size must be positive: "+maxBytes);
+		this.directory = Files.createDirectories(directory);
+		this.maxBytes = maxBytes;
+		this.bytes = new AtomicLong(entries().stream().mapToLong(Entry::size).sum());
+	}
+
+	/**
+	 * Cache key for a bpmn file compiled with the given options
+	 */
+	public static String key(byte[] bpmnContent, StateEncoding stateEncoding) {
+		MessageDigest digest = sha256();
+		digest.update((compilerFingerprint()+"\0"+FORMAT_VERSION+"\0"+stateEncoding+"\0").getBytes(StandardCharsets.UTF_8));
+		digest.update(bpmnContent);
+		return hex(digest.digest());
+	}
+
+	/**
+	 * Returns the cached net for the key and marks it as recently used; null if there is no valid entry.
+	 * Corrupt entries are removed.
+	 */
+	public PetriNet get(String key) {
+		Path file = entryFile(key);
+		byte[] entry;
+		try {
+			entry = Files.readAllBytes(file);
+		} catch (IOException e) {
+			return null;
+		}
+		PetriNet petriNet;
+		try {
+			petriNet = decode(entry);
+		} catch (IOException | RuntimeException e) {
+			remove(file);
+			return null;
+		}
+		try {
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			// Entry was evicted in the meantime, the net is valid nonetheless
+		}
+		return petriNet;
+	}
+
+	/**
+	 * Stores the net under the key, replacing any previous entry, and evicts least recently used entries if the cache is too large
+	 */
+	public void put(String key, PetriNet petriNet) throws IOException {
+		byte[] entry = encode(petriNet);
+		Path file = entryFile(key);
+		Path temporaryFile = directory.resolve(key+"."+UUID.randomUUID()+".tmp");
+		long replacedBytes;
+		try {
+			Files.write(temporaryFile, entry);
+			replacedBytes = sizeOf(file);
+			Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporaryFile);
+		}
+		if(bytes.addAndGet(entry.length - replacedBytes) > maxBytes) evict();
+	}
+
+	/**
+	 * Checks the digest of all entries and whether they can be read, corrupt entries are removed
+	 */
+	public Verification verify() throws IOException {
+		Verification verification = new Verification();
+		for(Entry entry : entries()) {
+			try {
+				decode(Files.readAllBytes(entry.file));
+				verification.validEntries++;
+			} catch (NoSuchFileException e) {
+				// Evicted concurrently
+			} catch (IOException | RuntimeException e) {
+				remove(entry.file);
+				verification.corruptEntries.add(entry.file);
+			}
+		}
+		return verification;
+	}
+
+	/**
+	 * Result of {@link CompilationCache#verify()}
+	 */
+	public static class Verification {
+		private int validEntries = 0;
+		private final List<Path> corruptEntries = new ArrayList<>();
+
+		public int getValidEntries() {
+			return validEntries;
+		}
+
+		/** Entries that were removed because they could not be read or did not match their digest*/
+		public List<Path> getCorruptEntries() {
+			return corruptEntries;
+		}
+	}
+
+	/** Total size of all entries in bytes*/
+	public long size() throws IOException {
+		return entries().stream().mapToLong(Entry::size).sum();
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	private Path entryFile(String key) {
+		return directory.resolve(key+ENTRY_SUFFIX);
+	}
+
+	/**
+	 * Removes the least recently used entries until the cache is below its limit
+	 */
+	private synchronized void evict() throws IOException {
+		if(bytes.get() <= maxBytes) return;
+		List<Entry> entries = entries();
+		entries.sort(Comparator.comparing(Entry::lastUsed));
+		long remaining = entries.stream().mapToLong(Entry::size).sum();
+		for(Entry entry : entries) {
+			if(remaining <= maxBytes) break;
+			remove(entry.file);
+			remaining -= entry.size;
+		}
+		bytes.set(remaining);
+	}
+
+	private void remove(Path file) {
+		try {
+			long size = sizeOf(file);
+			if(Files.deleteIfExists(file)) bytes.addAndGet(-size);
+		} catch (IOException e) {
+			// Will be retried on the next eviction or verification
+		}
+	}
+
+	/**
+	 * Size of an entry file, 0 if there is none. Concurrent changes of the same entry can make the tracked size inexact, which the next eviction corrects
+	 */
+	private static long sizeOf(Path file) throws IOException {
+		try {
+			return Files.size(file);
+		} catch (NoSuchFileException e) {
+			return 0;
+		}
+	}
+
+	private List<Entry> entries() throws IOException {
+		List<Entry> entries = new ArrayList<>();
+		try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*"+ENTRY_SUFFIX)) {
+			for(Path file : files) {
+				try {
+					BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+					entries.add(new Entry(file, attributes.size(), attributes.lastModifiedTime()));
+				} catch (NoSuchFileException e) {
+					// Removed concurrently
+				}
+			}
+		}
+		return entries;
+	}
+
+	private static class Entry {
+		private final Path file;
+		private final long size;
+		private final FileTime lastUsed;
+
+		private Entry(Path file, long size, FileTime lastUsed) {
+			this.file = file;
+			this.size = size;
+			this.lastUsed = lastUsed;
+		}
+
+		private long size() {
+			return size;
+		}
+
+		private FileTime lastUsed() {
+			return lastUsed;
+		}
+	}
+
+	//========Entry format======
+	/**
+	 * Entries consist of {@link #MAGIC}, the sha-256 digest of the net and the net as emf binary resource
+	 */
+	private static byte[] encode(PetriNet petriNet) throws IOException {
+		ByteArrayOutputStream net = new ByteArrayOutputStream();
+		Resource resource = new BinaryResourceImpl(RESOURCE_URI);
+		resource.getContents().add((EObject) petriNet);
+		try {
+			resource.save(net, null);
+		} finally {
+			resource.getContents().clear();
+		}
+		byte[] netBytes = net.toByteArray();
+
+		ByteArrayOutputStream entry = new ByteArrayOutputStream(MAGIC.length + DIGEST_LENGTH + netBytes.length);
+		entry.write(MAGIC);
+		entry.write(sha256().digest(netBytes));
+		entry.write(netBytes);
+		return entry.toByteArray();
+	}
+
+	private static PetriNet decode(byte[] entry) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry));
+		byte[] magic = new byte[MAGIC.length];
+		byte[] digest = new byte[DIGEST_LENGTH];
+		in.readFully(magic);
+		in.readFully(digest);
+		if(!Arrays.equals(magic, MAGIC)) throw new IOException("Not a cache entry");
+		int offset = MAGIC.length + DIGEST_LENGTH;
+		MessageDigest actualDigest = sha256();
+		actualDigest.update(entry, offset, entry.length - offset);
+		if(!MessageDigest.isEqual(digest, actualDigest.digest())) throw new IOException("Cache entry does not match its digest");
+
+		Resource resource = new BinaryResourceImpl(RESOURCE_URI);
+		resource.load(new ByteArrayInputStream(entry, offset, entry.length - offset), null);
+		if(resource.getContents().size() != 1 || !(resource.getContents().get(0) instanceof PetriNet)) throw new IOException("Cache entry does not contain a net");
+		PetriNet petriNet = (PetriNet) resource.getContents().get(0);
+		resource.getContents().clear();
+		return petriNet;
+	}
+
+	//========Compiler fingerprint======
+	private static synchronized String compilerFingerprint() {
+		if(compilerFingerprint == null) compilerFingerprint = fingerprintCompiler();
+		return compilerFingerprint;
+	}
+
+	/**
+	 * Hashes the compiler classes, i.e. the jar or the class directory of this package, so that any change of the compiler invalidates the cache.
+	 * If the classes cannot be read, a random fingerprint is used, which disables cache hits across processes.
+	 */
+	private static String fingerprintCompiler() {
+		try {
+			Path location = Paths.get(CompilationCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+			MessageDigest digest = sha256();
+			if(Files.isDirectory(location)) {
+				Path classes = location.resolve(CompilationCache.class.getPackage().getName().replace('.', '/'));
+				List<Path> files;
+				try(Stream<Path> walk = Files.walk(classes)) {
+					files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+				}
+				for(Path file : files) {
+					digest.update(location.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+					digest.update(Files.readAllBytes(file));
+				}
+			} else {
+				try(InputStream in = Files.newInputStream(location)) {
+					byte[] buffer = new byte[1 << 16];
+					for(int read; (read = in.read(buffer)) >= 0;) {
+						digest.update(buffer, 0, read);
+					}
+				}
+			}
+			return hex(digest.digest());
+		} catch (IOException | URISyntaxException | RuntimeException e) {
+			return "random-"+UUID.randomUUID();
+		}
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String hex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for(byte each : bytes) {
+			hex.append(Character.forDigit((each >> 4) & 0xF, 16)).append(Character.forDigit(each & 0xF, 16));
+		}
+		return hex.toString();
+	}
+}
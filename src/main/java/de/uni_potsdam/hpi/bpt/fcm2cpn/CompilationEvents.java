@@ -0,0 +1,101 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder events of the compiler, one per compilation phase and one per translated activity.<br>
+ * They are only recorded while a flight recording is running, e.g. when started with <code>-XX:StartFlightRecording</code>.
+ * On jvms without the <code>jdk.jfr</code> module, no event classes are loaded and all spans are no-ops.
+ */
+final class CompilationEvents {
+
+	private static final boolean AVAILABLE = isFlightRecorderAvailable();
+
+	private CompilationEvents() {}
+
+	private static boolean isFlightRecorderAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event", false, CompilationEvents.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	/** Started event that is committed when closed*/
+	interface Span extends AutoCloseable {
+		@Override
+		void close();
+	}
+
+	/** Span of one activity, the sizes of its subpage are set before closing*/
+	interface ActivitySpan extends Span {
+		void setSizes(int transputSets, int arcs);
+	}
+
+	static Span phase(String phase) {
+		if(!AVAILABLE) return () -> {};
+		PhaseEvent event = new PhaseEvent();
+		event.phase = phase;
+		event.begin();
+		return event;
+	}
+
+	static ActivitySpan activity(String activityId, String activityName) {
+		if(!AVAILABLE) return new ActivitySpan() {
+			@Override
+			public void setSizes(int transputSets, int arcs) {}
+			@Override
+			public void close() {}
+		};
+		ActivityEvent event = new ActivityEvent();
+		event.activityId = activityId;
+		event.activityName = activityName;
+		event.begin();
+		return event;
+	}
+
+	@Name("de.uni_potsdam.hpi.bpt.fcm2cpn.Phase")
+	@Label("Compiler Phase")
+	@Category("BPMN to CPN")
+	@Description("One phase of the translation of a bpmn model, or the export of the resulting net")
+	static class PhaseEvent extends Event implements Span {
+		@Label("Phase")
+		String phase;
+
+		@Override
+		public void close() {
+			commit();
+		}
+	}
+
+	@Name("de.uni_potsdam.hpi.bpt.fcm2cpn.Activity")
+	@Label("Activity Translation")
+	@Category("BPMN to CPN")
+	@Description("Creation of the subpage of one activity, including its subpage transitions and data flow arcs")
+	static class ActivityEvent extends Event implements ActivitySpan {
+		@Label("Activity Id")
+		String activityId;
+		@Label("Activity Name")
+		String activityName;
+		@Label("Transput Sets")
+		int transputSets;
+		@Label("Arcs")
+		int arcs;
+
+		@Override
+		public void setSizes(int transputSets, int arcs) {
+			this.transputSets = transputSets;
+			this.arcs = arcs;
+		}
+
+		@Override
+		public void close() {
+			commit();
+		}
+	}
+}
@@ -0,0 +1,207 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.cpntools.accesscpn.model.HLDeclaration;
+import org.cpntools.accesscpn.model.Instance;
+import org.cpntools.accesscpn.model.Page;
+import org.cpntools.accesscpn.model.PetriNet;
+import org.cpntools.accesscpn.model.Place;
+import org.cpntools.accesscpn.model.RefPlace;
+import org.cpntools.accesscpn.model.Transition;
+import org.cpntools.accesscpn.model.declaration.TypeDeclaration;
+import org.cpntools.accesscpn.model.declaration.VariableDeclaration;
+
+/**
+ * Cost and size of one compilation: wall time and allocated memory per phase, and the number of elements of the resulting net.<br>
+ * Allocations are measured for the compiling thread only (-1 if the jvm cannot measure them), so work done in other threads, e.g. with parallel activities, is not included.
+ */
+public class CompilationMetrics {
+
+	private final Map<String, Phase> phases = new LinkedHashMap<>();
+	/** Number of transput sets, i.e. subpage transitions, per activity id*/
+	private final Map<String, Integer> transputSetsPerActivity = new LinkedHashMap<>();
+
+	private int pages;
+	private int places;
+	private int referencePlaces;
+	private int fusionPlaces;
+	private int transitions;
+	private int substitutionTransitions;
+	private int arcs;
+	private int colorSets;
+	private int variables;
+
+	/**
+	 * Runs a phase of the compilation and records its wall time and allocations, also if the phase fails
+	 */
+	void measure(String phase, Runnable step) {
+		long allocatedBefore = allocatedBytes();
+		long start = System.nanoTime();
+		try {
+			step.run();
+		} finally {
+			long wallNanos = System.nanoTime() - start;
+			long allocatedAfter = allocatedBytes();
+			phases.put(phase, new Phase(wallNanos, allocatedBefore < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocatedBefore));
+		}
+	}
+
+	private static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if(!(threads instanceof com.sun.management.ThreadMXBean)) return -1;
+		com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+		if(!allocations.isThreadAllocatedMemorySupported() || !allocations.isThreadAllocatedMemoryEnabled()) return -1;
+		return allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	void addTransputSets(String activityId, int count) {
+		transputSetsPerActivity.merge(activityId, count, Integer::sum);
+	}
+
+	/**
+	 * Counts the elements of the compiled net
+	 */
+	void countNet(PetriNet petriNet) {
+		for(Page page : petriNet.getPage()) {
+			pages++;
+			for(org.cpntools.accesscpn.model.Object node : page.getObject()) {
+				if(node instanceof RefPlace) {
+					if(((RefPlace) node).isFusionGroup()) fusionPlaces++; else referencePlaces++;
+				} else if(node instanceof Place) {
+					places++;
+				} else if(node instanceof Transition) {
+					transitions++;
+				} else if(node instanceof Instance) {
+					substitutionTransitions++;
+				}
+			}
+			arcs += page.getArc().size();
+		}
+		for(HLDeclaration declaration : petriNet.declaration()) {
+			if(declaration.getStructure() instanceof TypeDeclaration) colorSets++;
+			if(declaration.getStructure() instanceof VariableDeclaration) variables++;
+		}
+	}
+
+	public Map<String, Phase> getPhases() {
+		return Collections.unmodifiableMap(phases);
+	}
+
+	public long getTotalNanos() {
+		return phases.values().stream().mapToLong(Phase::getWallNanos).sum();
+	}
+
+	public Map<String, Integer> getTransputSetsPerActivity() {
+		return Collections.unmodifiableMap(transputSetsPerActivity);
+	}
+
+	public int getPages() {
+		return pages;
+	}
+
+	public int getPlaces() {
+		return places;
+	}
+
+	public int getReferencePlaces() {
+		return referencePlaces;
+	}
+
+	public int getFusionPlaces() {
+		return fusionPlaces;
+	}
+
+	public int getTransitions() {
+		return transitions;
+	}
+
+	public int getSubstitutionTransitions() {
+		return substitutionTransitions;
+	}
+
+	public int getArcs() {
+		return arcs;
+	}
+
+	public int getColorSets() {
+		return colorSets;
+	}
+
+	public int getVariables() {
+		return variables;
+	}
+
+	/**
+	 * Machine readable representation of all metrics, as json object
+	 */
+	public String toJson() {
+		return "{\n"
+			+ "  \"totalNanos\": "+getTotalNanos()+",\n"
+			+ "  \"phases\": {"+phases.entrySet().stream()
+				.map(entry -> "\n    "+quote(entry.getKey())+": {\"wallNanos\": "+entry.getValue().getWallNanos()+", \"allocatedBytes\": "+entry.getValue().getAllocatedBytes()+"}")
+				.collect(Collectors.joining(","))+"\n  },\n"
+			+ "  \"net\": {\n"
+			+ "    \"pages\": "+pages+",\n"
+			+ "    \"places\": "+places+",\n"
+			+ "    \"referencePlaces\": "+referencePlaces+",\n"
+			+ "    \"fusionPlaces\": "+fusionPlaces+",\n"
+			+ "    \"transitions\": "+transitions+",\n"
+			+ "    \"substitutionTransitions\": "+substitutionTransitions+",\n"
+			+ "    \"arcs\": "+arcs+",\n"
+			+ "    \"colorSets\": "+colorSets+",\n"
+			+ "    \"variables\": "+variables+"\n"
+			+ "  },\n"
+			+ "  \"transputSetsPerActivity\": {"+transputSetsPerActivity.entrySet().stream()
+				.map(entry -> "\n    "+quote(entry.getKey())+": "+entry.getValue())
+				.collect(Collectors.joining(","))+"\n  }\n"
+			+ "}";
+	}
+
+	/**
+	 * Json string literal for a string
+	 */
+	static String quote(String string) {
+		StringBuilder quoted = new StringBuilder("\"");
+		for(char c : string.toCharArray()) {
+			switch (c) {
+			case '"': quoted.append("\\\""); break;
+			case '\\': quoted.append("\\\\"); break;
+			case '\n': quoted.append("\\n"); break;
+			case '\r': quoted.append("\\r"); break;
+			case '\t': quoted.append("\\t"); break;
+			default:
+				if(c < 0x20) quoted.append(String.format("\\u%04x", (int) c));
+				else quoted.append(c);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	/**
+	 * Wall time and allocated bytes of one compilation phase
+	 */
+	public static class Phase {
+		private final long wallNanos;
+		private final long allocatedBytes;
+
+		private Phase(long wallNanos, long allocatedBytes) {
+			this.wallNanos = wallNanos;
+			this.allocatedBytes = allocatedBytes;
+		}
+
+		public long getWallNanos() {
+			return wallNanos;
+		}
+
+		public long getAllocatedBytes() {
+			return allocatedBytes;
+		}
+	}
+
+}
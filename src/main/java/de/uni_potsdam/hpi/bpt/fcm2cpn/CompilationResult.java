@@ -0,0 +1,26 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import org.cpntools.accesscpn.model.PetriNet;
+
+/**
+ * The net compiled from a bpmn model, together with the {@link CompilationMetrics metrics} of its compilation
+ */
+public class CompilationResult {
+
+	private final PetriNet petriNet;
+	private final CompilationMetrics metrics;
+
+	public CompilationResult(PetriNet petriNet, CompilationMetrics metrics) {
+		this.petriNet = petriNet;
+		this.metrics = metrics;
+	}
+
+	public PetriNet getPetriNet() {
+		return petriNet;
+	}
+
+	public CompilationMetrics getMetrics() {
+		return metrics;
+	}
+
+}
@@ -18,30 +18,46 @@
 
 package de.uni_potsdam.hpi.bpt.fcm2cpn;
 
-import static de.uni_potsdam.hpi.bpt.fcm2cpn.Utils.allCombinationsOf;
-import static de.uni_potsdam.hpi.bpt.fcm2cpn.Utils.dataObjectStateToNetColors;
 import static de.uni_potsdam.hpi.bpt.fcm2cpn.Utils.elementName;
-import static de.uni_potsdam.hpi.bpt.fcm2cpn.Utils.getSource;
-import static de.uni_potsdam.hpi.bpt.fcm2cpn.Utils.getTarget;
-import static de.uni_potsdam.hpi.bpt.fcm2cpn.Utils.normalizeElementName;
 
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import javax.naming.OperationNotSupportedException;
 import javax.swing.JFileChooser;
 import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.TransformerException;
 
 import org.camunda.bpm.model.bpmn.Bpmn;
 import org.camunda.bpm.model.bpmn.BpmnModelInstance;
@@ -56,17 +72,14 @@ import org.camunda.bpm.model.bpmn.instance.DataOutputAssociation;
 import org.camunda.bpm.model.bpmn.instance.DataState;
 import org.camunda.bpm.model.bpmn.instance.DataStore;
 import org.camunda.bpm.model.bpmn.instance.DataStoreReference;
-import org.camunda.bpm.model.bpmn.instance.EndEvent;
-import org.camunda.bpm.model.bpmn.instance.ExclusiveGateway;
 import org.camunda.bpm.model.bpmn.instance.FlowNode;
 import org.camunda.bpm.model.bpmn.instance.ItemAwareElement;
 import org.camunda.bpm.model.bpmn.instance.OutputSet;
-import org.camunda.bpm.model.bpmn.instance.ParallelGateway;
-import org.camunda.bpm.model.bpmn.instance.SequenceFlow;
 import org.camunda.bpm.model.bpmn.instance.StartEvent;
 import org.camunda.bpm.model.xml.instance.ModelElementInstance;
 import org.cpntools.accesscpn.model.Arc;
 import org.cpntools.accesscpn.model.Instance;
+import org.cpntools.accesscpn.model.Label;
 import org.cpntools.accesscpn.model.ModelFactory;
 import org.cpntools.accesscpn.model.ModelPrinter;
 import org.cpntools.accesscpn.model.Node;
@@ -77,24 +90,55 @@ import org.cpntools.accesscpn.model.PlaceNode;
 import org.cpntools.accesscpn.model.RefPlace;
 import org.cpntools.accesscpn.model.Transition;
 import org.cpntools.accesscpn.model.cpntypes.CPNEnum;
-import org.cpntools.accesscpn.model.cpntypes.CPNList;
-import org.cpntools.accesscpn.model.cpntypes.CPNRecord;
 import org.cpntools.accesscpn.model.cpntypes.CpntypesFactory;
+import org.cpntools.accesscpn.model.declaration.DeclarationFactory;
 import org.cpntools.accesscpn.model.exporter.DOMGenerator;
+import org.cpntools.accesscpn.model.impl.ModelPackageImpl;
 import org.cpntools.accesscpn.model.util.BuildCPNUtil;
 
 import de.uni_potsdam.hpi.bpt.fcm2cpn.TransputSetWrapper.InputSetWrapper;
 import de.uni_potsdam.hpi.bpt.fcm2cpn.TransputSetWrapper.OutputSetWrapper;
 
 
+/**
+ * Translates a bpmn model into a colored petri net.<br>
+ * Each instance translates one model and keeps all translation state to itself, so different models can be translated concurrently by different instances.
+ * Writing nets to files is serialized, see {@link #exportPetriNet(PetriNet, String)}.
+ */
 public class CompilerApp {
 
     public final static String licenseInfo = "fCM2CPN translator  Copyright (C) 2020  Hasso Plattner Institute gGmbH, University of Potsdam, Germany\n" +
             "This program comes with ABSOLUTELY NO WARRANTY.\n" +
             "This is free software, and you are welcome to redistribute it under certain conditions.\n";
+
+    public static final String USAGE = "Usage: CompilerApp [<bpmn file>] [--output <file>|-] [--symbolic-states] [--parallel-activities] [--streaming-loader] [--streaming-export] [--parallel-export]"
+    		+ " [--report <file>] [--explain <file>] [--cache <directory> [--cache-size <megabytes>]]\n"
+    		+ "       CompilerApp --batch|--daemon|--watch <options>";
+    
+    static {
+    	// The emf packages of the net model register themselves lazily in global registries, so they are initialized once before any translation runs
+    	ModelPackageImpl.eINSTANCE.eClass();
+    	Stream.of(ModelFactory.INSTANCE, CpntypesFactory.INSTANCE, DeclarationFactory.INSTANCE).forEach(Objects::requireNonNull);
+    }
     
     /** The bpmn model to be parsed*/
 	private BpmnModelInstance bpmn;
+	/** How data states with shortcuts like [A | B] are translated*/
+	private final StateEncoding stateEncoding;
+	/** Stream to report the translation progress to*/
+	private PrintStream progressOutput = System.out;
+	/** Whether the subpage transitions of activities are planned in parallel, see {@link #translateActivities()}*/
+	private boolean parallelActivities = false;
+	/** Time and allocations per phase and size of the resulting net*/
+	private final CompilationMetrics metrics = new CompilationMetrics();
+	/** Maximum size of the net, checked before the translation starts*/
+	private NetSizeLimits netSizeLimits = NetSizeLimits.DEFAULT;
+	/** Predicted size of the net, see {@link #estimateNetSize()}*/
+	private NetSizeEstimate netSizeEstimate;
+	/** Origin of subpage elements, only recorded if {@link #setAttribution(boolean) enabled}*/
+	private NetAttribution attribution = new NetAttribution(false);
+	/** Source of the plans of unchanged activities if this is an incremental compilation, null otherwise*/
+	private IncrementalCompiler incrementalCompiler = null;
     /** Parsed data model of the bpmn model*/
 	private DataModel dataModel = new DataModel();
 	
@@ -104,17 +148,17 @@ public class CompilerApp {
 	private PetriNet petriNet;
     /** Net page that includes high level subpage transitions for bpmn elements like events, activities and gateways*/
 	private Page mainPage;
-	/** Maps from bpmn elments to their representations on the {@link #mainPage}*/
-	private Map<BaseElement, Node> nodeMap;
-	/** Maps sub pages for elements like like events, activities and gateways*/
-	private Map<BaseElement, SubpageElement> subpages;
+	/** Representations of the flow nodes on the {@link #mainPage}, by id in the {@link #graph}*/
+	private Node[] nodes;
+	/** Sub pages for elements like like events, activities and gateways by id in the {@link #graph}, null for other flow nodes*/
+	private SubpageElement[] subpages;
 	
 	/** Global place for all associations*/
 	private Place associationsPlace;
-	/** Set of activities that read from {@link #associationsPlace}, to avoid duplicate arcs on main page*/
-	private final Set<Activity> associationReaders;
-	/** Set of activities that write to {@link #associationsPlace}, to avoid duplicate arcs on main page*/
-	private final Set<Activity> associationWriters;
+	/** Ids of the activities that read from {@link #associationsPlace}, to avoid duplicate arcs on main page*/
+	private final BitSet associationReaders;
+	/** Ids of the activities that write to {@link #associationsPlace}, to avoid duplicate arcs on main page*/
+	private final BitSet associationWriters;
 	
 	/** Steps that run after (most of) the net is created; used e.g. in {@link #translateBoundaryEvents()} to access all control flow places of an interrupted activity*/
 	private List<Runnable> deferred;
@@ -146,28 +190,242 @@ public class CompilerApp {
 
 	/** Wrapper for data stores, see {@link DataStoreWrapper}*/
 	private Collection<DataStoreWrapper> dataStoreWrappers;
+	
+	/** Wrappers of the data object and data store references by id in the {@link #graph}, used by {@link #wrapperFor(StatefulDataAssociation)}*/
+	private DataElementWrapper<?,?>[] referenceWrappers;
+	
+	/** Normalized names, state colors and creation code of this compilation, see {@link InscriptionCache}*/
+	private final InscriptionCache inscriptions = new InscriptionCache();
+	/** Association guard and write inscription by the read and written data objects of a transition, see {@link #associationInscriptions(Pair)}*/
+	private final Map<Pair<Set<DataObjectWrapper>, Set<DataObjectWrapper>>, Pair<Optional<String>, Optional<String>>> associationInscriptions = new ConcurrentHashMap<>();
+	
+	/** Elements of the {@link #bpmn} model by type, see {@link ModelElementIndex}*/
+	private ModelElementIndex elements;
+	/** Resolved data associations of the {@link #bpmn} model, see {@link DataAssociationIndex}*/
+	private DataAssociationIndex dataAssociations;
+	/** Array based representation of the {@link #bpmn} model that the translation passes work on, see {@link ProcessGraph}*/
+	private ProcessGraph graph;
+
+    /**
+     * Translation modes for data associations that allow multiple states, e.g. <code>A [X | Y]</code>
+     */
+    public enum StateEncoding {
+    	/** Each combination of states gets its own subpage transition*/
+    	EXPANDED,
+    	/** One subpage transition per combination of io-sets; the states are bound to variables that are restricted by guards, e.g. <code>AInState = X orelse AInState = Y</code>*/
+    	SYMBOLIC
+    }
 
     public static void main(final String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        String outputFile;
+        try {
+        	outputFile = removeOption(arguments, "--output");
+        } catch (IllegalArgumentException e) {
+        	exitWithUsageError(e.getMessage());
+        	return;
+        }
+        PrintStream standardOutput = System.out;
+        if("-".equals(outputFile)) {
+        	// The net is written to stdout, everything else to stderr
+        	System.setOut(System.err);
+        }
         System.out.println(licenseInfo);
+        if(arguments.remove("--batch")) {
+        	BatchCompiler.main(arguments.toArray(new String[0]));
+        	return;
+        }
+        if(arguments.remove("--daemon")) {
+        	CompilerDaemon.main(arguments.toArray(new String[0]));
+        	return;
+        }
+        if(arguments.remove("--watch")) {
+        	ModelWatcher.main(arguments.toArray(new String[0]));
+        	return;
+        }
+        StateEncoding stateEncoding = arguments.remove("--symbolic-states") ? StateEncoding.SYMBOLIC : StateEncoding.EXPANDED;
+        boolean parallelActivities = arguments.remove("--parallel-activities");
+        boolean streamingExport = arguments.remove("--streaming-export");
+        boolean parallelExport = arguments.remove("--parallel-export");
+        boolean streamingLoader = arguments.remove("--streaming-loader");
+        String reportFile, explainFile, cacheDirectory;
+        long cacheBytes;
+        try {
+        	reportFile = removeOption(arguments, "--report");
+        	explainFile = removeOption(arguments, "--explain");
+        	cacheDirectory = removeOption(arguments, "--cache");
+        	String cacheSize = removeOption(arguments, "--cache-size");
+        	cacheBytes = cacheSize == null ? CompilationCache.DEFAULT_MAX_BYTES : megabytes(cacheSize, "Cache size");
+        } catch (IllegalArgumentException e) {
+        	exitWithUsageError(e.getMessage());
+        	return;
+        }
         File bpmnFile;
-        if(args.length > 0) {
-        	bpmnFile = new File(args[0]);
+        if(arguments.size() > 0) {
+        	bpmnFile = new File(arguments.get(0));
         } else {
         	bpmnFile = getFile();
         }
         if (null == bpmnFile) {
             System.exit(0);
         }
-        BpmnModelInstance bpmn = loadBPMNFile(bpmnFile);
-        PetriNet petriNet = translateBPMN2CPN(bpmn);
+        // Reports need the compiler, so they are not available for cached nets
+        CompilationCache cache = cacheDirectory == null || reportFile != null || explainFile != null ? null : new CompilationCache(Paths.get(cacheDirectory), cacheBytes);
+        String cacheKey = null;
+        PetriNet petriNet = null;
+        if(cache != null) {
+        	System.out.print("Looking up net in cache... ");
+        	cacheKey = CompilationCache.key(Files.readAllBytes(bpmnFile.toPath()), stateEncoding);
+        	petriNet = cache.get(cacheKey);
+        	System.out.println(petriNet != null ? "FOUND" : "NOT FOUND");
+        }
+        CompilerApp compiler = null;
+        if(petriNet == null) {
+	        BpmnModelInstance bpmn = streamingLoader ? loadBPMNFileStreaming(bpmnFile) : loadBPMNFile(bpmnFile);
+	        compiler = new CompilerApp(bpmn, stateEncoding)
+	        		.setParallelActivities(parallelActivities)
+	        		.setAttribution(explainFile != null);
+	        try {
+	        	petriNet = compiler.translateBPMN2CPN();
+	        } catch (NetSizeLimitExceededException e) {
+	        	System.out.println("ABORTED");
+	        	System.err.println(e.getMessage());
+	        	System.exit(1);
+	        	return;
+	        }
+	        if(cache != null) cache.put(cacheKey, petriNet);
+        }
 		ModelPrinter.printModel(petriNet);
         System.out.print("Writing CPN file... ");
-        DOMGenerator.export(petriNet, "./"+bpmnFile.getName().replaceAll("\\.bpmn", "")+".cpn");
+        if(outputFile == null) outputFile = "./"+bpmnFile.getName().replaceAll("\\.bpmn", "")+".cpn";
+        OutputStream out = "-".equals(outputFile) ? standardOutput : StreamingNetExporter.openOutput(Paths.get(outputFile));
+        try {
+        	if(parallelExport) {
+        		streamPetriNet(petriNet, out, ForkJoinPool.commonPool());
+        	} else if(streamingExport) {
+        		streamPetriNet(petriNet, out);
+        	} else {
+        		exportPetriNet(petriNet, out);
+        	}
+        } finally {
+        	if(out == standardOutput) out.flush(); else out.close();
+        }
         System.out.println("DONE");
+        if(reportFile != null) {
+        	System.out.print("Writing compile report... ");
+        	Files.write(Paths.get(reportFile), compiler.getMetrics().toJson().getBytes(StandardCharsets.UTF_8));
+        	System.out.println("DONE");
+        }
+        if(explainFile != null) {
+        	System.out.print("Writing net size explanation... ");
+        	Files.write(Paths.get(explainFile), compiler.getAttribution().report().getBytes(StandardCharsets.UTF_8));
+        	System.out.println("DONE");
+        }
+    }
+    
+    /**
+     * Removes an option with value, e.g. <code>--report file.json</code>, from the arguments and returns its value; null if the option is not given
+     * @throws IllegalArgumentException if the option is the last argument
+     */
+    private static String removeOption(List<String> arguments, String option) {
+        int index = arguments.indexOf(option);
+        if(index < 0) return null;
+        if(index + 1 >= arguments.size()) throw new IllegalArgumentException("Missing value for option "+option);
+        String value = arguments.remove(index + 1);
+        arguments.remove(index);
+        return value;
+    }
+    
+    /**
+     * Converts a positive number of megabytes, as given for the option, to bytes
+     * @throws IllegalArgumentException if the value is not a positive number
+     */
+    static long megabytes(String value, String name) {
+        long megabytes;
+        try {
+        	megabytes = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+        	throw new IllegalArgumentException(name+" is not a number: "+value);
+        }
+        if(megabytes <= 0 || megabytes > Long.MAX_VALUE >> 20) throw new IllegalArgumentException(name+" must be a positive number of megabytes: "+value);
+        return megabytes << 20;
+    }
+    
+    private static void exitWithUsageError(String message) {
+        System.out.println(message);
+        System.out.println(USAGE);
+        System.exit(BatchCompiler.USAGE_ERROR);
     }
     
     public static PetriNet translateBPMN2CPN(BpmnModelInstance bpmn) {
-    	return new CompilerApp(bpmn).translateBPMN2CPN();
+    	return translateBPMN2CPN(bpmn, StateEncoding.EXPANDED);
+    }
+    
+    public static PetriNet translateBPMN2CPN(BpmnModelInstance bpmn, StateEncoding stateEncoding) {
+    	return new CompilerApp(bpmn, stateEncoding).translateBPMN2CPN();
+    }
+    
+    /**
+     * Translates a model read by the {@link StreamingBpmnLoader}
+     */
+    public static PetriNet translateBPMN2CPN(CompactBpmnModel bpmn, StateEncoding stateEncoding) {
+    	return translateBPMN2CPN(bpmn.toModelInstance(), stateEncoding);
+    }
+    
+    /**
+     * Translates a bpmn model like {@link #translateBPMN2CPN(BpmnModelInstance, StateEncoding)} and additionally reports the cost of the translation and the size of the net
+     */
+    public static CompilationResult compile(BpmnModelInstance bpmn, StateEncoding stateEncoding) {
+    	CompilerApp compiler = new CompilerApp(bpmn, stateEncoding);
+    	PetriNet petriNet = compiler.translateBPMN2CPN();
+    	return new CompilationResult(petriNet, compiler.getMetrics());
+    }
+
+    /**
+     * Writes a net to a cpn file. The exporter keeps global state while exporting, so concurrent calls are serialized.
+     */
+    public static void exportPetriNet(PetriNet petriNet, String fileName) throws FileNotFoundException, TransformerException, ParserConfigurationException, OperationNotSupportedException {
+    	CompilationEvents.Span span = CompilationEvents.phase("export");
+    	try {
+    		synchronized (DOMGenerator.class) {
+    			DOMGenerator.export(petriNet, fileName);
+    		}
+    	} finally {
+    		span.close();
+    	}
+    }
+    
+    /**
+     * Writes a net as cpn xml to a stream, see {@link #exportPetriNet(PetriNet, String)}
+     */
+    public static void exportPetriNet(PetriNet petriNet, OutputStream out) throws TransformerException, ParserConfigurationException, OperationNotSupportedException {
+    	CompilationEvents.Span span = CompilationEvents.phase("export");
+    	try {
+    		synchronized (DOMGenerator.class) {
+    			DOMGenerator.export(petriNet, out);
+    		}
+    	} finally {
+    		span.close();
+    	}
+    }
+
+    /**
+     * Writes a net as cpn xml to a stream with the {@link StreamingNetExporter}, which needs little memory besides the net and does not block concurrent exports
+     */
+    public static void streamPetriNet(PetriNet petriNet, OutputStream out) throws IOException, OperationNotSupportedException {
+    	streamPetriNet(petriNet, out, null);
+    }
+    
+    /**
+     * Writes a net as cpn xml to a stream like {@link #streamPetriNet(PetriNet, OutputStream)}, rendering its pages in parallel on the executor
+     */
+    public static void streamPetriNet(PetriNet petriNet, OutputStream out, Executor pageExecutor) throws IOException, OperationNotSupportedException {
+    	CompilationEvents.Span span = CompilationEvents.phase("export");
+    	try {
+    		StreamingNetExporter.export(petriNet, out, pageExecutor);
+    	} finally {
+    		span.close();
+    	}
     }
 
     private static File getFile() {
@@ -182,84 +440,181 @@ public class CompilerApp {
         return  null;
     }
 
-    private CompilerApp(BpmnModelInstance bpmn) {
+    CompilerApp(BpmnModelInstance bpmn) {
+    	this(bpmn, StateEncoding.EXPANDED);
+    }
+    
+    CompilerApp(BpmnModelInstance bpmn, StateEncoding stateEncoding) {
     	this.bpmn = bpmn;
+    	this.stateEncoding = stateEncoding;
         this.builder = new BuildCPNUtil();
-        this.subpages = new HashMap<>();
-        this.nodeMap = new HashMap<>();
         this.deferred = new ArrayList<>();
         this.dataModel = new DataModel();
         
-        this.associationReaders = new HashSet<>();
-        this.associationWriters = new HashSet<>();
+        this.associationReaders = new BitSet();
+        this.associationWriters = new BitSet();
 	}
     
+    CompilerApp setProgressOutput(PrintStream progressOutput) {
+    	this.progressOutput = progressOutput;
+    	return this;
+    }
+    
+    CompilerApp setParallelActivities(boolean parallelActivities) {
+    	this.parallelActivities = parallelActivities;
+    	return this;
+    }
+    
+    CompilerApp setNetSizeLimits(NetSizeLimits netSizeLimits) {
+    	this.netSizeLimits = netSizeLimits;
+    	return this;
+    }
+    
+    /**
+     * Enables recording which bpmn element and data association caused which subpage element, see {@link NetAttribution}
+     */
+    CompilerApp setAttribution(boolean enabled) {
+    	this.attribution = new NetAttribution(enabled);
+    	return this;
+    }
+    
+    NetAttribution getAttribution() {
+    	return attribution;
+    }
+    
+    /**
+     * Makes this an incremental compilation, in which activities that did not change are not planned again, see {@link IncrementalCompiler}
+     */
+    CompilerApp setIncrementalCompiler(IncrementalCompiler incrementalCompiler) {
+    	this.incrementalCompiler = incrementalCompiler;
+    	return this;
+    }
+    
+    StateEncoding getStateEncoding() {
+    	return stateEncoding;
+    }
+    
     private static BpmnModelInstance loadBPMNFile(File bpmnFile) {
         System.out.print("Load and parse BPMN file... ");
         BpmnModelInstance bpmn = Bpmn.readModelFromFile(bpmnFile);
         System.out.println("DONE");
         return bpmn;
     }
-
-    private PetriNet translateBPMN2CPN() {
-    	initializeCPNModel();
-    	System.out.print("Translating BPMN... ");
-        translateData();
-        translateActivities();
-        translateEvents();
-        translateGateways();
-        translateControlFlow();
-        runDeferredCalls();
-        layout();
+    
+    /**
+     * Loads only the translated elements of the file, see {@link StreamingBpmnLoader}
+     */
+    private static BpmnModelInstance loadBPMNFileStreaming(File bpmnFile) throws IOException {
+        System.out.print("Load and parse BPMN file (streaming)... ");
+        BpmnModelInstance bpmn = StreamingBpmnLoader.load(bpmnFile.toPath()).toModelInstance();
         System.out.println("DONE");
+        return bpmn;
+    }
+
+    PetriNet translateBPMN2CPN() {
+    	phase("estimateNetSize", this::estimateNetSize);
+    	phase("initializeCPNModel", this::initializeCPNModel);
+    	progressOutput.print("Translating BPMN... ");
+    	phase("translateData", this::translateData);
+    	phase("translateActivities", this::translateActivities);
+    	phase("translateEvents", this::translateEvents);
+    	phase("translateGateways", this::translateGateways);
+    	phase("translateControlFlow", this::translateControlFlow);
+    	phase("runDeferredCalls", this::runDeferredCalls);
+    	phase("layout", this::layout);
+        progressOutput.println("DONE");
+        metrics.countNet(petriNet);
         return petriNet;
     }
+    
+    /**
+     * Runs one phase of the translation, measures it and records it as flight recorder event
+     */
+    private void phase(String name, Runnable step) {
+    	checkInterrupted();
+    	CompilationEvents.Span span = CompilationEvents.phase(name);
+    	try {
+    		metrics.measure(name, step);
+    	} finally {
+    		span.close();
+    	}
+    }
+    
+    /**
+     * Predicts the size of the net from the bpmn model and checks it against the {@link #setNetSizeLimits(NetSizeLimits) limits}, before any net elements are created
+     * @throws NetSizeLimitExceededException if the net would be too large
+     */
+    void estimateNetSize() {
+    	buildProcessGraph();
+    	netSizeEstimate = new NetSizeEstimator(elements(), dataAssociations, stateEncoding).estimate();
+    	netSizeLimits.check(netSizeEstimate);
+    }
+    
+    /**
+     * Resolves the data associations and builds the {@link ProcessGraph} that all later passes use, together with the arrays indexed by its ids
+     */
+    private void buildProcessGraph() {
+    	dataAssociations = new DataAssociationIndex(elements());
+    	graph = new ProcessGraph(elements(), dataAssociations);
+    	nodes = new Node[graph.flowNodeCount()];
+    	subpages = new SubpageElement[graph.flowNodeCount()];
+    	referenceWrappers = new DataElementWrapper<?,?>[graph.dataReferenceCount()];
+    }
+    
+    private ModelElementIndex elements() {
+    	if(elements == null) elements = new ModelElementIndex(bpmn);
+    	return elements;
+    }
+    
+    NetSizeEstimate getNetSizeEstimate() {
+    	return netSizeEstimate;
+    }
+    
+    /**
+     * Aborts the translation if its thread was interrupted, e.g. because a {@link CompilerDaemon daemon} request timed out
+     */
+    private static void checkInterrupted() {
+    	if(Thread.currentThread().isInterrupted()) throw new CancellationException("Translation was interrupted");
+    }
+    
+    /** Metrics of the translation, complete after {@link #translateBPMN2CPN()} has finished*/
+    CompilationMetrics getMetrics() {
+    	return metrics;
+    }
 
-	private void initializeCPNModel() {
-        System.out.print("Initalizing CPN model... ");
+	void initializeCPNModel() {
+        progressOutput.print("Initalizing CPN model... ");
         petriNet = builder.createPetriNet();
         petriNet.setName(ModelFactory.INSTANCE.createName());
         petriNet.getName().setText("Compiled BPMN Model");
         mainPage = createPage("Main Page");
-        initializeDefaultColorSets();
-        initializeDefaultVariables();
-        System.out.println("DONE");
+        initializeDeclarations();
+        progressOutput.println("DONE");
     }
     
-    private void initializeDefaultColorSets() {
-        builder.declareStandardColors(petriNet);
-        builder.declareColorSet(petriNet, "CaseID", CpntypesFactory.INSTANCE.createCPNString());
-        builder.declareColorSet(petriNet, "DATA_STORE", CpntypesFactory.INSTANCE.createCPNString());
-        
-        CPNEnum cpnEnum = CpntypesFactory.INSTANCE.createCPNEnum();
-        Collection<DataState> dataStates = bpmn.getModelElementsByType(DataState.class);
-        dataStates.stream()
-        	.flatMap(state -> dataObjectStateToNetColors(state.getName()))
-            .forEach(cpnEnum::addValue);
-        if(!dataStates.isEmpty())builder.declareColorSet(petriNet, "STATE", cpnEnum);
-        
-        CPNRecord dataObject = CpntypesFactory.INSTANCE.createCPNRecord();
-        dataObject.addValue("id", "STRING");
-        dataObject.addValue(caseId(), "STRING");
-        if(!dataStates.isEmpty())dataObject.addValue("state", "STATE");
-        builder.declareColorSet(petriNet, "DATA_OBJECT", dataObject);
+    /**
+     * Copies the model independent color sets and variables from a {@link DeclarationTemplate} and adds the model dependent <code>STATE</code> color set
+     */
+    private void initializeDeclarations() {
+        Collection<DataState> dataStates = elements().getModelElementsByType(DataState.class);
+        DeclarationTemplate template = DeclarationTemplate.of(caseId(), !dataStates.isEmpty());
+        int stateIndex = petriNet.getLabel().size() + template.getStateIndex();
+        template.copyInto(petriNet);
         
-        CPNList association = CpntypesFactory.INSTANCE.createCPNList();
-        association.setSort("STRING");
-        builder.declareColorSet(petriNet, "ASSOCIATION", association);
-
-        CPNList listOfAssociation = CpntypesFactory.INSTANCE.createCPNList();
-        listOfAssociation.setSort("ASSOCIATION");
-        builder.declareColorSet(petriNet, "LIST_OF_ASSOCIATION", listOfAssociation);
-    }
-    
-    private void initializeDefaultVariables() {
-    	createVariable("count", "INT");
-    	createVariable(caseId(), "CaseID");
-    	createVariable("assoc", "LIST_OF_ASSOCIATION");
+        if(!dataStates.isEmpty()) {
+            CPNEnum cpnEnum = CpntypesFactory.INSTANCE.createCPNEnum();
+            dataStates.stream()
+            	.flatMap(state -> inscriptions.stateColors(state.getName()).stream())
+                .forEach(cpnEnum::addValue);
+            builder.declareColorSet(petriNet, "STATE", cpnEnum);
+            List<Label> labels = petriNet.getLabel();
+            labels.add(stateIndex, labels.remove(labels.size() - 1));
+        }
     }
     
-    private void translateData() {
+    void translateData() {
+    	// Usually already built for the estimate of the net size
+    	if(graph == null) buildProcessGraph();
         translateDataObjects();        
         translateDataStores();
         createAssociationPlace();
@@ -269,15 +624,18 @@ public class CompilerApp {
     private void translateDataObjects() {
         Map<String, DataObjectWrapper> dataObjectsNamesToWrappers = new HashMap<>();
 
-    	Collection<DataObject> dataObjects = bpmn.getModelElementsByType(DataObject.class);
+    	Collection<DataObject> dataObjects = elements().getModelElementsByType(DataObject.class);
         dataObjects.forEach(each -> dataObjectsNamesToWrappers
-        		.computeIfAbsent(normalizeElementName(each.getName()), normalizedName -> new DataObjectWrapper(this, normalizedName))
+        		.computeIfAbsent(inscriptions.normalizedName(each.getName()), normalizedName -> new DataObjectWrapper(this, normalizedName))
         		.addMappedElement(each));
         
-        Collection<DataObjectReference> dataObjectRefs = bpmn.getModelElementsByType(DataObjectReference.class);
-        dataObjectRefs.forEach(each -> dataObjectsNamesToWrappers
-        		.get(normalizeElementName(each.getDataObject().getName()))
-        		.addMappedReference(each));
+        for(int reference = 0; reference < graph.dataReferenceCount(); reference++) {
+        	if(!graph.isDataObjectReference(reference)) continue;
+        	DataObjectReference each = (DataObjectReference) graph.dataReference(reference);
+        	DataObjectWrapper wrapper = dataObjectsNamesToWrappers.get(inscriptions.normalizedName(each.getDataObject().getName()));
+        	wrapper.addMappedReference(each);
+        	referenceWrappers[reference] = wrapper;
+        }
         
         dataObjectWrappers = dataObjectsNamesToWrappers.values();
     }
@@ -285,14 +643,17 @@ public class CompilerApp {
     private void translateDataStores() {
         Map<String, DataStoreWrapper> dataStoreNamesToWrappers = new HashMap<>();
         
-        Collection<DataStore> dataStores = bpmn.getModelElementsByType(DataStore.class);
+        Collection<DataStore> dataStores = elements().getModelElementsByType(DataStore.class);
         dataStores.forEach(each -> dataStoreNamesToWrappers
-        		.computeIfAbsent(normalizeElementName(each.getName()), normalizedName -> new DataStoreWrapper(this, normalizedName))
+        		.computeIfAbsent(inscriptions.normalizedName(each.getName()), normalizedName -> new DataStoreWrapper(this, normalizedName))
         		.addMappedElement(each));
-        Collection<DataStoreReference> dataStoreRefs = bpmn.getModelElementsByType(DataStoreReference.class);
-        dataStoreRefs.forEach(each -> dataStoreNamesToWrappers
-        		.get(normalizeElementName(each.getDataStore().getName()))
-        		.addMappedReference(each));
+        for(int reference = 0; reference < graph.dataReferenceCount(); reference++) {
+        	if(graph.isDataObjectReference(reference)) continue;
+        	DataStoreReference each = (DataStoreReference) graph.dataReference(reference);
+        	DataStoreWrapper wrapper = dataStoreNamesToWrappers.get(inscriptions.normalizedName(each.getDataStore().getName()));
+        	wrapper.addMappedReference(each);
+        	referenceWrappers[reference] = wrapper;
+        }
         
         dataStoreWrappers = dataStoreNamesToWrappers.values();
     }
@@ -301,169 +662,262 @@ public class CompilerApp {
     	associationsPlace = createPlace("associations", "LIST_OF_ASSOCIATION", "[]");
     }
     
-    private void translateActivities() {
-        Collection<Activity> activities = bpmn.getModelElementsByType(Activity.class);
-        activities.forEach(activity -> {
-        	String name = activity.getName();
-        	Page activityPage = createPage(normalizeElementName(name));
+    /**
+     * Translates each activity into a subpage with one transition per transput set.<br>
+     * Neither the bpmn model nor the net can be accessed concurrently, so the transput sets are resolved first and the net is built afterwards, both in the order of the activities.
+     * In between, the transitions are {@link #planTransition(Pair) planned}; this runs in parallel (fork-join) if {@link #setParallelActivities(boolean) enabled}, and lazily while building otherwise.
+     * Both modes create the same net.<br>
+     * In {@link #setIncrementalCompiler(IncrementalCompiler) incremental compilations}, activities with the same fingerprint as in the previous compilation reuse its plans.
+     */
+    void translateActivities() {
+        int[] activities = graph.activities();
+        List<ActivityTransputSets> transputSets = Arrays.stream(activities)
+        		.mapToObj(activity -> resolveTransputSets((Activity) graph.flowNode(activity)))
+        		.collect(Collectors.toList());
+        // Fingerprints access the bpmn model, so they are computed before planning
+        List<String> fingerprints = incrementalCompiler == null ? null : transputSets.stream()
+        		.map(this::activityFingerprint)
+        		.collect(Collectors.toList());
+        if(parallelActivities) {
+        	List<List<TransitionPlan>> plans = IntStream.range(0, transputSets.size()).parallel()
+        			.mapToObj(i -> planActivity(transputSets.get(i), fingerprints == null ? null : fingerprints.get(i)).collect(Collectors.toList()))
+        			.collect(Collectors.toList());
+        	for(int i = 0; i < transputSets.size(); i++) {
+        		buildActivity(activities[i], transputSets.get(i), plans.get(i).iterator());
+        	}
+        } else {
+        	for(int i = 0; i < transputSets.size(); i++) {
+        		buildActivity(activities[i], transputSets.get(i), planActivity(transputSets.get(i), fingerprints == null ? null : fingerprints.get(i)).iterator());
+        	}
+        }
+    }
+    
+    /**
+     * Plans the subpage transitions of an activity, lazily unless this is an incremental compilation
+     */
+    private Stream<TransitionPlan> planActivity(ActivityTransputSets transputSets, String fingerprint) {
+    	if(incrementalCompiler == null) return transputSets.stream().map(this::planTransition);
+    	return incrementalCompiler.plans(transputSets, fingerprint, 
+    			() -> transputSets.stream().map(this::planTransition).collect(Collectors.toList()), 
+    			this::dataObjectWrapperNamed).stream();
+    }
+    
+    /**
+     * Everything the plans of an activity depend on: its name, its inputs and outputs with data element and state, and the structure of its io-specification.
+     * Control flow is not part of it, as the control flow arcs are always created anew.
+     */
+    String activityFingerprint(ActivityTransputSets transputSets) {
+    	Activity activity = transputSets.getActivity();
+    	StringBuilder fingerprint = new StringBuilder(String.valueOf(activity.getName())).append('\n');
+    	Stream.concat(transputSets.getInputs().stream(), Stream.of((StatefulDataAssociation<?>) null)).forEach(assoc -> fingerprint.append(fingerprint(assoc)).append(';'));
+    	Stream.concat(transputSets.getOutputs().stream(), Stream.of((StatefulDataAssociation<?>) null)).forEach(assoc -> fingerprint.append(fingerprint(assoc)).append(';'));
+    	if(activity.getIoSpecification() != null) {
+    		Map<DataInputAssociation, Integer> inputPositions = Utils.positionsIn(new ArrayList<>(activity.getDataInputAssociations()));
+    		Map<DataOutputAssociation, Integer> outputPositions = Utils.positionsIn(new ArrayList<>(activity.getDataOutputAssociations()));
+    		List<OutputSet> outputSets = new ArrayList<>(activity.getIoSpecification().getOutputSets());
+    		Map<OutputSet, Integer> outputSetPositions = Utils.positionsIn(outputSets);
+    		activity.getIoSpecification().getInputSets().forEach(inputSet -> fingerprint
+    				.append(inputSet.getDataInputs().stream().map(input -> inputPositions.getOrDefault(dataAssociations.getAssociation(input), -1)).collect(Collectors.toList()))
+    				.append("->")
+    				.append(inputSet.getOutputSets().stream().map(outputSet -> outputSetPositions.getOrDefault(outputSet, -1)).collect(Collectors.toList()))
+    				.append(';'));
+    		outputSets.forEach(outputSet -> fingerprint
+    				.append(outputSet.getDataOutputRefs().stream().map(output -> outputPositions.getOrDefault(dataAssociations.getAssociation(output), -1)).collect(Collectors.toList()))
+    				.append(';'));
+    	}
+    	return fingerprint.toString();
+    }
+    
+    private String fingerprint(StatefulDataAssociation<?> assoc) {
+    	if(assoc == null) return "|";
+    	DataElementWrapper<?,?> wrapper = wrapperFor(assoc);
+    	return (wrapper.isDataStoreWrapper() ? "store " : "object ")+wrapper.getNormalizedName()+"["+assoc.getStateName().orElse("")+"]"+assoc.stateGuard().orElse("");
+    }
+    
+    private DataObjectWrapper dataObjectWrapperNamed(String normalizedName) {
+    	return dataObjectWrappers.stream()
+    			.filter(wrapper -> wrapper.getNormalizedName().equals(normalizedName))
+    			.findAny()
+    			.orElseThrow(() -> new NoSuchElementException("No data object wrapper for "+normalizedName));
+    }
+    
+    private void buildActivity(int node, ActivityTransputSets transputSets, Iterator<TransitionPlan> plans) {
+    	checkInterrupted();
+    	Activity activity = transputSets.getActivity();
+    	String name = activity.getName();
+    	try(CompilationEvents.ActivitySpan span = CompilationEvents.activity(activity.getId(), name)) {
+        	Page activityPage = createPage(inscriptions.normalizedName(name));
             Instance mainPageTransition = createSubpageTransition(name, activityPage);
             SubpageElement subPage = new SubpageElement(this, activity.getId(), activityPage, mainPageTransition, new ArrayList<>());
             List<Transition> subpageTransitions = subPage.getSubpageTransitions();
-            subpages.putIfAbsent(activity, subPage);
-            nodeMap.put(activity, mainPageTransition);
-            
-            // All possible combinations of input and output sets, either defined by io-specification or *all* possible combinations are used
-            List<Pair<InputSetWrapper, OutputSetWrapper>> transputSets = transputSets(activity);
-            
-            
-            if(transputSets.isEmpty()) {
-                // All read data elements with all states in that they are read
-                Map<DataElementWrapper<?,?>, List<StatefulDataAssociation<DataInputAssociation>>> inputsPerObject = activity.getDataInputAssociations().stream()
-                		.flatMap(this::splitDataAssociationByState)
-                		.collect(Collectors.groupingBy(this::wrapperFor));
-
-                // All written data elements with all states in that they are written
-                Map<DataElementWrapper<?,?>, List<StatefulDataAssociation<DataOutputAssociation>>> outputsPerObject = activity.getDataOutputAssociations().stream()
-                		.flatMap(this::splitDataAssociationByState)
-                		.collect(Collectors.groupingBy(this::wrapperFor));
-                List<InputSetWrapper> inputSets = allCombinationsOf(inputsPerObject.values()).stream().map(InputSetWrapper::new).collect(Collectors.toList());
-                List<OutputSetWrapper> outputSets = allCombinationsOf(outputsPerObject.values()).stream().map(OutputSetWrapper::new).collect(Collectors.toList());
-            	for (InputSetWrapper inputSet : inputSets) {
-                	for (OutputSetWrapper outputSet : outputSets) {
-                		transputSets.add(new Pair<>(inputSet, outputSet));
-                	}
-                }
-            }
+            subpages[node] = subPage;
+            nodes[node] = mainPageTransition;
 
-            Map<StatefulDataAssociation<DataOutputAssociation>, List<Transition>> outputtingTransitions = activity.getDataOutputAssociations().stream()
-            		.flatMap(this::splitDataAssociationByState)
-            		.collect(Collectors.toMap(Function.identity(), x -> new ArrayList<>()));
-            Map<StatefulDataAssociation<DataInputAssociation>, List<Transition>> inputtingTransitions = activity.getDataInputAssociations().stream()
-            		.flatMap(this::splitDataAssociationByState)
-            		.collect(Collectors.toMap(Function.identity(), x -> new ArrayList<>()));
-            
+            // Linked maps, so that the arcs are created in the same order for equal models
+            Map<StatefulDataAssociation<DataOutputAssociation>, List<Transition>> outputtingTransitions = new LinkedHashMap<>();
+            transputSets.getOutputs().forEach(output -> outputtingTransitions.put(output, new ArrayList<>()));
+            Map<StatefulDataAssociation<DataInputAssociation>, List<Transition>> inputtingTransitions = new LinkedHashMap<>();
+            transputSets.getInputs().forEach(input -> inputtingTransitions.put(input, new ArrayList<>()));
+        
             int transputSetIndex = 0;
-            for (Pair<InputSetWrapper, OutputSetWrapper> transputSet : transputSets) {
-                InputSetWrapper inputSet = transputSet.first;
-                OutputSetWrapper outputSet = transputSet.second;
-
-                Set<DataObjectWrapper> readObjects = inputSet.stream()
-                		.map(this::wrapperFor)
-                        .filter(DataElementWrapper::isDataObjectWrapper)
-                        .map(DataObjectWrapper.class::cast)
-                        .collect(Collectors.toSet());
-                Set<DataObjectWrapper> writtenObjects = outputSet.stream()
-                		.map(this::wrapperFor)
-                        .filter(DataElementWrapper::isDataObjectWrapper)
-                        .map(DataObjectWrapper.class::cast)
-                        .collect(Collectors.toSet());
-                Set<DataObjectWrapper> createdObjects = writtenObjects.stream()
-                        .filter(object -> !readObjects.contains(object))
-                        .collect(Collectors.toSet());
-
+            while (plans.hasNext()) {
+            	TransitionPlan plan = plans.next();
                 Transition subpageTransition = builder.addTransition(activityPage, name + "_" + transputSetIndex);
                 subpageTransitions.add(subpageTransition);
-                attachObjectCreationCounters(subpageTransition, createdObjects);
-                
-                associateDataObjects(activity, subpageTransition, readObjects, writtenObjects);
-            	
-                inputSet.forEach(input -> inputtingTransitions.get(input).add(subpageTransition));
-                outputSet.forEach(output -> outputtingTransitions.get(output).add(subpageTransition));
-                
+                attribution.transition(subpageTransition, "transput set "+transputSetIndex, Stream.concat(plan.getInputSet().stream(), plan.getOutputSet().stream()).collect(Collectors.toList()));
+                attachObjectCreationCounters(subpageTransition, plan);
+                associateDataObjects(node, subpageTransition, plan);
+                plan.getGuard().ifPresent(subpageTransition.getCondition()::setText);
+        	
+                plan.getInputSet().forEach(input -> inputtingTransitions.get(input).add(subpageTransition));
+                plan.getOutputSet().forEach(output -> outputtingTransitions.get(output).add(subpageTransition));
+            
                 transputSetIndex++;
             }
-            createDataAssociationArcs(activity, outputtingTransitions, inputtingTransitions);
-            
-        });
+            metrics.addTransputSets(activity.getId(), transputSetIndex);
+            createDataAssociationArcs(node, outputtingTransitions, inputtingTransitions);
+            span.setSizes(transputSetIndex, activityPage.getArc().size());
+        }
+    }
+    
+    /**
+     * Computes the contents of the subpage transition for one transput set; does neither access the bpmn model nor modify the net
+     */
+    private TransitionPlan planTransition(Pair<InputSetWrapper, OutputSetWrapper> transputSet) {
+        InputSetWrapper inputSet = transputSet.first;
+        OutputSetWrapper outputSet = transputSet.second;
+
+        Set<DataObjectWrapper> readObjects = inputSet.stream()
+        		.map(this::wrapperFor)
+                .filter(DataElementWrapper::isDataObjectWrapper)
+                .map(DataObjectWrapper.class::cast)
+                .collect(Collectors.toSet());
+        Set<DataObjectWrapper> writtenObjects = outputSet.stream()
+        		.map(this::wrapperFor)
+                .filter(DataElementWrapper::isDataObjectWrapper)
+                .map(DataObjectWrapper.class::cast)
+                .collect(Collectors.toSet());
+        List<DataObjectWrapper> createdObjects = writtenObjects.stream()
+                .filter(object -> !readObjects.contains(object))
+                .sorted(Comparator.comparing(DataObjectWrapper::getNormalizedName))
+                .collect(Collectors.toList());
+        
+        // Transitions of the same activity often differ only in states, so they share the association inscriptions
+        Pair<Optional<String>, Optional<String>> associations = associationInscriptions.computeIfAbsent(new Pair<>(readObjects, writtenObjects), this::associationInscriptions);
+        Optional<String> associationWriteAnnotation = associations.second;
+        
+        List<String> guards = new ArrayList<>();
+        associations.first.ifPresent(guards::add);
+        guards.addAll(stateGuards(Stream.concat(inputSet.stream(), outputSet.stream())));
+        Optional<String> guard = guards.isEmpty() ? Optional.empty() : Optional.of(String.join("\nandalso ", guards));
+        
+        return new TransitionPlan(inputSet, outputSet, createdObjects, inscriptions.creationCode(createdObjects), associationWriteAnnotation, guard);
+    }
+    
+    /**
+     * Resolves the transput sets of an activity: either defined by io-specification or *all* possible combinations of read and written data elements
+     */
+    private ActivityTransputSets resolveTransputSets(Activity activity) {
+        ActivityTransputSets transputSets = new ActivityTransputSets(activity,
+        		activity.getDataInputAssociations().stream().flatMap(this::splitDataAssociationByState).collect(Collectors.toList()),
+        		activity.getDataOutputAssociations().stream().flatMap(this::splitDataAssociationByState).collect(Collectors.toList()));
+        addSpecifiedTransputSets(activity, transputSets);
+        if(transputSets.isEmpty()) {
+        	addAllTransputSets(transputSets);
+        }
+        return transputSets;
+    }
+    
+    /**
+     * All combinations of read and written data elements in all their states; used if an activity has no io-specification
+     */
+    private void addAllTransputSets(ActivityTransputSets transputSets) {
+        // All read data elements with all states in that they are read
+        Map<DataElementWrapper<?,?>, List<StatefulDataAssociation<DataInputAssociation>>> inputsPerObject = transputSets.getInputs().stream()
+        		.collect(Collectors.groupingBy(this::wrapperFor, LinkedHashMap::new, Collectors.toList()));
+
+        // All written data elements with all states in that they are written
+        Map<DataElementWrapper<?,?>, List<StatefulDataAssociation<DataOutputAssociation>>> outputsPerObject = transputSets.getOutputs().stream()
+        		.collect(Collectors.groupingBy(this::wrapperFor, LinkedHashMap::new, Collectors.toList()));
+        transputSets.addProduct(combinationsOf(inputsPerObject.values()), combinationsOf(outputsPerObject.values()), Collections.emptyList(), Collections.emptyList(), false);
+    }
+    
+    /**
+     * Each combination of an input or output set becomes at least one subpage transition, so products are bounded by the {@link NetSizeLimits#getMaxTransitionsPerActivity() transitions per activity} of this compiler
+     */
+    private <T> CartesianProduct<T> combinationsOf(Collection<List<T>> sets) {
+    	return new CartesianProduct<>(sets, netSizeLimits.getMaxTransitionsPerActivity());
     }
     
-    private List<Pair<InputSetWrapper, OutputSetWrapper>> transputSets(Activity activity) {
-        List<Pair<InputSetWrapper, OutputSetWrapper>> transputSets = new ArrayList<>();
-        if(activity.getIoSpecification() == null) return transputSets;
+    /**
+     * Combinations of input and output sets as defined by the io-specification of an activity, none if there is no io-specification
+     */
+    private void addSpecifiedTransputSets(Activity activity, ActivityTransputSets transputSets) {
+        if(activity.getIoSpecification() == null) return;
         
         // Output sets mapped to data assocs and split by "|" state shortcuts
-    	Map<OutputSet, List<OutputSetWrapper>> translatedOutputSets = activity.getIoSpecification().getOutputSets().stream().collect(Collectors.toMap(Function.identity(), outputSet -> {
+    	Map<OutputSet, CartesianProduct<StatefulDataAssociation<DataOutputAssociation>>> translatedOutputSets = activity.getIoSpecification().getOutputSets().stream().collect(Collectors.toMap(Function.identity(), outputSet -> {
             Map<DataElementWrapper<?,?>, List<StatefulDataAssociation<DataOutputAssociation>>> outputsPerObject = outputSet.getDataOutputRefs().stream()
-            		.map(Utils::getAssociation)
+            		.map(dataAssociations::getAssociation)
             		.flatMap(this::splitDataAssociationByState)
-            		.collect(Collectors.groupingBy(this::wrapperFor));
-            return allCombinationsOf(outputsPerObject.values()).stream().map(OutputSetWrapper::new).collect(Collectors.toList());
+            		.collect(Collectors.groupingBy(this::wrapperFor, LinkedHashMap::new, Collectors.toList()));
+            return combinationsOf(outputsPerObject.values());
         }));
-    	
-        activity.getIoSpecification().getInputSets().forEach(inputSet -> {
-            Map<DataElementWrapper<?,?>, List<StatefulDataAssociation<DataInputAssociation>>> inputsPerObject = inputSet.getDataInputs().stream()
-            		.map(Utils::getAssociation)
-            		.flatMap(this::splitDataAssociationByState)
-            		.collect(Collectors.groupingBy(this::wrapperFor));
-            List<InputSetWrapper> translatedInputSets = allCombinationsOf(inputsPerObject.values()).stream().map(InputSetWrapper::new).collect(Collectors.toList());
-            for(OutputSet outputSet : inputSet.getOutputSets()) {
-            	for(OutputSetWrapper translatedOutputSet : translatedOutputSets.get(outputSet)) {
-                	for(InputSetWrapper translatedInputSet : translatedInputSets) {
-                		transputSets.add(new Pair<>(translatedInputSet, translatedOutputSet));
-                	}
-            	}
-            }
-        });
         
         //Data Stores are (at least in Signavio) not part of input or output sets
         List<StatefulDataAssociation<DataInputAssociation>> dataStoreInputs = activity.getDataInputAssociations().stream()
-			   .filter(assoc -> getSource(assoc) instanceof DataStoreReference)
+			   .filter(assoc -> dataAssociations.getSource(assoc) instanceof DataStoreReference)
 			   .flatMap(this::splitDataAssociationByState)
 			   .collect(Collectors.toList());
 
         List<StatefulDataAssociation<DataOutputAssociation>> dataStoreOutputs = activity.getDataOutputAssociations().stream()
- 			   .filter(assoc -> getTarget(assoc) instanceof DataStoreReference)
+ 			   .filter(assoc -> dataAssociations.getTarget(assoc) instanceof DataStoreReference)
  			   .flatMap(this::splitDataAssociationByState)
  			   .collect(Collectors.toList());
-        
-        for(Pair<InputSetWrapper, OutputSetWrapper> transputSet : transputSets) {
-        	transputSet.first.addAll(dataStoreInputs);
-        	transputSet.second.addAll(dataStoreOutputs);
-        }
-    
-    	return transputSets;
+    	
+        activity.getIoSpecification().getInputSets().forEach(inputSet -> {
+            Map<DataElementWrapper<?,?>, List<StatefulDataAssociation<DataInputAssociation>>> inputsPerObject = inputSet.getDataInputs().stream()
+            		.map(dataAssociations::getAssociation)
+            		.flatMap(this::splitDataAssociationByState)
+            		.collect(Collectors.groupingBy(this::wrapperFor, LinkedHashMap::new, Collectors.toList()));
+            CartesianProduct<StatefulDataAssociation<DataInputAssociation>> translatedInputSets = combinationsOf(inputsPerObject.values());
+            inputSet.getOutputSets().forEach(outputSet -> 
+            	transputSets.addProduct(translatedInputSets, translatedOutputSets.get(outputSet), dataStoreInputs, dataStoreOutputs, true));
+        });
     }
-
-	private void attachObjectCreationCounters(Transition transition, Set<DataObjectWrapper> createObjects) {
-		if(createObjects.isEmpty()) return;
-        String countVariables = createObjects.stream().map(DataObjectWrapper::dataElementCount).collect(Collectors.joining(",\n"));
-        String idVariables = createObjects.stream().map(DataObjectWrapper::dataElementId).collect(Collectors.joining(",\n"));
-        String idGeneration = createObjects.stream().map(object -> "String.concat[\"" + object.namePrefix() + "\", Int.toString(" + object.dataElementCount() +")]").collect(Collectors.joining(",\n"));
+    
+	private void attachObjectCreationCounters(Transition transition, TransitionPlan plan) {
+		if(!plan.getCreationCode().isPresent()) return;
         Page page = transition.getPage();
-        transition.getCode().setText(String.format(
-                "input (%s);\n"
-                        + "output (%s);\n"
-                        + "action (%s);",
-                countVariables,
-                idVariables,
-                idGeneration));
-        createObjects.forEach(object -> {
+        transition.getCode().setText(plan.getCreationCode().get());
+        plan.getCreatedObjects().forEach(object -> {
             PlaceNode caseTokenPlace = object.creationCounterForPage(page);
-            builder.addArc(page, caseTokenPlace, transition, object.dataElementCount());
-            builder.addArc(page, transition, caseTokenPlace, object.dataElementCount() + "+ 1");
+            String cause = object.creationCounterCause();
+            attribution.arc(builder.addArc(page, caseTokenPlace, transition, object.dataElementCount()), cause, null);
+            attribution.arc(builder.addArc(page, transition, caseTokenPlace, object.incrementedDataElementCount()), cause, null);
         });
     }
     
-    private void translateEvents() {
+    void translateEvents() {
     	translateStartEvents();
     	translateEndEvents();
     	translateBoundaryEvents();
     }
 
 	private void translateStartEvents() {
-        Collection<StartEvent> events = bpmn.getModelElementsByType(StartEvent.class);
-        events.forEach(each -> {
+        for(int node : graph.startEvents()) {
+        	StartEvent each = (StartEvent) graph.flowNode(node);
         	String name = elementName(each);
-        	Page eventPage = createPage(normalizeElementName(name));
+        	Page eventPage = createPage(inscriptions.normalizedName(name));
         	Transition subpageTransition = builder.addTransition(eventPage, name);
             Instance mainPageTransition = createSubpageTransition(name, eventPage);
-        	nodeMap.put(each, mainPageTransition);
+        	nodes[node] = mainPageTransition;
             SubpageElement subPage = new SubpageElement(this, each.getId(), eventPage, mainPageTransition, Arrays.asList(subpageTransition));
-            subpages.put(each, subPage);
+            subpages[node] = subPage;
             
             Place caseTokenPlace = createPlace(eventPage, "Case Count", "INT", "1`0");
-            builder.addArc(eventPage, caseTokenPlace, subpageTransition, "count");
-            builder.addArc(eventPage, subpageTransition, caseTokenPlace, "count + 1");
+            attribution.arc(builder.addArc(eventPage, caseTokenPlace, subpageTransition, "count"), "case counter", null);
+            attribution.arc(builder.addArc(eventPage, subpageTransition, caseTokenPlace, "count + 1"), "case counter", null);
 
             
             List<StatefulDataAssociation<DataOutputAssociation>> outputs = each.getDataOutputAssociations().stream()
@@ -491,68 +945,93 @@ public class CompilerApp {
                 idVariables,
                 idGeneration));
             
-            Map<StatefulDataAssociation<DataOutputAssociation>, List<Transition>> outputTransitions = new HashMap<>();
+            addStateGuards(subpageTransition, outputs.stream());
+            
+            Map<StatefulDataAssociation<DataOutputAssociation>, List<Transition>> outputTransitions = new LinkedHashMap<>();
             outputs.forEach(assoc -> outputTransitions.put(assoc, Arrays.asList(subpageTransition)));
-        	createDataAssociationArcs(each, outputTransitions, Collections.emptyMap());
-        });
+        	createDataAssociationArcs(node, outputTransitions, Collections.emptyMap());
+        }
     }
     
     private void translateEndEvents() {
-        Collection<EndEvent> events = bpmn.getModelElementsByType(EndEvent.class);
-        events.forEach(each -> {
-        	nodeMap.put(each, createPlace(elementName(each), "CaseID"));
-        });
+        for(int node : graph.endEvents()) {
+        	nodes[node] = createPlace(elementName(graph.flowNode(node)), "CaseID");
+        }
     }
 
     
     private void translateBoundaryEvents() {
     	//TODO only interrupting is supported
     	
-    	Collection<BoundaryEvent> events = bpmn.getModelElementsByType(BoundaryEvent.class);
-        events.forEach(each -> {
+        for(int node : graph.boundaryEvents()) {
+        	BoundaryEvent each = (BoundaryEvent) graph.flowNode(node);
         	//Must be called before control flow arcs and places are created, because it needs to have the outgoing control flow created
             String name = elementName(each);
-        	Page eventPage = createPage(normalizeElementName(name));
+        	Page eventPage = createPage(inscriptions.normalizedName(name));
         	Transition subpageTransition = builder.addTransition(eventPage, name);
             Instance mainPageTransition = createSubpageTransition(name, eventPage);
             SubpageElement subPage = new SubpageElement(this, each.getId(), eventPage, mainPageTransition, Arrays.asList(subpageTransition));
-            subpages.put(each, subPage);
-        	nodeMap.put(each, mainPageTransition);
+            subpages[node] = subPage;
+        	nodes[node] = mainPageTransition;
 
 		    //Must be called after control flow places are created, to know which will be there and which to consume
         	defer(() -> {
-    			Node attachedNode = nodeFor(each.getAttachedTo());
+    			Node attachedNode = nodes[graph.attachedTo(node)];
     			assert !isPlace(attachedNode);
     			attachedNode.getTargetArc().stream()
     				.map(arc -> arc.getPlaceNode())
     				.filter(place -> place.getSort().getText().equals("CaseID"))
     				.forEach(place -> {
-    					builder.addArc(eventPage, subPage.refPlaceFor((Place) place), subpageTransition, caseId());
+    					attribution.arc(builder.addArc(eventPage, subPage.refPlaceFor((Place) place), subpageTransition, caseId()), "interrupted control flow", null);
     					builder.addArc(mainPage, place, mainPageTransition, "");
     				});
         	});
-        });
+        }
 	}
     
     private <T extends DataAssociation> Stream<StatefulDataAssociation<T>> splitDataAssociationByState(T assoc) {
-    	BaseElement source = getSource(assoc);
-    	BaseElement target = getTarget(assoc);
-        ItemAwareElement dataElement = (ItemAwareElement) (source instanceof DataObjectReference || source instanceof DataStoreReference ? source : target);
-        assert dataElement != null;
-    	Stream<String> possibleStates = Optional.ofNullable(dataElement.getDataState())
+        int reference = graph.dataReferenceOf(graph.associationId(assoc));
+        if(reference == ProcessGraph.NONE) throw new NoSuchElementException("No data element for data association "+assoc.getId());
+        ItemAwareElement dataElement = graph.dataReference(reference);
+    	List<String> possibleStates = Optional.ofNullable(dataElement.getDataState())
         		.map(DataState::getName)
-        		.map(stateName -> dataObjectStateToNetColors(stateName))
-        		.orElse(Stream.of((String)null));
-        return possibleStates.map(state -> new StatefulDataAssociation<>(assoc, state, dataElement));
+        		.map(inscriptions::stateColors)
+        		.orElse(Collections.singletonList(null));
+    	if(stateEncoding == StateEncoding.SYMBOLIC && possibleStates.size() > 1 && dataElement instanceof DataObjectReference) {
+    		DataObjectWrapper dataObject = (DataObjectWrapper) referenceWrappers[reference];
+    		String stateVariable = assoc instanceof DataInputAssociation ? dataObject.inputStateVariable() : dataObject.outputStateVariable();
+    		return Stream.of(StatefulDataAssociation.withStateVariable(assoc, stateVariable, possibleStates, dataElement, reference));
+    	}
+        return possibleStates.stream().map(state -> new StatefulDataAssociation<>(assoc, state, dataElement, reference));
+    }
+    
+    /**
+     * Restricts the state variables of {@link StateEncoding#SYMBOLIC symbolic} data associations to their possible states; keeps existing guards
+     */
+    private void addStateGuards(Transition transition, Stream<? extends StatefulDataAssociation<?>> associations) {
+    	List<String> guards = stateGuards(associations);
+    	if(guards.isEmpty()) return;
+    	String existingGuard = transition.getCondition().getText();
+    	if(existingGuard != null && !existingGuard.isEmpty()) guards.add(0, existingGuard);
+    	transition.getCondition().setText(String.join("\nandalso ", guards));
+    }
+    
+    private static List<String> stateGuards(Stream<? extends StatefulDataAssociation<?>> associations) {
+    	return associations
+    			.map(StatefulDataAssociation::stateGuard)
+    			.flatMap(Optional::stream)
+    			.distinct()
+    			.sorted()
+    			.collect(Collectors.toList());
     }
     
     /**
      * Creates arcs for all data associations of one element, for all transitions of that element
-     * @param element: The element that writes or reads, usually an activity or event
+     * @param node: Id of the flow node that writes or reads, usually an activity or event
      * @param outputs: For each stateful data assoc: Which (inputset x outputset)-Transitions write this data object in this state
      * @param inputs: For each stateful data assoc: Which (inputset x outputset)-Transitions read this data object in this state
      */
-    private void createDataAssociationArcs(BaseElement element, Map<StatefulDataAssociation<DataOutputAssociation>, List<Transition>> outputs, Map<StatefulDataAssociation<DataInputAssociation>, List<Transition>> inputs) {
+    private void createDataAssociationArcs(int node, Map<StatefulDataAssociation<DataOutputAssociation>, List<Transition>> outputs, Map<StatefulDataAssociation<DataInputAssociation>, List<Transition>> inputs) {
     	Set<DataElementWrapper<?,?>> readElements = inputs.keySet().stream().map(this::wrapperFor).collect(Collectors.toSet());
     	Set<DataElementWrapper<?,?>> writtenElements = outputs.keySet().stream().map(this::wrapperFor).collect(Collectors.toSet());
     	
@@ -560,10 +1039,10 @@ public class CompilerApp {
         outputs.forEach((assoc, transitions) -> {
         	DataElementWrapper<?,?> dataElement = wrapperFor(assoc);
         	String annotation = dataElement.annotationForDataFlow(assoc.getStateName());
-        	linkWritingTransitions(element, dataElement, annotation, transitions);
+        	linkWritingTransitions(node, assoc, dataElement, annotation, transitions, "write");
     		/**Assert that when writing a data store and not reading, the token read before*/
         	if(!readElements.contains(dataElement) && dataElement.isDataStoreWrapper()) {
-        		linkReadingTransitions(element, dataElement, annotation, transitions);
+        		linkReadingTransitions(node, assoc, dataElement, annotation, transitions, "read before write");
             	readElements.add(dataElement);
         	}
         });
@@ -571,39 +1050,80 @@ public class CompilerApp {
         inputs.forEach((assoc, transitions) -> {
         	DataElementWrapper<?,?> dataElement = wrapperFor(assoc);
             String annotation = dataElement.annotationForDataFlow(assoc.getStateName());
-    		linkReadingTransitions(element, dataElement, annotation, transitions);
+    		linkReadingTransitions(node, assoc, dataElement, annotation, transitions, "read");
 
     		/**Assert that when reading and not writing, the unchanged token is put back*/
     		List<Transition> readOnlyTransitions = transitions.stream()
     				.filter(transition -> outputs.entrySet().stream().noneMatch(entry -> wrapperFor(entry.getKey()).equals(dataElement) && entry.getValue().contains(transition)))
     				.collect(Collectors.toList());
-    		linkWritingTransitions(element, dataElement, annotation, readOnlyTransitions);
+    		linkWritingTransitions(node, assoc, dataElement, annotation, readOnlyTransitions, "write back");
         });
     }
     
-    private void linkWritingTransitions(BaseElement element, DataElementWrapper<?,?> dataElement, String annotation, List<Transition> transitions) {
-    	SubpageElement subPage = subpages.get(element);
-    	dataElement.assertMainPageArcFrom(element);
+    private void linkWritingTransitions(int node, StatefulDataAssociation<?> assoc, DataElementWrapper<?,?> dataElement, String annotation, List<Transition> transitions, String cause) {
+    	SubpageElement subPage = subpages[node];
+    	dataElement.assertMainPageArcFrom(graph.flowNode(node));
     	transitions.forEach(subPageTransition -> {
-    		builder.addArc(subPageTransition.getPage(), subPageTransition, subPage.refPlaceFor(dataElement.place), annotation);
+    		Arc arc = builder.addArc(subPageTransition.getPage(), subPageTransition, subPage.refPlaceFor(dataElement.place), annotation);
+    		attribution.arc(arc, cause, assoc);
     	});
     }    
     
-    private void linkReadingTransitions(BaseElement element, DataElementWrapper<?,?> dataElement, String annotation, List<Transition> transitions) {
-    	SubpageElement subPage = subpages.get(element);
-    	dataElement.assertMainPageArcTo(element);
+    private void linkReadingTransitions(int node, StatefulDataAssociation<?> assoc, DataElementWrapper<?,?> dataElement, String annotation, List<Transition> transitions, String cause) {
+    	SubpageElement subPage = subpages[node];
+    	dataElement.assertMainPageArcTo(graph.flowNode(node));
     	transitions.forEach(subPageTransition -> {
-    		builder.addArc(subPageTransition.getPage(), subPage.refPlaceFor(dataElement.place), subPageTransition, annotation);
+    		Arc arc = builder.addArc(subPageTransition.getPage(), subPage.refPlaceFor(dataElement.place), subPageTransition, annotation);
+    		attribution.arc(arc, cause, assoc);
     	});
     }
     
 
     
-    private void associateDataObjects(Activity activity, Transition transition, Set<DataObjectWrapper> readDataObjects, Set<DataObjectWrapper> writtenDataObjects) {
-    	SubpageElement activityWrapper = subpages.get(activity);
-		Set<Set<DataObjectWrapper>> associationsToWrite = new HashSet<>();
+    private void associateDataObjects(int activity, Transition transition, TransitionPlan plan) {
+		//If either new assocs are created or old assocs are checked, we need arcs from and to the assoc place
+		if(!plan.getAssociationWriteAnnotation().isPresent()) return;
+    	SubpageElement activityWrapper = subpages[activity];
 		
+		// Create reading arcs
+		String readAnnotation = "assoc";
+		attribution.arc(activityWrapper.createArcFrom(associationsPlace, transition, readAnnotation), "associations", null);
+		if(!associationReaders.get(activity)) {
+			createArc(associationsPlace, nodes[activity]);
+			associationReaders.set(activity);
+		}
 		
+		//Create write back arcs; if new assocs are create, write the union back; if assocs are checked, they already exist
+		attribution.arc(activityWrapper.createArcTo(associationsPlace, transition, plan.getAssociationWriteAnnotation().get()), "associations", null);
+		if(!associationWriters.get(activity)) {
+			createArc(nodes[activity], associationsPlace);
+			associationWriters.set(activity);
+		}
+    }
+    
+    /**
+     * Association guard and write inscription of a transition that reads and writes the given data objects
+     * @return the <code>contains assoc [...]</code> guard, empty if no associations are checked, and the inscription for writing back the associations place, empty if it is not accessed
+     */
+    private Pair<Optional<String>, Optional<String>> associationInscriptions(Pair<Set<DataObjectWrapper>, Set<DataObjectWrapper>> readAndWrittenObjects) {
+        Set<Set<DataObjectWrapper>> checkedAssociations = associationsToCheck(readAndWrittenObjects.first);
+        Set<Set<DataObjectWrapper>> createdAssociations = associationsToWrite(readAndWrittenObjects.first, readAndWrittenObjects.second);
+        
+        //If either new assocs are created or old assocs are checked, the assoc place is read and written back; if new assocs are created, the union is written back
+        Optional<String> associationWriteAnnotation = Optional.empty();
+        if(!checkedAssociations.isEmpty() || !createdAssociations.isEmpty()) {
+        	createdAssociations.removeAll(checkedAssociations);
+        	associationWriteAnnotation = Optional.of(createdAssociations.isEmpty() ? "assoc" : "union assoc "+associationList(createdAssociations));
+        }
+        Optional<String> associationGuard = checkedAssociations.isEmpty() ? Optional.empty() : Optional.of("contains assoc "+associationList(checkedAssociations));
+        return new Pair<>(associationGuard, associationWriteAnnotation);
+    }
+    
+    /**
+     * Associations that are created by writing data objects, i.e. between each written object and all other read or written objects it is associated with
+     */
+    private Set<Set<DataObjectWrapper>> associationsToWrite(Set<DataObjectWrapper> readDataObjects, Set<DataObjectWrapper> writtenDataObjects) {
+		Set<Set<DataObjectWrapper>> associationsToWrite = new HashSet<>();
 		for(DataObjectWrapper writtenObject : writtenDataObjects) {
 			for(DataObjectWrapper readObject : readDataObjects) {
 				if(!writtenObject.equals(readObject) && dataModel.isAssociated(writtenObject.getNormalizedName(), readObject.getNormalizedName())) {
@@ -616,42 +1136,14 @@ public class CompilerApp {
 				}
 			}
 		}
-		Set<Set<DataObjectWrapper>> checkedAssociations = checkAssociationsOfReadDataObjects(transition, readDataObjects);
-		//Write all read associations back (they are not consumed), but check for duplicates with created associations (therefore use set of assoc)
-		Set<Set<DataObjectWrapper>> allAssocations = new HashSet<>();
-		allAssocations.addAll(checkedAssociations);
-		allAssocations.addAll(associationsToWrite);
-		
-		//If either new assocs are created or old assocs are checked, we need arcs from and to the assoc place
-		if(!allAssocations.isEmpty()) {
-			// Create reading arcs
-			String readAnnotation = "assoc";
-			activityWrapper.createArcFrom(associationsPlace, transition, readAnnotation);
-			if(!associationReaders.contains(activity)) {
-				createArc(associationsPlace, nodeFor(activity));
-				associationReaders.add(activity);
-			}
-			
-			//Create write back arcs; if new assocs are create, write the union back; if assocs are checked, they already exist
-			String writeAnnotation = "assoc";
-			associationsToWrite.removeAll(checkedAssociations);
-			if(!associationsToWrite.isEmpty()) {
-				writeAnnotation = "union assoc "+associationsToWrite.stream()
-					.map(assoc -> assoc.stream().map(DataObjectWrapper::dataElementId).sorted().collect(Collectors.toList()).toString())
-					.collect(Collectors.toList())
-					.toString();
-			}
-			activityWrapper.createArcTo(associationsPlace, transition, writeAnnotation);
-			if(!associationWriters.contains(activity)) {
-				createArc(nodeFor(activity), associationsPlace);
-				associationWriters.add(activity);
-			}
-		}
+		return associationsToWrite;
     }
     
-    private Set<Set<DataObjectWrapper>> checkAssociationsOfReadDataObjects(Transition transition, Set<DataObjectWrapper> readDataObjects) {
+    /**
+     * Associations between read data objects, which have to exist for the objects to be read together
+     */
+    private Set<Set<DataObjectWrapper>> associationsToCheck(Set<DataObjectWrapper> readDataObjects) {
     	Set<Set<DataObjectWrapper>> associationsToCheck = new HashSet<>();
-		
 		for(DataObjectWrapper readObject : readDataObjects) {
 			for(DataObjectWrapper otherReadObject : readDataObjects) {
 				if(!readObject.equals(otherReadObject) && dataModel.isAssociated(readObject.getNormalizedName(), otherReadObject.getNormalizedName())) {
@@ -659,54 +1151,45 @@ public class CompilerApp {
 				}
 			}
 		}
-		
-//		associationsToCheck.forEach(assoc -> {
-//			String annotation = assoc.stream().map(DataObjectWrapper::dataElementId).sorted().collect(Collectors.toList()).toString();
-//			for(Transition transition : transitions) {
-//	    		createArc(subPage.getPage(), subPage.refPlaceFor(associationsPlace), transition, annotation);
-//			}
-//		});
-		if(!associationsToCheck.isEmpty()) {
-//			String annotation = associationsToCheck.stream()
-//				.map(assoc -> "1`"+assoc.stream().map(DataObjectWrapper::dataElementId).sorted().collect(Collectors.toList()).toString())
-//				.collect(Collectors.joining("++\n"));
-			String guard = "contains assoc "+ associationsToCheck.stream()
-				.map(assoc -> assoc.stream().map(DataObjectWrapper::dataElementId).sorted().collect(Collectors.toList()).toString())
-				.collect(Collectors.toList())
-				.toString();
-			transition.getCondition().setText(guard);
-		}
 		return associationsToCheck;
     }
     
+    /**
+     * Net representation of a set of associations, e.g. <code>[[AId, BId], [AId, CId]]</code>, sorted so that it does not depend on the iteration order
+     */
+    private static String associationList(Set<Set<DataObjectWrapper>> associations) {
+    	return associations.stream()
+			.map(assoc -> assoc.stream().map(DataObjectWrapper::dataElementId).sorted().collect(Collectors.toList()).toString())
+			.sorted()
+			.collect(Collectors.toList())
+			.toString();
+    }
     
-    private void translateGateways() {
-        Collection<ExclusiveGateway> exclusiveGateways = bpmn.getModelElementsByType(ExclusiveGateway.class);
-        exclusiveGateways.forEach(each -> {
-        	String name = elementName(each);
-        	Node node = createPlace(name, "CaseID");
-        	nodeMap.put(each, node);
-        });
+    
+    void translateGateways() {
+        for(int node : graph.exclusiveGateways()) {
+        	String name = elementName(graph.flowNode(node));
+        	nodes[node] = createPlace(name, "CaseID");
+        }
 
-        Collection<ParallelGateway> parallelGateways = bpmn.getModelElementsByType(ParallelGateway.class);
-        parallelGateways.forEach(each -> {        	
+        for(int node : graph.parallelGateways()) {
+        	FlowNode each = graph.flowNode(node);
         	String name = elementName(each);
 	    	Page gatewayPage = createPage(name);
 	    	Transition subpageTransition = builder.addTransition(gatewayPage, name);
 	        Instance mainPageTransition = createSubpageTransition(name, gatewayPage);
 	        SubpageElement subPage = new SubpageElement(this, each.getId(), gatewayPage, mainPageTransition, Arrays.asList(subpageTransition));
-	        subpages.put(each, subPage);
-	    	nodeMap.put(each, mainPageTransition);
-        });
+	        subpages[node] = subPage;
+	    	nodes[node] = mainPageTransition;
+        }
     }
     
-    private void translateControlFlow() {
-        Collection<SequenceFlow> sequenceFlows = bpmn.getModelElementsByType(SequenceFlow.class);
-        sequenceFlows.forEach(each -> {
-        	FlowNode sourceNode = each.getSource();
-        	FlowNode targetNode = each.getTarget();
-        	Node source = nodeFor(sourceNode);
-        	Node target = nodeFor(targetNode);
+    void translateControlFlow() {
+        for(int flow = 0; flow < graph.sequenceFlowCount(); flow++) {
+        	SubpageElement sourceSubpage = subpages[graph.source(flow)];
+        	SubpageElement targetSubpage = subpages[graph.target(flow)];
+        	Node source = nodes[graph.source(flow)];
+        	Node target = nodes[graph.target(flow)];
         	//System.out.println(source.getName().asString()+" -> "+target.getName().asString());
         	if(isPlace(source) && isPlace(target)) {
         		Transition transition = builder.addTransition(mainPage, null);
@@ -715,27 +1198,27 @@ public class CompilerApp {
         		
         	} else if(isPlace(source) || isPlace(target)) {
         		builder.addArc(mainPage, source, target, "");
-        		if(subpages.containsKey(targetNode)) {
-        			subpages.get(targetNode).createArcsFrom((Place) source, caseId());
+        		if(targetSubpage != null) {
+        			targetSubpage.createArcsFrom((Place) source, caseId());
         		}
-        		if(subpages.containsKey(sourceNode)) {
-        			subpages.get(sourceNode).createArcsTo((Place) target, caseId());
+        		if(sourceSubpage != null) {
+        			sourceSubpage.createArcsTo((Place) target, caseId());
         		}
         		
         	} else {
             	Place place = createPlace(null, "CaseID");
             	
             	builder.addArc(mainPage, source, place, "");
-       			if(subpages.containsKey(sourceNode)) {
-           			subpages.get(sourceNode).createArcsTo(place, caseId());
+       			if(sourceSubpage != null) {
+           			sourceSubpage.createArcsTo(place, caseId());
        			}
 
             	builder.addArc(mainPage, place, target, "");
-    			if(subpages.containsKey(targetNode)) {
-        			subpages.get(targetNode).createArcsFrom(place, caseId());
+    			if(targetSubpage != null) {
+        			targetSubpage.createArcsFrom(place, caseId());
     			}
         	}
-        });
+        }
     }
     
     public ItemAwareElement findParentDataElement(String sourceId) {
@@ -756,7 +1239,7 @@ public class CompilerApp {
     	deferred.add(r);
     }
     
-    private void runDeferredCalls() {
+    void runDeferredCalls() {
     	deferred.forEach(Runnable::run);
     }
     
@@ -765,8 +1248,9 @@ public class CompilerApp {
     }
     
     private DataElementWrapper<?,?> wrapperFor(StatefulDataAssociation<?> assoc) {
-    	return Stream.concat(dataObjectWrappers.stream(), dataStoreWrappers.stream())
-    			.filter(any -> any.isForReference(assoc.getDataElement())).findAny().get();
+    	DataElementWrapper<?,?> wrapper = referenceWrappers[assoc.getDataReference()];
+    	if(wrapper == null) throw new NoSuchElementException("No data element wrapper for "+assoc.getDataElement().getAttributeValue("name"));
+    	return wrapper;
     }    
     
     
@@ -817,8 +1301,13 @@ public class CompilerApp {
 		return bpmn;
 	}
 	
+	public PetriNet getPetriNet() {
+		return petriNet;
+	}
+	
 	public Node nodeFor(BaseElement element) {
-		return nodeMap.get(element);
+		int node = element instanceof FlowNode ? graph.flowNodeId((FlowNode) element) : ProcessGraph.NONE;
+		return node == ProcessGraph.NONE ? null : nodes[node];
 	}
 	
 	public String caseId() {
@@ -0,0 +1,430 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.xml.ModelException;
+import org.cpntools.accesscpn.model.PetriNet;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.CompilerApp.StateEncoding;
+
+/**
+ * Long-running compiler that accepts compile requests via http on localhost, so that jvm startup and class loading are paid only once.<br>
+ * <code>POST /compile</code> translates the bpmn model in the request body, or the file given by the <code>path</code> parameter, and responds with the cpn xml;
+ * with the <code>output</code> parameter, the net is written to that file instead. Both paths are resolved against the base directory and must not leave it.
+ * The parameter <code>states=symbolic</code> selects the {@link StateEncoding}.
+ * <code>GET /status</code> reports the load of the daemon as json.<br>
+ * Requests are compiled by a fixed number of workers; if all workers are busy and the bounded queue is full, requests are rejected with 503 (back-pressure) before their body is read.
+ * Requests that take longer than the timeout are answered with 504 and their translation is interrupted.<br>
+ * Requests whose <code>Host</code> is not a loopback address or that come from a web page of another origin are refused with 403, so that websites cannot use the daemon through the browser.
+ */
+public class CompilerDaemon {
+
+	public static final String USAGE = "Usage: CompilerDaemon [-p <port>] [-j <threads>] [-q <queue size>] [-t <timeout in seconds>] [-b <max request body in KiB>] [-d <base directory>]";
+
+	public static final int DEFAULT_PORT = 8765;
+	/** Largest accepted request body by default; larger models have to be passed by path*/
+	public static final int DEFAULT_MAX_BODY_BYTES = 4 << 20;
+
+	private int port = DEFAULT_PORT;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int queueSize = 16;
+	private long timeoutMillis = TimeUnit.SECONDS.toMillis(60);
+	private int maxBodyBytes = DEFAULT_MAX_BODY_BYTES;
+	private Path baseDirectory = Paths.get("");
+
+	private HttpServer server;
+	private ThreadPoolExecutor workers;
+	/** One permit per worker and queue slot, taken by a compile request before its body is read*/
+	private Semaphore capacity;
+	private ExecutorService handlers;
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong timedOut = new AtomicLong();
+
+	public static void main(String[] args) throws IOException {
+		CompilerDaemon daemon = new CompilerDaemon();
+		try {
+			daemon.parseArguments(args);
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			System.out.println(USAGE);
+			System.exit(BatchCompiler.USAGE_ERROR);
+			return;
+		}
+		daemon.start();
+		System.out.println("Compiler daemon listening on "+daemon.getUrl()
+			+" with "+daemon.threads+" workers, queue size "+daemon.queueSize+" and timeout "+daemon.timeoutMillis+"ms for models in "+daemon.baseDirectory);
+		Runtime.getRuntime().addShutdownHook(new Thread(daemon::stop));
+	}
+
+	public CompilerDaemon() {}
+
+	/**
+	 * @param port the port to listen on, 0 for an ephemeral port
+	 */
+	public CompilerDaemon(int port, int threads, int queueSize, long timeoutMillis) {
+		this.port = port;
+		this.threads = threads;
+		this.queueSize = queueSize;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * @param maxBodyBytes size of the largest request body that is accepted, larger models have to be passed by path
+	 */
+	public CompilerDaemon setMaxBodyBytes(int maxBodyBytes) {
+		this.maxBodyBytes = maxBodyBytes;
+		return this;
+	}
+
+	/**
+	 * @param baseDirectory directory that contains all models and nets that are passed by path, the working directory by default
+	 */
+	public CompilerDaemon setBaseDirectory(Path baseDirectory) {
+		this.baseDirectory = baseDirectory;
+		return this;
+	}
+
+	private void parseArguments(String[] args) {
+		for(int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "-p":
+			case "--port":
+				port = intValueOf(args, ++i, "Port");
+				break;
+			case "-j":
+			case "--threads":
+				threads = intValueOf(args, ++i, "Number of threads");
+				if(threads < 1) throw new IllegalArgumentException("Number of threads must be positive: "+threads);
+				break;
+			case "-q":
+			case "--queue":
+				queueSize = intValueOf(args, ++i, "Queue size");
+				if(queueSize < 0) throw new IllegalArgumentException("Queue size must not be negative: "+queueSize);
+				break;
+			case "-t":
+			case "--timeout":
+				timeoutMillis = TimeUnit.SECONDS.toMillis(intValueOf(args, ++i, "Timeout"));
+				if(timeoutMillis < 1) throw new IllegalArgumentException("Timeout must be positive: "+args[i]);
+				break;
+			case "-b":
+			case "--max-body":
+				int kibibytes = intValueOf(args, ++i, "Maximum request body size");
+				if(kibibytes < 1 || kibibytes > Integer.MAX_VALUE >> 10) throw new IllegalArgumentException("Maximum request body size must be between 1 and "+(Integer.MAX_VALUE >> 10)+" KiB: "+args[i]);
+				maxBodyBytes = kibibytes << 10;
+				break;
+			case "-d":
+			case "--directory":
+				if(++i >= args.length) throw new IllegalArgumentException("Missing value for option "+args[i - 1]);
+				baseDirectory = Paths.get(args[i]);
+				if(!Files.isDirectory(baseDirectory)) throw new IllegalArgumentException("Base directory does not exist: "+args[i]);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: "+args[i]);
+			}
+		}
+	}
+
+	private static int intValueOf(String[] args, int index, String name) {
+		if(index >= args.length) throw new IllegalArgumentException("Missing value for option "+args[index - 1]);
+		try {
+			return Integer.parseInt(args[index]);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(name+" is not a number: "+args[index]);
+		}
+	}
+
+	/**
+	 * Binds to the loopback address and starts accepting requests
+	 */
+	public void start() throws IOException {
+		baseDirectory = baseDirectory.toRealPath();
+		BlockingQueue<Runnable> queue = queueSize == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(queueSize);
+		workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue, new ThreadPoolExecutor.AbortPolicy());
+		capacity = new Semaphore(threads + queueSize);
+		// An admitted compile request blocks its handler until the net is compiled, so there is one handler per permit,
+		// plus one that is always free to answer status requests and to reject requests beyond the capacity
+		handlers = Executors.newFixedThreadPool(threads + queueSize + 1);
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.setExecutor(handlers);
+		server.createContext("/compile", this::handleCompile);
+		server.createContext("/status", this::handleStatus);
+		server.start();
+	}
+
+	public void stop() {
+		if(server != null) server.stop(0);
+		if(workers != null) workers.shutdownNow();
+		if(handlers != null) handlers.shutdownNow();
+	}
+
+	/** The port the daemon listens on, the actual one if started with port 0*/
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/** Base url of the daemon, e.g. <code>http://127.0.0.1:8765</code>*/
+	public String getUrl() {
+		String host = server.getAddress().getAddress().getHostAddress();
+		return "http://"+(host.contains(":") ? "["+host+"]" : host)+":"+getPort();
+	}
+
+	/**
+	 * Schedules a task on the workers
+	 * @throws RejectedExecutionException if all workers are busy and the queue is full
+	 */
+	<T> Future<T> submit(Callable<T> task) {
+		return workers.submit(task);
+	}
+
+	private void handleCompile(HttpExchange exchange) throws IOException {
+		try {
+			if(!exchange.getRequestMethod().equals("POST")) {
+				respond(exchange, 405, "Only POST is supported");
+				return;
+			}
+			if(!isLocal(exchange)) {
+				respond(exchange, 403, "Only requests from the local machine are accepted");
+				return;
+			}
+			if(!capacity.tryAcquire()) {
+				rejectAsBusy(exchange);
+				return;
+			}
+			try {
+				compileRequest(exchange);
+			} finally {
+				capacity.release();
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void compileRequest(HttpExchange exchange) throws IOException {
+		Map<String, String> parameters = parameters(exchange.getRequestURI().getRawQuery());
+		Path path, output;
+		try {
+			path = parameters.containsKey("path") ? resolve(parameters.get("path")) : null;
+			output = parameters.containsKey("output") ? resolve(parameters.get("output")) : null;
+		} catch (InvalidPathException e) {
+			respond(exchange, 400, "Invalid path: "+e.getMessage());
+			return;
+		}
+		if(path != null && !path.startsWith(baseDirectory) || output != null && !output.startsWith(baseDirectory)) {
+			respond(exchange, 403, "Paths must be within "+baseDirectory);
+			return;
+		}
+		String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+		byte[] body = contentLength != null && isLongerThan(contentLength, maxBodyBytes) ? null : readBody(exchange.getRequestBody(), maxBodyBytes);
+		if(body == null) {
+			respond(exchange, 413, "Request body exceeds "+maxBodyBytes+" bytes, pass the model by path instead");
+			return;
+		}
+		if(body.length == 0 && path == null) {
+			respond(exchange, 400, "Neither a bpmn model in the request body nor a path to one given");
+			return;
+		}
+		StateEncoding stateEncoding = "symbolic".equalsIgnoreCase(parameters.get("states")) ? StateEncoding.SYMBOLIC : StateEncoding.EXPANDED;
+
+		Future<byte[]> result;
+		try {
+			result = submit(() -> compile(body.length > 0 ? new ByteArrayInputStream(body) : Files.newInputStream(path), stateEncoding, output));
+		} catch (RejectedExecutionException e) {
+			// Workers can still be busy with requests that timed out and were not interrupted yet
+			rejectAsBusy(exchange);
+			return;
+		}
+
+		try {
+			byte[] response = result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+			completed.incrementAndGet();
+			if(output != null) {
+				respond(exchange, 200, output.toString());
+			} else {
+				exchange.getResponseHeaders().set("Content-Type", "application/xml");
+				respond(exchange, 200, response);
+			}
+		} catch (TimeoutException e) {
+			result.cancel(true);
+			timedOut.incrementAndGet();
+			respond(exchange, 504, "Compilation did not finish within "+timeoutMillis+"ms");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof ModelException || cause instanceof IOException) {
+				respond(exchange, 400, "Could not read bpmn model: "+cause);
+			} else if(cause instanceof NetSizeLimitExceededException) {
+				respond(exchange, 422, cause.getMessage());
+			} else {
+				respond(exchange, 500, "Compilation failed: "+cause);
+			}
+		} catch (InterruptedException | CancellationException e) {
+			result.cancel(true);
+			respond(exchange, 503, "Compiler is shutting down");
+		}
+	}
+
+	private void rejectAsBusy(HttpExchange exchange) throws IOException {
+		rejected.incrementAndGet();
+		exchange.getResponseHeaders().set("Retry-After", "1");
+		respond(exchange, 503, "Compiler is busy, "+workers.getActiveCount()+" requests running and "+workers.getQueue().size()+" queued");
+	}
+
+	/**
+	 * Compiles one model; returns the cpn xml, or nothing if it is written to the output file
+	 */
+	private static byte[] compile(InputStream model, StateEncoding stateEncoding, Path output) throws Exception {
+		BpmnModelInstance bpmn;
+		try(InputStream in = model) {
+			bpmn = Bpmn.readModelFromStream(in);
+		}
+		PetriNet petriNet = new CompilerApp(bpmn, stateEncoding)
+				.setProgressOutput(new PrintStream(OutputStream.nullOutputStream()))
+				.translateBPMN2CPN();
+		if(output != null) {
+			try(OutputStream out = Files.newOutputStream(output)) {
+				CompilerApp.streamPetriNet(petriNet, out);
+			}
+			return new byte[0];
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CompilerApp.streamPetriNet(petriNet, out);
+		return out.toByteArray();
+	}
+
+	private void handleStatus(HttpExchange exchange) throws IOException {
+		try {
+			if(!isLocal(exchange)) {
+				respond(exchange, 403, "Only requests from the local machine are accepted");
+				return;
+			}
+			exchange.getResponseHeaders().set("Content-Type", "application/json");
+			respond(exchange, 200, "{"
+				+ "\"workers\": "+threads+", "
+				+ "\"active\": "+workers.getActiveCount()+", "
+				+ "\"queued\": "+workers.getQueue().size()+", "
+				+ "\"queueSize\": "+queueSize+", "
+				+ "\"completed\": "+completed.get()+", "
+				+ "\"rejected\": "+rejected.get()+", "
+				+ "\"timedOut\": "+timedOut.get()
+				+ "}");
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Path parameters are relative to the base directory; the result is normalized, so that it starts with the base directory exactly if it is within it
+	 */
+	private Path resolve(String path) {
+		return baseDirectory.resolve(path).normalize();
+	}
+
+	/**
+	 * Whether the request is addressed to a loopback host name and, if sent by a browser, comes from a page on the local machine.
+	 * This rejects pages that rebind their own domain to the loopback address or that send simple cross origin requests
+	 */
+	private static boolean isLocal(HttpExchange exchange) {
+		String host = exchange.getRequestHeaders().getFirst("Host");
+		if(host == null || !isLoopback(host.replaceFirst(":\\d*$", ""))) return false;
+		String origin = exchange.getRequestHeaders().getFirst("Origin");
+		if(origin == null) return true;
+		try {
+			URI uri = new URI(origin);
+			return ("http".equals(uri.getScheme()) || "https".equals(uri.getScheme())) && uri.getHost() != null && isLoopback(uri.getHost());
+		} catch (URISyntaxException e) {
+			return false;
+		}
+	}
+
+	/** Whether the host name is localhost or an ipv4 or ipv6 loopback literal; other names are not resolved*/
+	private static boolean isLoopback(String host) {
+		return host.equalsIgnoreCase("localhost") || host.matches("127(\\.\\d{1,3}){3}") || host.equals("[::1]");
+	}
+
+	private static boolean isLongerThan(String contentLength, int maxBytes) {
+		try {
+			return Long.parseLong(contentLength.trim()) > maxBytes;
+		} catch (NumberFormatException e) {
+			// Let reading the body decide
+			return false;
+		}
+	}
+
+	/**
+	 * Reads the whole request body, null if it exceeds the maximum size
+	 */
+	private static byte[] readBody(InputStream in, int maxBytes) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while((read = in.read(buffer)) >= 0) {
+			if(body.size() + read > maxBytes) return null;
+			body.write(buffer, 0, read);
+		}
+		return body.toByteArray();
+	}
+
+	private static Map<String, String> parameters(String query) throws UnsupportedEncodingException {
+		Map<String, String> parameters = new HashMap<>();
+		if(query == null) return parameters;
+		for(String parameter : query.split("&")) {
+			String[] keyAndValue = parameter.split("=", 2);
+			parameters.put(URLDecoder.decode(keyAndValue[0], "UTF-8"), keyAndValue.length > 1 ? URLDecoder.decode(keyAndValue[1], "UTF-8") : "");
+		}
+		return parameters;
+	}
+
+	private static void respond(HttpExchange exchange, int status, String message) throws IOException {
+		if(!message.endsWith("\n")) message += "\n";
+		if(!exchange.getResponseHeaders().containsKey("Content-Type")) exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		respond(exchange, status, message.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+		exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+		if(body.length > 0) {
+			try(OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		}
+	}
+}
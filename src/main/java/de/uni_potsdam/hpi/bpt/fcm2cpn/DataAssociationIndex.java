@@ -0,0 +1,99 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.instance.BaseElement;
+import org.camunda.bpm.model.bpmn.instance.DataAssociation;
+import org.camunda.bpm.model.bpmn.instance.DataInput;
+import org.camunda.bpm.model.bpmn.instance.DataInputAssociation;
+import org.camunda.bpm.model.bpmn.instance.DataObjectReference;
+import org.camunda.bpm.model.bpmn.instance.DataOutput;
+import org.camunda.bpm.model.bpmn.instance.DataOutputAssociation;
+import org.camunda.bpm.model.bpmn.instance.DataStoreReference;
+import org.camunda.bpm.model.bpmn.instance.ItemAwareElement;
+
+/**
+ * Resolves the data associations of one bpmn model in a single pass, so that they can be looked up without scanning the whole model.<br>
+ * Replaces {@link Utils#getAssociation(DataInput)}, {@link Utils#getAssociation(DataOutput)}, {@link Utils#getSource(DataAssociation)} and {@link Utils#getTarget(DataAssociation)} during compilation.
+ */
+public class DataAssociationIndex {
+
+	/** Maps io-specification inputs to the associations that target them*/
+	private final Map<DataInput, DataInputAssociation> inputAssociations = new HashMap<>();
+	/** Maps io-specification outputs to the associations that originate from them*/
+	private final Map<DataOutput, DataOutputAssociation> outputAssociations = new HashMap<>();
+	/** Resolved source elements of all associations, null if there is none*/
+	private final Map<DataAssociation, BaseElement> sources = new HashMap<>();
+	/** Resolved target elements of all associations, null if there is none*/
+	private final Map<DataAssociation, BaseElement> targets = new HashMap<>();
+
+	public DataAssociationIndex(BpmnModelInstance bpmn) {
+		this(new ModelElementIndex(bpmn));
+	}
+
+	public DataAssociationIndex(ModelElementIndex elements) {
+		elements.getModelElementsByType(DataInputAssociation.class).forEach(assoc -> {
+			BaseElement target = resolve(assoc);
+			if(target instanceof DataInput) inputAssociations.putIfAbsent((DataInput) target, assoc);
+		});
+		elements.getModelElementsByType(DataOutputAssociation.class).forEach(assoc -> {
+			BaseElement source = resolve(assoc);
+			if(source instanceof DataOutput) outputAssociations.putIfAbsent((DataOutput) source, assoc);
+		});
+	}
+
+	/**
+	 * Resolves and stores source and target of an association, returns the element on the activity side, i.e. the target of input and the source of output associations
+	 */
+	private BaseElement resolve(DataAssociation assoc) {
+		BaseElement source = Utils.getSource(assoc);
+		BaseElement target = Utils.getTarget(assoc);
+		sources.put(assoc, source);
+		targets.put(assoc, target);
+		return assoc instanceof DataInputAssociation ? target : source;
+	}
+
+	/**
+	 * Finds the data association that references an input object from an ioSpecification
+	 */
+	public DataInputAssociation getAssociation(DataInput input) {
+		DataInputAssociation assoc = inputAssociations.get(input);
+		if(assoc == null) throw new NoSuchElementException("No data association for data input "+input.getId());
+		return assoc;
+	}
+
+	/**
+	 * Finds the data association that references an output object from an ioSpecification
+	 */
+	public DataOutputAssociation getAssociation(DataOutput output) {
+		DataOutputAssociation assoc = outputAssociations.get(output);
+		if(assoc == null) throw new NoSuchElementException("No data association for data output "+output.getId());
+		return assoc;
+	}
+
+	/**
+	 * Resolves the source element of a data association
+	 */
+	public BaseElement getSource(DataAssociation assoc) {
+		return sources.containsKey(assoc) ? sources.get(assoc) : Utils.getSource(assoc);
+	}
+
+	/**
+	 * Resolves the target element of a data association
+	 */
+	public BaseElement getTarget(DataAssociation assoc) {
+		return targets.containsKey(assoc) ? targets.get(assoc) : Utils.getTarget(assoc);
+	}
+
+	/**
+	 * Resolves the data object or data store reference that is read or written via a data association
+	 */
+	public ItemAwareElement getDataElement(DataAssociation assoc) {
+		BaseElement source = getSource(assoc);
+		return (ItemAwareElement) (source instanceof DataObjectReference || source instanceof DataStoreReference ? source : getTarget(assoc));
+	}
+
+}
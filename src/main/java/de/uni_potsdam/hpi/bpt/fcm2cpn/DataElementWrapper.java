@@ -1,10 +1,11 @@
 package de.uni_potsdam.hpi.bpt.fcm2cpn;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.camunda.bpm.model.bpmn.instance.BaseElement;
 import org.camunda.bpm.model.bpmn.instance.ItemAwareElement;
@@ -15,9 +16,14 @@ public abstract class DataElementWrapper<Element extends ItemAwareElement, Refer
 
 	protected final CompilerApp compilerApp;
 	protected final String normalizedName;
+	/** Identifiers derived from the name, computed once as they are part of many inscriptions*/
+	private final String namePrefix;
+	private final String dataElementId;
+	private final String dataElementCount;
 	protected final Place place;
-	private final List<Element> mappedElements = new ArrayList<>();
-	private final List<Reference> mappedReferences = new ArrayList<>();
+	/** Bpmn model elements are unique per model instance, so identity sets allow constant time lookups without relying on dom equality*/
+	private final Set<Element> mappedElements = Collections.newSetFromMap(new IdentityHashMap<>());
+	private final Set<Reference> mappedReferences = Collections.newSetFromMap(new IdentityHashMap<>());
 
 	protected final Map<BaseElement, Arc> outgoingArcs;
 	protected final Map<BaseElement, Arc> incomingArcs;
@@ -25,6 +31,9 @@ public abstract class DataElementWrapper<Element extends ItemAwareElement, Refer
 	public DataElementWrapper(CompilerApp compilerApp, String trimmedName) {
 		this.compilerApp = compilerApp;
 		this.normalizedName = trimmedName;
+		this.namePrefix = Utils.WHITESPACE.matcher(trimmedName).replaceAll("_");
+		this.dataElementId = namePrefix + "Id";
+		this.dataElementCount = namePrefix + "Count";
 		this.place = createPlace();
 		
 		outgoingArcs = new HashMap<>();
@@ -38,15 +47,15 @@ public abstract class DataElementWrapper<Element extends ItemAwareElement, Refer
 	}
 	
 	public String namePrefix() {
-		return normalizedName.replaceAll("\\s", "_");
+		return namePrefix;
 	}
 
 	public String dataElementId() {
-		return namePrefix() + "Id";
+		return dataElementId;
 	}
 
 	public String dataElementCount() {
-		return namePrefix() + "Count";
+		return dataElementCount;
 	}
 	
     public abstract String annotationForDataFlow(Optional<String> stateName);
@@ -3,16 +3,24 @@ package de.uni_potsdam.hpi.bpt.fcm2cpn;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.camunda.bpm.model.bpmn.instance.DataObject;
 import org.camunda.bpm.model.bpmn.instance.DataObjectReference;
 import org.cpntools.accesscpn.model.Page;
 import org.cpntools.accesscpn.model.Place;
 import org.cpntools.accesscpn.model.PlaceNode;
+import org.cpntools.accesscpn.model.RefPlace;
 
 public class DataObjectWrapper extends DataElementWrapper<DataObject, DataObjectReference> {
 
 	private final Map<Page, PlaceNode> creationCounterPlaces = new HashMap<>();
+	private boolean stateVariablesDeclared = false;
+	/** Data flow annotations by state, see {@link #annotationForDataFlow(Optional)}*/
+	private final Map<Optional<String>, String> dataFlowAnnotations = new ConcurrentHashMap<>();
+	private final String idGeneration;
+	private final String incrementedDataElementCount;
+	private final String creationCounterCause;
 	
 
 	public DataObjectWrapper(CompilerApp compilerApp, String trimmedName) {
@@ -20,6 +28,9 @@ public class DataObjectWrapper extends DataElementWrapper<DataObject, DataObject
 		
         compilerApp.createVariable(dataElementId(), "STRING");
         compilerApp.createVariable(dataElementCount(), "INT");
+        idGeneration = "String.concat[\"" + namePrefix() + "\", Int.toString(" + dataElementCount() +")]";
+        incrementedDataElementCount = dataElementCount() + "+ 1";
+        creationCounterCause = "creation counter of "+normalizedName;
 	}
 
 
@@ -29,16 +40,65 @@ public class DataObjectWrapper extends DataElementWrapper<DataObject, DataObject
 	}
 
 
+	/**
+	 * Variable for the state in which this data object is read, used for {@link CompilerApp.StateEncoding#SYMBOLIC symbolic states}
+	 */
+	public String inputStateVariable() {
+		declareStateVariables();
+		return namePrefix() + "InState";
+	}
+	
+	/**
+	 * Variable for the state in which this data object is written, used for {@link CompilerApp.StateEncoding#SYMBOLIC symbolic states}
+	 */
+	public String outputStateVariable() {
+		declareStateVariables();
+		return namePrefix() + "OutState";
+	}
+	
+	/** State variables are only needed when symbolic states are used, so they are declared on first use*/
+	private void declareStateVariables() {
+		if(stateVariablesDeclared) return;
+		stateVariablesDeclared = true;
+		compilerApp.createVariable(inputStateVariable(), "STATE");
+		compilerApp.createVariable(outputStateVariable(), "STATE");
+	}
+
+
 	public PlaceNode creationCounterForPage(Page page) {
-		return creationCounterPlaces.computeIfAbsent(page, _page -> compilerApp.createFusionPlace(_page, namePrefix()+" Count", "INT", "1`0", dataElementCount()));
+		return creationCounterPlaces.computeIfAbsent(page, _page -> {
+			RefPlace counter = compilerApp.createFusionPlace(_page, namePrefix()+" Count", "INT", "1`0", dataElementCount());
+			compilerApp.getAttribution().referencePlace(counter, creationCounterCause);
+			return counter;
+		});
+	}
+
+
+	/**
+	 * Expression that generates the id of a created object from its counter, part of the creation code of transitions
+	 */
+	public String idGeneration() {
+		return idGeneration;
+	}
+	
+	/** Arc inscription that writes back the incremented creation counter*/
+	public String incrementedDataElementCount() {
+		return incrementedDataElementCount;
+	}
+	
+	/** Attribution cause of the creation counter arcs and places*/
+	public String creationCounterCause() {
+		return creationCounterCause;
 	}
 
 
 	@Override
 	public String annotationForDataFlow(Optional<String> stateName) {
-        String stateString = stateName.map(x -> ", state = "+x).orElse("");
-        String caseId = compilerApp.caseId();
-        return "{id = "+dataElementId()+" , "+caseId+" = "+caseId+stateString+"}";
+		return dataFlowAnnotations.computeIfAbsent(stateName, _stateName -> {
+	        String stateString = _stateName.map(x -> ", state = "+x).orElse("");
+	        String caseId = compilerApp.caseId();
+	        return "{id = "+dataElementId()+" , "+caseId+" = "+caseId+stateString+"}";
+		});
 	}
 
 
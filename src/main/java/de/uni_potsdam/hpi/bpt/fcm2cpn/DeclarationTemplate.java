@@ -0,0 +1,93 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.cpntools.accesscpn.model.HLDeclaration;
+import org.cpntools.accesscpn.model.Label;
+import org.cpntools.accesscpn.model.PetriNet;
+import org.cpntools.accesscpn.model.cpntypes.CPNList;
+import org.cpntools.accesscpn.model.cpntypes.CPNRecord;
+import org.cpntools.accesscpn.model.cpntypes.CpntypesFactory;
+import org.cpntools.accesscpn.model.util.BuildCPNUtil;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+/**
+ * The model independent declarations every compiled net starts with: the standard color sets, <code>CaseID</code>, <code>DATA_STORE</code>, <code>DATA_OBJECT</code>,
+ * <code>ASSOCIATION</code>, <code>LIST_OF_ASSOCIATION</code> and the default variables.<br>
+ * They are built once per variant and copied into each new net, see {@link #copyInto(PetriNet)}; the <code>STATE</code> color set depends on the model and is inserted at {@link #getStateIndex()}.
+ */
+final class DeclarationTemplate {
+
+	private static final Map<String, DeclarationTemplate> TEMPLATES = new ConcurrentHashMap<>();
+
+	/** Prefix of the ids of the template declarations, to not collide with the ids {@link BuildCPNUtil} generates for the rest of the net*/
+	private static final String ID_PREFIX = "declaration";
+
+	private final List<HLDeclaration> declarations = new ArrayList<>();
+	/** Position of the <code>STATE</code> color set, which has to be declared before <code>DATA_OBJECT</code> uses it*/
+	private final int stateIndex;
+
+	/**
+	 * @param caseId name of the case id variable and record field
+	 * @param withStates whether data objects have a state field of color set <code>STATE</code>
+	 */
+	static DeclarationTemplate of(String caseId, boolean withStates) {
+		return TEMPLATES.computeIfAbsent(caseId+"/"+withStates, key -> new DeclarationTemplate(caseId, withStates));
+	}
+
+	private DeclarationTemplate(String caseId, boolean withStates) {
+		BuildCPNUtil builder = new BuildCPNUtil();
+		PetriNet petriNet = builder.createPetriNet();
+
+		builder.declareStandardColors(petriNet);
+		builder.declareColorSet(petriNet, "CaseID", CpntypesFactory.INSTANCE.createCPNString());
+		builder.declareColorSet(petriNet, "DATA_STORE", CpntypesFactory.INSTANCE.createCPNString());
+		stateIndex = petriNet.getLabel().size();
+
+		CPNRecord dataObject = CpntypesFactory.INSTANCE.createCPNRecord();
+		dataObject.addValue("id", "STRING");
+		dataObject.addValue(caseId, "STRING");
+		if(withStates)dataObject.addValue("state", "STATE");
+		builder.declareColorSet(petriNet, "DATA_OBJECT", dataObject);
+
+		CPNList association = CpntypesFactory.INSTANCE.createCPNList();
+		association.setSort("STRING");
+		builder.declareColorSet(petriNet, "ASSOCIATION", association);
+
+		CPNList listOfAssociation = CpntypesFactory.INSTANCE.createCPNList();
+		listOfAssociation.setSort("ASSOCIATION");
+		builder.declareColorSet(petriNet, "LIST_OF_ASSOCIATION", listOfAssociation);
+
+		builder.declareVariable(petriNet, "count", "INT");
+		builder.declareVariable(petriNet, caseId, "CaseID");
+		builder.declareVariable(petriNet, "assoc", "LIST_OF_ASSOCIATION");
+
+		for(Label label : new ArrayList<>(petriNet.getLabel())) {
+			HLDeclaration declaration = (HLDeclaration) label;
+			declaration.setId(ID_PREFIX + declarations.size());
+			petriNet.getLabel().remove(declaration);
+			declarations.add(declaration);
+		}
+	}
+
+	/**
+	 * Appends copies of the template declarations to the labels of the net.<br>
+	 * Copying is synchronized, as emf may lazily initialize fields of the template while it is read.
+	 */
+	void copyInto(PetriNet petriNet) {
+		Collection<HLDeclaration> copies;
+		synchronized (this) {
+			copies = EcoreUtil.copyAll(declarations);
+		}
+		petriNet.getLabel().addAll(copies);
+	}
+
+	/** Index among the copied declarations at which the model dependent <code>STATE</code> color set has to be inserted*/
+	int getStateIndex() {
+		return stateIndex;
+	}
+}
@@ -0,0 +1,177 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.instance.DataInputAssociation;
+import org.camunda.bpm.model.bpmn.instance.DataOutputAssociation;
+import org.cpntools.accesscpn.model.PetriNet;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.CompilerApp.StateEncoding;
+import de.uni_potsdam.hpi.bpt.fcm2cpn.TransputSetWrapper.InputSetWrapper;
+import de.uni_potsdam.hpi.bpt.fcm2cpn.TransputSetWrapper.OutputSetWrapper;
+
+/**
+ * Recompiles changed versions of a bpmn model, reusing the work for activities that did not change since the previous compilation.<br>
+ * Each activity is fingerprinted with its name, its data associations (data element, state) and its io-specification, see {@link CompilerApp#activityFingerprint(ActivityTransputSets)}.
+ * For activities with the same fingerprint as before, the transput sets are not enumerated and the subpage transitions are not planned again,
+ * instead the {@link TransitionPlan plans} of the previous compilation are reused.
+ * The net itself is built anew from the plans in the same order as by a full compilation, so the result is identical, including the ids of all net elements.
+ */
+public class IncrementalCompiler {
+
+	private final StateEncoding stateEncoding;
+	private boolean parallelActivities = false;
+	/** Plans of the activities of the last successful compilation, by activity id*/
+	private Map<String, ActivityPlans> previousPlans = new HashMap<>();
+	/** Plans of the running compilation*/
+	private Map<String, ActivityPlans> currentPlans = new ConcurrentHashMap<>();
+	/** Ids of the activities whose plans were reused in the last compilation*/
+	private final Set<String> reusedActivities = ConcurrentHashMap.newKeySet();
+
+	public IncrementalCompiler() {
+		this(StateEncoding.EXPANDED);
+	}
+
+	public IncrementalCompiler(StateEncoding stateEncoding) {
+		this.stateEncoding = stateEncoding;
+	}
+
+	public IncrementalCompiler setParallelActivities(boolean parallelActivities) {
+		this.parallelActivities = parallelActivities;
+		return this;
+	}
+
+	/**
+	 * Compiles the model, reusing the plans of activities that are unchanged since the previous call.
+	 * If the compilation fails, the plans of the previous compilation are kept for the next one.
+	 */
+	public PetriNet compile(BpmnModelInstance bpmn) {
+		return compile(new CompilerApp(bpmn, stateEncoding).setParallelActivities(parallelActivities));
+	}
+
+	synchronized PetriNet compile(CompilerApp compiler) {
+		if(compiler.getStateEncoding() != stateEncoding) throw new IllegalArgumentException("Compiler uses state encoding "+compiler.getStateEncoding()+" instead of "+stateEncoding);
+		currentPlans = new ConcurrentHashMap<>();
+		reusedActivities.clear();
+		PetriNet petriNet = compiler.setIncrementalCompiler(this).translateBPMN2CPN();
+		previousPlans = currentPlans;
+		return petriNet;
+	}
+
+	/** Ids of the activities that were not planned again in the last compilation*/
+	public Set<String> getReusedActivities() {
+		return Collections.unmodifiableSet(new TreeSet<>(reusedActivities));
+	}
+
+	/** Ids of the activities that were planned in the last compilation, because they are new or changed*/
+	public Set<String> getRetranslatedActivities() {
+		Set<String> retranslated = new TreeSet<>(currentPlans.keySet());
+		retranslated.removeAll(reusedActivities);
+		return Collections.unmodifiableSet(retranslated);
+	}
+
+	/**
+	 * Returns the plans of an activity: those of the previous compilation if the activity has the same fingerprint, newly planned ones otherwise.
+	 * May be called concurrently for different activities.
+	 * @param fingerprint fingerprint of the activity in the running compilation
+	 * @param plan plans the activity from scratch
+	 * @param dataObjects data object wrappers of the running compilation by normalized name
+	 */
+	List<TransitionPlan> plans(ActivityTransputSets transputSets, String fingerprint, Supplier<List<TransitionPlan>> plan, Function<String, DataObjectWrapper> dataObjects) {
+		String activityId = transputSets.getActivity().getId();
+		ActivityPlans previous = previousPlans.get(activityId);
+		if(previous != null && previous.fingerprint.equals(fingerprint)) {
+			currentPlans.put(activityId, previous);
+			reusedActivities.add(activityId);
+			return previous.plans.stream().map(each -> each.instantiate(transputSets, dataObjects)).collect(Collectors.toList());
+		}
+		List<TransitionPlan> plans = plan.get();
+		ActivityPlans.record(fingerprint, transputSets, plans).ifPresent(recorded -> currentPlans.put(activityId, recorded));
+		return plans;
+	}
+
+	/**
+	 * The plans of one activity in a form that does not refer to the bpmn model or the compiler they were created with:
+	 * transput sets as positions in the inputs and outputs of the activity, data objects by name.
+	 */
+	private static class ActivityPlans {
+		private final String fingerprint;
+		private final List<PlanTemplate> plans;
+
+		private ActivityPlans(String fingerprint, List<PlanTemplate> plans) {
+			this.fingerprint = fingerprint;
+			this.plans = plans;
+		}
+
+		/**
+		 * Empty if a plan refers to an association that is not among the inputs and outputs of the activity, then the activity is always planned again
+		 */
+		private static Optional<ActivityPlans> record(String fingerprint, ActivityTransputSets transputSets, List<TransitionPlan> plans) {
+			Map<StatefulDataAssociation<DataInputAssociation>, Integer> inputPositions = Utils.positionsIn(transputSets.getInputs());
+			Map<StatefulDataAssociation<DataOutputAssociation>, Integer> outputPositions = Utils.positionsIn(transputSets.getOutputs());
+			List<PlanTemplate> templates = plans.stream()
+					.map(plan -> PlanTemplate.of(plan, inputPositions, outputPositions))
+					.collect(Collectors.toList());
+			if(templates.contains(null)) return Optional.empty();
+			return Optional.of(new ActivityPlans(fingerprint, templates));
+		}
+	}
+
+	private static class PlanTemplate {
+		private final int[] inputs;
+		private final int[] outputs;
+		private final List<String> createdObjects;
+		private final Optional<String> creationCode;
+		private final Optional<String> associationWriteAnnotation;
+		private final Optional<String> guard;
+
+		private PlanTemplate(int[] inputs, int[] outputs, TransitionPlan plan) {
+			this.inputs = inputs;
+			this.outputs = outputs;
+			this.createdObjects = plan.getCreatedObjects().stream().map(DataObjectWrapper::getNormalizedName).collect(Collectors.toList());
+			this.creationCode = plan.getCreationCode();
+			this.associationWriteAnnotation = plan.getAssociationWriteAnnotation();
+			this.guard = plan.getGuard();
+		}
+
+		/**
+		 * @param inputPositions positions of the inputs of the activity, {@link Utils#positionsIn(List) computed} once for all its plans
+		 * @param outputPositions positions of the outputs of the activity
+		 */
+		private static PlanTemplate of(TransitionPlan plan, Map<StatefulDataAssociation<DataInputAssociation>, Integer> inputPositions, Map<StatefulDataAssociation<DataOutputAssociation>, Integer> outputPositions) {
+			int[] inputs = plan.getInputSet().stream().mapToInt(input -> inputPositions.getOrDefault(input, -1)).toArray();
+			int[] outputs = plan.getOutputSet().stream().mapToInt(output -> outputPositions.getOrDefault(output, -1)).toArray();
+			if(Math.min(min(inputs), min(outputs)) < 0) return null;
+			return new PlanTemplate(inputs, outputs, plan);
+		}
+
+		private static int min(int[] positions) {
+			int min = 0;
+			for(int position : positions) min = Math.min(min, position);
+			return min;
+		}
+
+		private TransitionPlan instantiate(ActivityTransputSets transputSets, Function<String, DataObjectWrapper> dataObjects) {
+			List<StatefulDataAssociation<DataInputAssociation>> activityInputs = transputSets.getInputs();
+			List<StatefulDataAssociation<DataOutputAssociation>> activityOutputs = transputSets.getOutputs();
+			InputSetWrapper inputSet = new InputSetWrapper(Collections.emptyList());
+			for(int input : inputs) inputSet.add(activityInputs.get(input));
+			OutputSetWrapper outputSet = new OutputSetWrapper(Collections.emptyList());
+			for(int output : outputs) outputSet.add(activityOutputs.get(output));
+			return new TransitionPlan(inputSet, outputSet,
+					createdObjects.stream().map(dataObjects).collect(Collectors.toList()),
+					creationCode, associationWriteAnnotation, guard);
+		}
+	}
+}
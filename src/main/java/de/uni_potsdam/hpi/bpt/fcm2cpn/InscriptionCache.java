@@ -0,0 +1,55 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Per compilation cache of the strings that the translation derives from names and states of the bpmn model: normalized element names, state colors and the creation code of created data objects.<br>
+ * Models with many transput sets need the same strings for many transitions; with the cache, each is computed once and all transitions share the same instance.
+ * Identifiers and data flow annotations of single data elements are kept by their {@link DataElementWrapper wrappers}.
+ * May be used concurrently, as transitions are planned in parallel, see {@link CompilerApp#setParallelActivities(boolean)}.
+ */
+public class InscriptionCache {
+
+	private final Map<String, String> normalizedNames = new ConcurrentHashMap<>();
+	private final Map<String, List<String>> stateColors = new ConcurrentHashMap<>();
+	/** Creation code by the sorted list of created objects*/
+	private final Map<List<DataObjectWrapper>, Optional<String>> creationCodes = new ConcurrentHashMap<>();
+
+	/**
+	 * @see Utils#normalizeElementName(String)
+	 */
+	public String normalizedName(String name) {
+		return normalizedNames.computeIfAbsent(name, Utils::normalizeElementName);
+	}
+
+	/**
+	 * Unmodifiable list of the colors of a state name
+	 * @see Utils#dataObjectStateToNetColors(String)
+	 */
+	public List<String> stateColors(String state) {
+		return stateColors.computeIfAbsent(state, _state -> Collections.unmodifiableList(Utils.dataObjectStateToNetColors(_state).collect(Collectors.toList())));
+	}
+
+	/**
+	 * Code segment that generates ids for created objects, empty if no objects are created
+	 * @param createdObjects the created objects, sorted by name
+	 */
+	public Optional<String> creationCode(List<DataObjectWrapper> createdObjects) {
+		if(createdObjects.isEmpty()) return Optional.empty();
+		return creationCodes.computeIfAbsent(createdObjects, InscriptionCache::buildCreationCode);
+	}
+
+	private static Optional<String> buildCreationCode(List<DataObjectWrapper> createdObjects) {
+		String countVariables = createdObjects.stream().map(DataObjectWrapper::dataElementCount).collect(Collectors.joining(",\n"));
+		String idVariables = createdObjects.stream().map(DataObjectWrapper::dataElementId).collect(Collectors.joining(",\n"));
+		String idGeneration = createdObjects.stream().map(DataObjectWrapper::idGeneration).collect(Collectors.joining(",\n"));
+		return Optional.of("input ("+countVariables+");\n"
+				+ "output ("+idVariables+");\n"
+				+ "action ("+idGeneration+");");
+	}
+}
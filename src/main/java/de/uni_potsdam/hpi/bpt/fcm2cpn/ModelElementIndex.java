@@ -0,0 +1,72 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.xml.impl.ModelInstanceImpl;
+import org.camunda.bpm.model.xml.impl.util.ModelUtil;
+import org.camunda.bpm.model.xml.instance.DomElement;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.camunda.bpm.model.xml.type.ModelElementType;
+
+/**
+ * Finds the elements of one bpmn model by type after a single pass over its document.<br>
+ * {@link BpmnModelInstance#getModelElementsByType(Class)} searches the whole document once per concrete subtype, and the dom node lists it uses are rescanned on every access,
+ * so that each query takes quadratic time in the size of the model and dominates the compilation of large models.
+ * The index returns the same elements in the same order, i.e. grouped by concrete type in the order of {@link ModelElementType#getAllExtendingTypes()}, each group in document order.
+ * Changes to the model after the index was built are not reflected.
+ */
+public class ModelElementIndex {
+
+	private final ModelInstanceImpl bpmn;
+	/** Dom elements in document order by namespace and local name*/
+	private final Map<String, List<DomElement>> elementsByName = new HashMap<>();
+
+	public ModelElementIndex(BpmnModelInstance bpmn) {
+		this.bpmn = (ModelInstanceImpl) bpmn;
+		Deque<DomElement> open = new ArrayDeque<>();
+		open.push(bpmn.getDocument().getRootElement());
+		while(!open.isEmpty()) {
+			DomElement element = open.pop();
+			elementsByName.computeIfAbsent(key(element.getNamespaceURI(), element.getLocalName()), _key -> new ArrayList<>()).add(element);
+			List<DomElement> children = element.getChildElements();
+			for(int i = children.size() - 1; i >= 0; i--) open.push(children.get(i));
+		}
+	}
+
+	private static String key(String namespace, String localName) {
+		return namespace+"#"+localName;
+	}
+
+	/**
+	 * @see BpmnModelInstance#getModelElementsByType(Class)
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends ModelElementInstance> List<T> getModelElementsByType(Class<T> type) {
+		List<T> instances = new ArrayList<>();
+		for(ModelElementType each : bpmn.getModel().getType(type).getAllExtendingTypes()) {
+			if(each.isAbstract()) continue;
+			for(DomElement element : elementsOf(each)) {
+				instances.add((T) ModelUtil.getModelElement(element, bpmn));
+			}
+		}
+		return instances;
+	}
+
+	/**
+	 * Elements of exactly the type, falling back to the alternative namespace of the type like the model does
+	 */
+	private List<DomElement> elementsOf(ModelElementType type) {
+		List<DomElement> elements = elementsByName.getOrDefault(key(type.getTypeNamespace(), type.getTypeName()), List.of());
+		String alternativeNamespace = type.getModel().getAlternativeNamespace(type.getTypeNamespace());
+		if(elements.isEmpty() && alternativeNamespace != null) {
+			elements = elementsByName.getOrDefault(key(alternativeNamespace, type.getTypeName()), List.of());
+		}
+		return elements;
+	}
+}
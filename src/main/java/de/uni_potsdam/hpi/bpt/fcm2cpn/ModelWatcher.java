@@ -0,0 +1,292 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.cpntools.accesscpn.model.PetriNet;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.CompilerApp.StateEncoding;
+
+/**
+ * Watches bpmn files and directories and recompiles models in the running jvm whenever they change, so that modelers see the updated net right away.<br>
+ * Changes are debounced: a file is recompiled once no further change was observed for the debounce time, as editors often write a file in several steps.
+ * Each file keeps its own {@link IncrementalCompiler}, so only changed activities are translated again.
+ * Nets are written next to the bpmn file, or into the output directory if one is given, and replace the previous net atomically.
+ */
+public class ModelWatcher implements Closeable {
+
+	public static final String USAGE = "Usage: ModelWatcher [-o <output directory>] [-d <debounce milliseconds>] [--symbolic-states] <file|directory>...";
+
+	public static final long DEFAULT_DEBOUNCE_MILLIS = 100;
+
+	private final List<Path> inputs = new ArrayList<>();
+	/** Output directory of all nets, null to write each net next to its bpmn file*/
+	private Path outputDirectory = null;
+	private long debounceMillis = DEFAULT_DEBOUNCE_MILLIS;
+	private StateEncoding stateEncoding = StateEncoding.EXPANDED;
+	private PrintStream out = System.out;
+
+	private WatchService watchService;
+	/** Watched directories and whether all bpmn files in them (and their subdirectories) are watched or only the given ones*/
+	private final Map<Path, Boolean> watchedDirectories = new HashMap<>();
+	private final Set<Path> watchedFiles = new HashSet<>();
+	/** Files with pending changes and the time at which they are compiled, unless they change again*/
+	private final Map<Path, Long> pending = new LinkedHashMap<>();
+	private final Map<Path, IncrementalCompiler> compilers = new HashMap<>();
+	/** Content of each file at its last compilation, to skip events that did not change it*/
+	private final Map<Path, byte[]> compiledContents = new HashMap<>();
+	private volatile int compilations = 0;
+
+	public static void main(String[] args) throws IOException {
+		ModelWatcher watcher = new ModelWatcher();
+		try {
+			watcher.parseArguments(args);
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			System.out.println(USAGE);
+			System.exit(BatchCompiler.USAGE_ERROR);
+			return;
+		}
+		watcher.start();
+		watcher.out.println("Watching "+watcher.inputs.stream().map(Path::toString).collect(Collectors.joining(", "))+" for changes, press Ctrl+C to stop");
+		watcher.run();
+	}
+
+	public ModelWatcher() {}
+
+	/**
+	 * @param outputDirectory directory to write the nets to, null to write each net next to its bpmn file
+	 */
+	public ModelWatcher(List<Path> inputs, Path outputDirectory, StateEncoding stateEncoding, long debounceMillis, PrintStream out) {
+		this.inputs.addAll(inputs);
+		this.outputDirectory = outputDirectory;
+		this.stateEncoding = stateEncoding;
+		this.debounceMillis = debounceMillis;
+		this.out = out;
+	}
+
+	private void parseArguments(String[] args) {
+		for(int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "-o":
+			case "--output":
+				outputDirectory = Paths.get(valueOf(args, ++i));
+				break;
+			case "-d":
+			case "--debounce":
+				try {
+					debounceMillis = Long.parseLong(valueOf(args, ++i));
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Debounce time is not a number: "+args[i]);
+				}
+				if(debounceMillis < 0) throw new IllegalArgumentException("Debounce time must not be negative: "+debounceMillis);
+				break;
+			case "--symbolic-states":
+				stateEncoding = StateEncoding.SYMBOLIC;
+				break;
+			default:
+				if(args[i].startsWith("-")) throw new IllegalArgumentException("Unknown option: "+args[i]);
+				inputs.add(Paths.get(args[i]));
+			}
+		}
+		if(inputs.isEmpty()) throw new IllegalArgumentException("No files or directories to watch given");
+	}
+
+	private static String valueOf(String[] args, int index) {
+		if(index >= args.length) throw new IllegalArgumentException("Missing value for option "+args[index - 1]);
+		return args[index];
+	}
+
+	/**
+	 * Starts watching the inputs and compiles all their models once
+	 */
+	public void start() throws IOException {
+		if(outputDirectory != null) Files.createDirectories(outputDirectory);
+		watchService = FileSystems.getDefault().newWatchService();
+		List<Path> files = new ArrayList<>();
+		for(Path input : inputs) {
+			Path path = input.toAbsolutePath().normalize();
+			if(Files.isDirectory(path)) {
+				files.addAll(watchDirectoryTree(path));
+			} else if(Files.isRegularFile(path)) {
+				watch(path.getParent(), false);
+				watchedFiles.add(path);
+				files.add(path);
+			} else {
+				throw new IOException("File not found: "+input);
+			}
+		}
+		files.forEach(this::compile);
+	}
+
+	/**
+	 * Processes changes until the watcher is {@link #close() closed} or the thread is interrupted
+	 */
+	public void run() {
+		try {
+			while(true) {
+				long now = System.nanoTime();
+				long nextDeadline = pending.values().stream().mapToLong(Long::longValue).min().orElse(Long.MAX_VALUE);
+				WatchKey key = nextDeadline == Long.MAX_VALUE ?
+						watchService.take() :
+						watchService.poll(Math.max(0, nextDeadline - now), TimeUnit.NANOSECONDS);
+				if(key != null) handleEvents(key);
+				compileDueFiles();
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// Stopped
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(watchService != null) watchService.close();
+	}
+
+	/** Number of finished compilations so far, including failed ones*/
+	int getCompilations() {
+		return compilations;
+	}
+
+	private void handleEvents(WatchKey key) {
+		Path directory = (Path) key.watchable();
+		for(WatchEvent<?> event : key.pollEvents()) {
+			if(event.kind() == OVERFLOW) {
+				// Events were lost, so every watched file in the directory might have changed
+				try(Stream<Path> files = Files.list(directory)) {
+					files.filter(this::isWatched).forEach(this::schedule);
+				} catch (IOException e) {
+					out.println("Could not list "+directory+": "+e);
+				}
+				continue;
+			}
+			Path path = directory.resolve((Path) event.context());
+			if(event.kind() == ENTRY_CREATE && Files.isDirectory(path) && watchedDirectories.getOrDefault(directory, false)) {
+				try {
+					watchDirectoryTree(path).forEach(this::schedule);
+				} catch (IOException e) {
+					out.println("Could not watch "+path+": "+e);
+				}
+			} else if(event.kind() == ENTRY_DELETE) {
+				pending.remove(path);
+				compiledContents.remove(path);
+			} else if(isWatched(path)) {
+				schedule(path);
+			}
+		}
+		if(!key.reset()) watchedDirectories.remove(directory);
+	}
+
+	private void schedule(Path file) {
+		pending.put(file, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(debounceMillis));
+	}
+
+	private void compileDueFiles() {
+		long now = System.nanoTime();
+		List<Path> due = pending.entrySet().stream()
+				.filter(entry -> entry.getValue() - now <= 0)
+				.map(Map.Entry::getKey)
+				.collect(Collectors.toList());
+		due.forEach(pending::remove);
+		due.forEach(this::compile);
+	}
+
+	private boolean isWatched(Path path) {
+		return watchedFiles.contains(path) || (watchedDirectories.getOrDefault(path.getParent(), false) && path.getFileName().toString().endsWith(".bpmn"));
+	}
+
+	/**
+	 * Watches the directory and all its subdirectories
+	 * @return the bpmn files currently in them
+	 */
+	private List<Path> watchDirectoryTree(Path directory) throws IOException {
+		// Directories are registered before the files are listed, so files created in between raise events instead of being missed
+		try(Stream<Path> paths = Files.walk(directory)) {
+			for(Path path : (Iterable<Path>) paths.filter(Files::isDirectory).sorted()::iterator) {
+				watch(path, true);
+			}
+		}
+		try(Stream<Path> paths = Files.walk(directory)) {
+			return paths
+					.filter(path -> !Files.isDirectory(path) && path.getFileName().toString().endsWith(".bpmn"))
+					.sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	private void watch(Path directory, boolean allFiles) throws IOException {
+		if(!watchedDirectories.containsKey(directory)) directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+		watchedDirectories.merge(directory, allFiles, Boolean::logicalOr);
+	}
+
+	/**
+	 * Recompiles the file and replaces its net; failures are reported, the previous net is kept
+	 */
+	private void compile(Path file) {
+		byte[] content;
+		try {
+			content = Files.readAllBytes(file);
+		} catch (IOException e) {
+			// Deleted or moved in the meantime
+			return;
+		}
+		if(Arrays.equals(content, compiledContents.get(file))) return;
+		long start = System.nanoTime();
+		Path outputFile = outputFileFor(file);
+		IncrementalCompiler compiler = compilers.computeIfAbsent(file, each -> new IncrementalCompiler(stateEncoding));
+		try {
+			BpmnModelInstance bpmn = Bpmn.readModelFromStream(new ByteArrayInputStream(content));
+			PetriNet petriNet = compiler.compile(new CompilerApp(bpmn, stateEncoding).setProgressOutput(new PrintStream(OutputStream.nullOutputStream())));
+			Path temporaryFile = outputFile.resolveSibling(outputFile.getFileName()+".tmp");
+			try {
+				StreamingNetExporter.export(petriNet, temporaryFile);
+				Files.move(temporaryFile, outputFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temporaryFile);
+			}
+			compiledContents.put(file, content);
+			long millis = (System.nanoTime() - start) / 1_000_000;
+			int retranslated = compiler.getRetranslatedActivities().size();
+			out.println(String.format("%s -> %s in %dms (%d of %d activities retranslated)",
+					file, outputFile, millis, retranslated, retranslated + compiler.getReusedActivities().size()));
+		} catch (Exception | AssertionError e) {
+			out.println(String.format("FAILED %s: %s", file, e));
+		}
+		compilations++;
+	}
+
+	private Path outputFileFor(Path file) {
+		String name = file.getFileName().toString().replaceAll("\\.bpmn$", "")+".cpn";
+		return outputDirectory != null ? outputDirectory.resolve(name) : file.resolveSibling(name);
+	}
+}
@@ -0,0 +1,250 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import static de.uni_potsdam.hpi.bpt.fcm2cpn.Utils.normalizeElementName;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.camunda.bpm.model.bpmn.instance.DataObjectReference;
+import org.camunda.bpm.model.bpmn.instance.DataStoreReference;
+import org.camunda.bpm.model.bpmn.instance.ItemAwareElement;
+import org.cpntools.accesscpn.model.Arc;
+import org.cpntools.accesscpn.model.Node;
+import org.cpntools.accesscpn.model.Page;
+import org.cpntools.accesscpn.model.RefPlace;
+import org.cpntools.accesscpn.model.Transition;
+
+/**
+ * Explains the size of a net: maps each subpage transition, subpage arc and reference place to the bpmn element whose subpage it is on,
+ * and to the data associations that caused it, e.g. the transput set of a transition or the data association of an arc.<br>
+ * Only records if enabled, see {@link CompilerApp#setAttribution(boolean)}.
+ */
+public class NetAttribution {
+
+	public enum Kind {
+		TRANSITION, ARC, REFERENCE_PLACE
+	}
+
+	private final boolean enabled;
+	/** Bpmn element ids of the subpages*/
+	private final Map<Page, String> subpageElements = new HashMap<>();
+	private final List<Entry> entries = new ArrayList<>();
+
+	public NetAttribution(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	void addSubpage(Page page, String elementId) {
+		if(!enabled) return;
+		subpageElements.put(page, elementId);
+	}
+
+	/**
+	 * Records a subpage transition that was created for the given transput set
+	 */
+	void transition(Transition transition, String cause, Collection<? extends StatefulDataAssociation<?>> transputSet) {
+		if(!enabled) return;
+		entries.add(new Entry(Kind.TRANSITION, subpageElements.get(transition.getPage()), transition.getId(), transition.getName().asString(), cause, describe(transputSet.stream()), 0));
+	}
+
+	/**
+	 * Records a subpage arc, the association is null if the arc is not caused by a data association
+	 */
+	void arc(Arc arc, String cause, StatefulDataAssociation<?> association) {
+		if(!enabled) return;
+		Page page = arc.getPage();
+		List<String> associations = association == null ? Collections.emptyList() : describe(Stream.of(association));
+		entries.add(new Entry(Kind.ARC, subpageElements.get(page), arc.getId(), nameOf(arc.getSource())+" -> "+nameOf(arc.getTarget()), cause, associations, arc.getTarget() instanceof Transition ? 1 : 0));
+	}
+
+	void referencePlace(RefPlace place, String cause) {
+		if(!enabled) return;
+		entries.add(new Entry(Kind.REFERENCE_PLACE, subpageElements.get(place.getPage()), place.getId(), place.getName().asString(), cause, Collections.emptyList(), 0));
+	}
+
+	private static String nameOf(Node node) {
+		return node.getName() == null || node.getName().asString() == null ? node.getId() : node.getName().asString();
+	}
+
+	/**
+	 * Describes data associations by id, data element and state, e.g. <code>DataInputAssociation_1 (A [x])</code>
+	 */
+	private static List<String> describe(Stream<? extends StatefulDataAssociation<?>> associations) {
+		return associations
+				.map(association -> association.getBpmnAssociation().getId()+" ("+dataElementName(association.getDataElement())
+					+association.getStateName().map(state -> " ["+state+"]").orElse("")+")")
+				.collect(Collectors.toList());
+	}
+
+	private static String dataElementName(ItemAwareElement dataElement) {
+		String name = null;
+		if(dataElement instanceof DataObjectReference) name = ((DataObjectReference) dataElement).getDataObject().getName();
+		if(dataElement instanceof DataStoreReference) name = ((DataStoreReference) dataElement).getDataStore().getName();
+		return name == null ? dataElement.getId() : normalizeElementName(name);
+	}
+
+	public List<Entry> getEntries() {
+		return Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * Number of generated net elements per bpmn element, largest first
+	 */
+	public List<Contribution> rankByElement() {
+		return rank(entries.stream().collect(Collectors.groupingBy(Entry::getElementId, LinkedHashMap::new, Collectors.toList())));
+	}
+
+	/**
+	 * Number of transitions and arcs each data association takes part in, largest first
+	 */
+	public List<Contribution> rankByDataAssociation() {
+		Map<String, List<Entry>> entriesPerAssociation = new LinkedHashMap<>();
+		entries.forEach(entry -> entry.getDataAssociations().forEach(association -> entriesPerAssociation.computeIfAbsent(association, _association -> new ArrayList<>()).add(entry)));
+		return rank(entriesPerAssociation);
+	}
+
+	private List<Contribution> rank(Map<String, List<Entry>> entriesPerKey) {
+		Map<String, String> pageNames = new HashMap<>();
+		subpageElements.forEach((page, elementId) -> pageNames.put(elementId, page.getName().asString()));
+		return entriesPerKey.entrySet().stream()
+				.map(each -> new Contribution(each.getKey(), pageNames.getOrDefault(each.getKey(), ""), each.getValue()))
+				.sorted(Comparator.comparingLong(Contribution::getSize).thenComparingLong(Contribution::getInputArcs).reversed())
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Human readable report: the ranked tables of bpmn elements and data associations, followed by the origin of each net element
+	 */
+	public String report() {
+		StringBuilder report = new StringBuilder();
+		report.append("Net size per bpmn element\n");
+		appendTable(report, "Element", rankByElement());
+		report.append("\nNet size per data association\n");
+		appendTable(report, "Data association", rankByDataAssociation());
+		report.append("\nOrigin of net elements\n");
+		entries.forEach(entry -> report.append(String.format("%s %s \"%s\" <- %s: %s%s%n",
+				entry.getKind().name().toLowerCase(), entry.getNetElementId(), entry.getNetElementName(), entry.getElementId(), entry.getCause(),
+				entry.getDataAssociations().isEmpty() ? "" : " "+entry.getDataAssociations())));
+		return report.toString();
+	}
+
+	private static void appendTable(StringBuilder report, String keyHeader, List<Contribution> contributions) {
+		report.append(String.format("%5s %12s %8s %17s %11s  %s%n", "Rank", "Transitions", "Arcs", "Reference places", "Input arcs", keyHeader));
+		for(int i = 0; i < contributions.size(); i++) {
+			Contribution contribution = contributions.get(i);
+			report.append(String.format("%5d %12d %8d %17d %11d  %s%s%n", i + 1,
+					contribution.getTransitions(), contribution.getArcs(), contribution.getReferencePlaces(), contribution.getInputArcs(),
+					contribution.getKey(), contribution.getName().isEmpty() || contribution.getName().equals(contribution.getKey()) ? "" : " \""+contribution.getName()+"\""));
+		}
+	}
+
+	/**
+	 * Origin of one net element
+	 */
+	public static class Entry {
+		private final Kind kind;
+		private final String elementId;
+		private final String netElementId;
+		private final String netElementName;
+		private final String cause;
+		private final List<String> dataAssociations;
+		private final int inputArcs;
+
+		private Entry(Kind kind, String elementId, String netElementId, String netElementName, String cause, List<String> dataAssociations, int inputArcs) {
+			this.kind = kind;
+			this.elementId = elementId;
+			this.netElementId = netElementId;
+			this.netElementName = netElementName;
+			this.cause = cause;
+			this.dataAssociations = dataAssociations;
+			this.inputArcs = inputArcs;
+		}
+
+		public Kind getKind() {
+			return kind;
+		}
+
+		/** Id of the bpmn element whose subpage contains the net element*/
+		public String getElementId() {
+			return elementId;
+		}
+
+		public String getNetElementId() {
+			return netElementId;
+		}
+
+		public String getNetElementName() {
+			return netElementName;
+		}
+
+		public String getCause() {
+			return cause;
+		}
+
+		public List<String> getDataAssociations() {
+			return dataAssociations;
+		}
+	}
+
+	/**
+	 * Net elements that are attributed to one bpmn element or data association.<br>
+	 * Input arcs approximate the simulation cost, as each of them has to be bound when checking whether a transition is enabled.
+	 */
+	public static class Contribution {
+		private final String key;
+		private final String name;
+		private final long transitions;
+		private final long arcs;
+		private final long referencePlaces;
+		private final long inputArcs;
+
+		private Contribution(String key, String name, List<Entry> entries) {
+			this.key = key;
+			this.name = name;
+			this.transitions = entries.stream().filter(entry -> entry.kind == Kind.TRANSITION).count();
+			this.arcs = entries.stream().filter(entry -> entry.kind == Kind.ARC).count();
+			this.referencePlaces = entries.stream().filter(entry -> entry.kind == Kind.REFERENCE_PLACE).count();
+			this.inputArcs = entries.stream().mapToLong(entry -> entry.inputArcs).sum();
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getTransitions() {
+			return transitions;
+		}
+
+		public long getArcs() {
+			return arcs;
+		}
+
+		public long getReferencePlaces() {
+			return referencePlaces;
+		}
+
+		public long getInputArcs() {
+			return inputArcs;
+		}
+
+		public long getSize() {
+			return transitions + arcs + referencePlaces;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Predicted size of the activity subpages of a net, see {@link NetSizeEstimator}
+ */
+public class NetSizeEstimate {
+
+	private final List<ActivityEstimate> activities;
+
+	public NetSizeEstimate(List<ActivityEstimate> activities) {
+		this.activities = activities;
+	}
+
+	public List<ActivityEstimate> getActivities() {
+		return Collections.unmodifiableList(activities);
+	}
+
+	public long getTransitions() {
+		return total(ActivityEstimate::getTransitions);
+	}
+
+	public long getArcs() {
+		return total(ActivityEstimate::getArcs);
+	}
+
+	public long getReferencePlaces() {
+		return total(ActivityEstimate::getReferencePlaces);
+	}
+
+	private long total(ToLongFunction<ActivityEstimate> count) {
+		return activities.stream().mapToLong(count).reduce(0, NetSizeEstimator::saturatedAdd);
+	}
+
+	@Override
+	public String toString() {
+		return getTransitions()+" transitions, "+getArcs()+" arcs, "+getReferencePlaces()+" reference places in "+activities.size()+" activities";
+	}
+
+	/**
+	 * Predicted size of the subpage of one activity
+	 */
+	public static class ActivityEstimate {
+		private final String id;
+		private final String name;
+		private final long transitions;
+		private final long arcs;
+		private final long referencePlaces;
+
+		public ActivityEstimate(String id, String name, long transitions, long arcs, long referencePlaces) {
+			this.id = id;
+			this.name = name;
+			this.transitions = transitions;
+			this.arcs = arcs;
+			this.referencePlaces = referencePlaces;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getTransitions() {
+			return transitions;
+		}
+
+		public long getArcs() {
+			return arcs;
+		}
+
+		public long getReferencePlaces() {
+			return referencePlaces;
+		}
+
+		@Override
+		public String toString() {
+			return "\""+name+"\" ("+id+"): "+transitions+" transitions, "+arcs+" arcs, "+referencePlaces+" reference places";
+		}
+	}
+}
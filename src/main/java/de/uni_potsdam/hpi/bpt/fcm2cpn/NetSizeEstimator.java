@@ -0,0 +1,214 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import static de.uni_potsdam.hpi.bpt.fcm2cpn.Utils.dataObjectStateToNetColors;
+import static de.uni_potsdam.hpi.bpt.fcm2cpn.Utils.normalizeElementName;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.camunda.bpm.model.bpmn.instance.Activity;
+import org.camunda.bpm.model.bpmn.instance.DataAssociation;
+import org.camunda.bpm.model.bpmn.instance.DataObjectReference;
+import org.camunda.bpm.model.bpmn.instance.DataStoreReference;
+import org.camunda.bpm.model.bpmn.instance.ItemAwareElement;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.CompilerApp.StateEncoding;
+import de.uni_potsdam.hpi.bpt.fcm2cpn.NetSizeEstimate.ActivityEstimate;
+
+/**
+ * Predicts the size of the activity subpages of a net from the bpmn model only, i.e. before any net elements are created.<br>
+ * Follows the rules of {@link CompilerApp#translateActivities()}: each io-combination, or each combination of all read and written data elements if there is no io-specification,
+ * is multiplied out over the states of its data associations; only the numbers of combinations are computed, not the combinations themselves.
+ * Associations between data objects depend on the data model and are not resolved, so their arcs are estimated as upper bound.
+ */
+public class NetSizeEstimator {
+
+	private final ModelElementIndex elements;
+	private final DataAssociationIndex dataAssociations;
+	private final StateEncoding stateEncoding;
+
+	public NetSizeEstimator(ModelElementIndex elements, DataAssociationIndex dataAssociations, StateEncoding stateEncoding) {
+		this.elements = elements;
+		this.dataAssociations = dataAssociations;
+		this.stateEncoding = stateEncoding;
+	}
+
+	public NetSizeEstimate estimate() {
+		return new NetSizeEstimate(elements.getModelElementsByType(Activity.class).stream()
+				.map(this::estimate)
+				.collect(Collectors.toList()));
+	}
+
+	private ActivityEstimate estimate(Activity activity) {
+		List<IoCombination> combinations = specifiedCombinations(activity);
+		if(combinations.isEmpty()) {
+			combinations.add(new IoCombination(variantsPerElement(activity.getDataInputAssociations()), variantsPerElement(activity.getDataOutputAssociations()), Map.of(), Map.of()));
+		}
+
+		// Each subpage transition consumes from and produces to the control flow places of the activity
+		int controlFlows = activity.getIncoming().size() + activity.getOutgoing().size();
+		long transitions = 0;
+		long arcs = 0;
+		Set<String> referencedElements = new HashSet<>();
+		boolean accessesAssociations = false;
+		Set<String> createdObjects = new HashSet<>();
+		for(IoCombination combination : combinations) {
+			long size = combination.size();
+			transitions = saturatedAdd(transitions, size);
+			arcs = saturatedAdd(arcs, saturatedMultiply(size, combination.arcsPerTransition() + controlFlows));
+			referencedElements.addAll(combination.readElements());
+			referencedElements.addAll(combination.writtenElements());
+			accessesAssociations |= combination.accessesAssociations();
+			createdObjects.addAll(combination.createdObjects());
+		}
+		long referencePlaces = referencedElements.size() + createdObjects.size() + (accessesAssociations ? 1 : 0) + controlFlows;
+		return new ActivityEstimate(activity.getId(), activity.getName(), transitions, arcs, referencePlaces);
+	}
+
+	/**
+	 * One combination per pair of input set and output set of the io-specification, none if there is no io-specification
+	 */
+	private List<IoCombination> specifiedCombinations(Activity activity) {
+		List<IoCombination> combinations = new ArrayList<>();
+		if(activity.getIoSpecification() == null) return combinations;
+
+		//Data Stores are (at least in Signavio) not part of input or output sets, they are added to each transput set in all their states
+		Map<String, Integer> dataStoreInputs = variantsPerElement(activity.getDataInputAssociations().stream()
+				.filter(assoc -> dataAssociations.getSource(assoc) instanceof DataStoreReference)
+				.collect(Collectors.toList()));
+		Map<String, Integer> dataStoreOutputs = variantsPerElement(activity.getDataOutputAssociations().stream()
+				.filter(assoc -> dataAssociations.getTarget(assoc) instanceof DataStoreReference)
+				.collect(Collectors.toList()));
+
+		activity.getIoSpecification().getInputSets().forEach(inputSet -> {
+			Map<String, Integer> inputs = variantsPerElement(inputSet.getDataInputs().stream().map(dataAssociations::getAssociation).collect(Collectors.toList()));
+			inputSet.getOutputSets().forEach(outputSet -> {
+				Map<String, Integer> outputs = variantsPerElement(outputSet.getDataOutputRefs().stream().map(dataAssociations::getAssociation).collect(Collectors.toList()));
+				combinations.add(new IoCombination(inputs, outputs, dataStoreInputs, dataStoreOutputs));
+			});
+		});
+		return combinations;
+	}
+
+	/**
+	 * Number of state variants per read or written data element; associations to the same element are alternatives, as they are grouped by the compiler
+	 */
+	private Map<String, Integer> variantsPerElement(Collection<? extends DataAssociation> associations) {
+		Map<String, Integer> variants = new LinkedHashMap<>();
+		associations.forEach(assoc -> variants.merge(elementKey(assoc), variants(assoc), Integer::sum));
+		return variants;
+	}
+
+	/**
+	 * Number of stateful associations a data association is split into, see {@link CompilerApp#splitDataAssociationByState}
+	 */
+	private int variants(DataAssociation assoc) {
+		ItemAwareElement dataElement = dataAssociations.getDataElement(assoc);
+		if(dataElement.getDataState() == null || dataElement.getDataState().getName() == null) return 1;
+		if(stateEncoding == StateEncoding.SYMBOLIC && dataElement instanceof DataObjectReference) return 1;
+		return (int) dataObjectStateToNetColors(dataElement.getDataState().getName()).count();
+	}
+
+	/**
+	 * Identifies the data element of an association like the wrappers of the compiler do, i.e. by normalized name; data object keys start with "o:", data store keys with "s:"
+	 */
+	private String elementKey(DataAssociation assoc) {
+		ItemAwareElement dataElement = dataAssociations.getDataElement(assoc);
+		if(dataElement instanceof DataObjectReference) return "o:"+normalizeElementName(((DataObjectReference) dataElement).getDataObject().getName());
+		return "s:"+normalizeElementName(((DataStoreReference) dataElement).getDataStore().getName());
+	}
+
+	private static boolean isDataObject(String elementKey) {
+		return elementKey.startsWith("o:");
+	}
+
+	static long saturatedAdd(long a, long b) {
+		long sum = a + b;
+		return sum < 0 ? Long.MAX_VALUE : sum;
+	}
+
+	static long saturatedMultiply(long a, long b) {
+		try {
+			return Math.multiplyExact(a, b);
+		} catch (ArithmeticException overflow) {
+			return Long.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * One product of input and output variants; all its transput sets access the same data elements, so they all have the same number of arcs.<br>
+	 * Additional inputs and outputs, i.e. data stores of io-specified activities, are part of each transput set in all their states instead of being multiplied out.
+	 */
+	private static class IoCombination {
+		private final Map<String, Integer> inputs;
+		private final Map<String, Integer> outputs;
+		private final Map<String, Integer> additionalInputs;
+		private final Map<String, Integer> additionalOutputs;
+
+		private IoCombination(Map<String, Integer> inputs, Map<String, Integer> outputs, Map<String, Integer> additionalInputs, Map<String, Integer> additionalOutputs) {
+			this.inputs = inputs;
+			this.outputs = outputs;
+			this.additionalInputs = additionalInputs;
+			this.additionalOutputs = additionalOutputs;
+		}
+
+		private static int sum(Map<String, Integer> variants) {
+			return variants.values().stream().mapToInt(Integer::intValue).sum();
+		}
+
+		private long size() {
+			return Stream.concat(inputs.values().stream(), outputs.values().stream())
+					.mapToLong(Integer::longValue)
+					.reduce(1, NetSizeEstimator::saturatedMultiply);
+		}
+
+		private Set<String> readElements() {
+			Set<String> read = new HashSet<>(inputs.keySet());
+			read.addAll(additionalInputs.keySet());
+			return read;
+		}
+
+		private Set<String> writtenElements() {
+			Set<String> written = new HashSet<>(outputs.keySet());
+			written.addAll(additionalOutputs.keySet());
+			return written;
+		}
+
+		private Set<String> createdObjects() {
+			Set<String> created = writtenElements();
+			created.removeAll(readElements());
+			created.removeIf(key -> !isDataObject(key));
+			return created;
+		}
+
+		private boolean accessesAssociations() {
+			Set<String> accessed = readElements();
+			accessed.addAll(writtenElements());
+			return accessed.stream().filter(NetSizeEstimator::isDataObject).count() >= 2;
+		}
+
+		/**
+		 * Reading and writing arcs for each accessed data element, write back arcs for elements that are only read, creation counter and association arcs
+		 */
+		private long arcsPerTransition() {
+			Set<String> read = readElements();
+			Set<String> written = writtenElements();
+			long readOnly = inputs.keySet().stream().filter(key -> !written.contains(key)).count()
+					+ additionalInputs.entrySet().stream().filter(entry -> !written.contains(entry.getKey())).mapToInt(Map.Entry::getValue).sum();
+			long writtenDataStoresNotRead = written.stream().filter(key -> !isDataObject(key) && !read.contains(key)).count();
+			return inputs.size() + sum(additionalInputs)
+					+ outputs.size() + sum(additionalOutputs)
+					+ readOnly
+					+ writtenDataStoresNotRead
+					+ 2 * createdObjects().size()
+					+ (accessesAssociations() ? 2 : 0);
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+/**
+ * Thrown before translation if the {@link NetSizeEstimate estimated} net exceeds the {@link NetSizeLimits limits}
+ */
+public class NetSizeLimitExceededException extends IllegalArgumentException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient NetSizeEstimate estimate;
+
+	public NetSizeLimitExceededException(NetSizeEstimate estimate, String report) {
+		super(report);
+		this.estimate = estimate;
+	}
+
+	public NetSizeEstimate getEstimate() {
+		return estimate;
+	}
+}
@@ -0,0 +1,77 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.NetSizeEstimate.ActivityEstimate;
+
+/**
+ * Maximum sizes of a net; checked against the {@link NetSizeEstimate estimate} before the net is built, so that oversized models fail before they exhaust the heap.<br>
+ * The default limits can be set via the system properties <code>fcm2cpn.maxTransitionsPerActivity</code>, <code>fcm2cpn.maxTransitions</code> and <code>fcm2cpn.maxArcs</code>.
+ */
+public class NetSizeLimits {
+
+	public static final NetSizeLimits DEFAULT = new NetSizeLimits(
+			Long.getLong("fcm2cpn.maxTransitionsPerActivity", 1L << 16),
+			Long.getLong("fcm2cpn.maxTransitions", 1L << 20),
+			Long.getLong("fcm2cpn.maxArcs", 1L << 22));
+
+	public static final NetSizeLimits UNLIMITED = new NetSizeLimits(Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+
+	/** Number of activities named in the report if only a total limit is exceeded*/
+	private static final int LARGEST_ACTIVITIES_REPORTED = 5;
+
+	private final long maxTransitionsPerActivity;
+	private final long maxTransitions;
+	private final long maxArcs;
+
+	public NetSizeLimits(long maxTransitionsPerActivity, long maxTransitions, long maxArcs) {
+		this.maxTransitionsPerActivity = maxTransitionsPerActivity;
+		this.maxTransitions = maxTransitions;
+		this.maxArcs = maxArcs;
+	}
+
+	/**
+	 * @throws NetSizeLimitExceededException with a report that names the offending activities, if any limit is exceeded
+	 */
+	public void check(NetSizeEstimate estimate) {
+		List<String> violations = new ArrayList<>();
+		List<ActivityEstimate> offendingActivities = estimate.getActivities().stream()
+				.filter(activity -> activity.getTransitions() > maxTransitionsPerActivity)
+				.collect(Collectors.toList());
+		offendingActivities.forEach(activity -> violations.add("Activity "+activity+" exceeds the maximum of "+maxTransitionsPerActivity+" transitions per activity"));
+		boolean exceedsTotal = false;
+		if(estimate.getTransitions() > maxTransitions) {
+			violations.add("Net with "+estimate.getTransitions()+" transitions exceeds the maximum of "+maxTransitions+" transitions");
+			exceedsTotal = true;
+		}
+		if(estimate.getArcs() > maxArcs) {
+			violations.add("Net with "+estimate.getArcs()+" arcs exceeds the maximum of "+maxArcs+" arcs");
+			exceedsTotal = true;
+		}
+		if(violations.isEmpty()) return;
+		if(exceedsTotal && offendingActivities.isEmpty()) {
+			violations.add("Largest activities:");
+			estimate.getActivities().stream()
+				.sorted(Comparator.comparingLong(ActivityEstimate::getTransitions).thenComparingLong(ActivityEstimate::getArcs).reversed())
+				.limit(LARGEST_ACTIVITIES_REPORTED)
+				.forEach(activity -> violations.add("  "+activity));
+		}
+		throw new NetSizeLimitExceededException(estimate, "Estimated net size exceeds limits:\n"+String.join("\n", violations));
+	}
+
+	public long getMaxTransitionsPerActivity() {
+		return maxTransitionsPerActivity;
+	}
+
+	public long getMaxTransitions() {
+		return maxTransitions;
+	}
+
+	public long getMaxArcs() {
+		return maxArcs;
+	}
+
+}
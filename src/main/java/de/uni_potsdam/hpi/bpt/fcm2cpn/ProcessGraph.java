@@ -0,0 +1,212 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.instance.Activity;
+import org.camunda.bpm.model.bpmn.instance.BoundaryEvent;
+import org.camunda.bpm.model.bpmn.instance.DataAssociation;
+import org.camunda.bpm.model.bpmn.instance.DataInputAssociation;
+import org.camunda.bpm.model.bpmn.instance.DataObjectReference;
+import org.camunda.bpm.model.bpmn.instance.DataOutputAssociation;
+import org.camunda.bpm.model.bpmn.instance.DataStoreReference;
+import org.camunda.bpm.model.bpmn.instance.EndEvent;
+import org.camunda.bpm.model.bpmn.instance.ExclusiveGateway;
+import org.camunda.bpm.model.bpmn.instance.FlowNode;
+import org.camunda.bpm.model.bpmn.instance.ItemAwareElement;
+import org.camunda.bpm.model.bpmn.instance.ParallelGateway;
+import org.camunda.bpm.model.bpmn.instance.SequenceFlow;
+import org.camunda.bpm.model.bpmn.instance.StartEvent;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+
+/**
+ * Intermediate representation of a bpmn model that the translation passes of the {@link CompilerApp} work on, built once per compilation.<br>
+ * Flow nodes, sequence flows, data references (data object and data store references) and data associations are numbered densely.
+ * The graph lists the flow nodes of each kind, the activity of each boundary event, the source and target node of each sequence flow and the data reference of each association as ids,
+ * so that the passes can keep their results in arrays indexed by these ids instead of maps keyed by model elements.
+ * The model elements of flow nodes and data references are kept for their names, states and io-specifications;
+ * passes that start from a model element, e.g. a data association of an io-specification, look up its id in an identity map. Instances are immutable.
+ */
+public class ProcessGraph {
+
+	/** Id returned if there is no such element*/
+	public static final int NONE = -1;
+
+	private final FlowNode[] flowNodes;
+	/** Flow nodes of each kind, in the order in which the model returns them, which is the order they are translated in*/
+	private final int[] activities;
+	private final int[] startEvents;
+	private final int[] endEvents;
+	private final int[] boundaryEvents;
+	private final int[] exclusiveGateways;
+	private final int[] parallelGateways;
+	/** Activity each boundary event is attached to, {@link #NONE} for other flow nodes*/
+	private final int[] attachedTo;
+
+	/** Source and target flow node of each sequence flow*/
+	private final int[] flowSources;
+	private final int[] flowTargets;
+
+	/** Data object references first, then data store references*/
+	private final ItemAwareElement[] dataReferences;
+	private final int dataObjectReferenceCount;
+
+	/** Input associations first, then output associations*/
+	private final DataAssociation[] associations;
+	/** Data reference that is read or written via each association*/
+	private final int[] associationReferences;
+
+	/** Ids of all numbered elements, used only where the passes start from model elements*/
+	private final Map<ModelElementInstance, Integer> ids = new IdentityHashMap<>();
+
+	public ProcessGraph(BpmnModelInstance bpmn, DataAssociationIndex dataAssociations) {
+		this(new ModelElementIndex(bpmn), dataAssociations);
+	}
+
+	public ProcessGraph(ModelElementIndex elements, DataAssociationIndex dataAssociations) {
+		flowNodes = number(elements.getModelElementsByType(FlowNode.class), 0).toArray(new FlowNode[0]);
+		activities = idsOf(elements.getModelElementsByType(Activity.class));
+		startEvents = idsOf(elements.getModelElementsByType(StartEvent.class));
+		endEvents = idsOf(elements.getModelElementsByType(EndEvent.class));
+		boundaryEvents = idsOf(elements.getModelElementsByType(BoundaryEvent.class));
+		exclusiveGateways = idsOf(elements.getModelElementsByType(ExclusiveGateway.class));
+		parallelGateways = idsOf(elements.getModelElementsByType(ParallelGateway.class));
+		attachedTo = new int[flowNodes.length];
+		Arrays.fill(attachedTo, NONE);
+		for(int event : boundaryEvents) {
+			attachedTo[event] = idIn(flowNodes, ((BoundaryEvent) flowNodes[event]).getAttachedTo());
+		}
+
+		List<SequenceFlow> sequenceFlows = elements.getModelElementsByType(SequenceFlow.class);
+		flowSources = new int[sequenceFlows.size()];
+		flowTargets = new int[sequenceFlows.size()];
+		for(int flow = 0; flow < sequenceFlows.size(); flow++) {
+			flowSources[flow] = idIn(flowNodes, sequenceFlows.get(flow).getSource());
+			flowTargets[flow] = idIn(flowNodes, sequenceFlows.get(flow).getTarget());
+		}
+
+		List<ItemAwareElement> references = new ArrayList<>(number(elements.getModelElementsByType(DataObjectReference.class), 0));
+		dataObjectReferenceCount = references.size();
+		references.addAll(number(elements.getModelElementsByType(DataStoreReference.class), references.size()));
+		dataReferences = references.toArray(new ItemAwareElement[0]);
+
+		List<DataAssociation> allAssociations = new ArrayList<>(number(elements.getModelElementsByType(DataInputAssociation.class), 0));
+		allAssociations.addAll(number(elements.getModelElementsByType(DataOutputAssociation.class), allAssociations.size()));
+		associations = allAssociations.toArray(new DataAssociation[0]);
+		associationReferences = new int[associations.length];
+		for(int assoc = 0; assoc < associations.length; assoc++) {
+			associationReferences[assoc] = idIn(dataReferences, dataAssociations.getDataElement(associations[assoc]));
+		}
+	}
+
+	/**
+	 * Assigns consecutive ids to the elements, starting with the first id
+	 */
+	private <T extends ModelElementInstance> Collection<T> number(Collection<T> elements, int first) {
+		int id = first;
+		for(T element : elements) ids.put(element, id++);
+		return elements;
+	}
+
+	private int[] idsOf(Collection<? extends FlowNode> nodes) {
+		return nodes.stream().mapToInt(node -> idIn(flowNodes, node)).toArray();
+	}
+
+	private int idOf(ModelElementInstance element) {
+		return element == null ? NONE : ids.getOrDefault(element, NONE);
+	}
+
+	/**
+	 * Id of the element if it is numbered in the array, {@link #NONE} otherwise; elements of different kinds may share ids
+	 */
+	private int idIn(ModelElementInstance[] elements, ModelElementInstance element) {
+		int id = idOf(element);
+		return id != NONE && id < elements.length && elements[id] == element ? id : NONE;
+	}
+
+	public int flowNodeCount() {
+		return flowNodes.length;
+	}
+
+	public FlowNode flowNode(int node) {
+		return flowNodes[node];
+	}
+
+	/** Id of the flow node, {@link #NONE} if it is not part of the model*/
+	public int flowNodeId(FlowNode node) {
+		return idIn(flowNodes, node);
+	}
+
+	public int[] activities() {
+		return activities.clone();
+	}
+
+	public int[] startEvents() {
+		return startEvents.clone();
+	}
+
+	public int[] endEvents() {
+		return endEvents.clone();
+	}
+
+	public int[] boundaryEvents() {
+		return boundaryEvents.clone();
+	}
+
+	public int[] exclusiveGateways() {
+		return exclusiveGateways.clone();
+	}
+
+	public int[] parallelGateways() {
+		return parallelGateways.clone();
+	}
+
+	/** The activity the boundary event is attached to, {@link #NONE} if the node is no boundary event*/
+	public int attachedTo(int node) {
+		return attachedTo[node];
+	}
+
+	public int sequenceFlowCount() {
+		return flowSources.length;
+	}
+
+	public int source(int flow) {
+		return flowSources[flow];
+	}
+
+	public int target(int flow) {
+		return flowTargets[flow];
+	}
+
+	public int dataReferenceCount() {
+		return dataReferences.length;
+	}
+
+	public ItemAwareElement dataReference(int reference) {
+		return dataReferences[reference];
+	}
+
+	public boolean isDataObjectReference(int reference) {
+		return reference < dataObjectReferenceCount;
+	}
+
+	/**
+	 * @throws NoSuchElementException if the association is not part of the model
+	 */
+	public int associationId(DataAssociation assoc) {
+		int id = idIn(associations, assoc);
+		if(id == NONE) throw new NoSuchElementException("No data association "+assoc.getId());
+		return id;
+	}
+
+	/** Data reference that is read or written via the association, {@link #NONE} if it cannot be resolved*/
+	public int dataReferenceOf(int assoc) {
+		return associationReferences[assoc];
+	}
+}
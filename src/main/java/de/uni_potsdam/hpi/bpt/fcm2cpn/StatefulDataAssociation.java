@@ -1,7 +1,10 @@
 package de.uni_potsdam.hpi.bpt.fcm2cpn;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import org.camunda.bpm.model.bpmn.instance.DataAssociation;
 import org.camunda.bpm.model.bpmn.instance.DataObjectReference;
@@ -11,13 +14,29 @@ import org.camunda.bpm.model.bpmn.instance.ItemAwareElement;
 public class StatefulDataAssociation<T extends DataAssociation> {
 	private final Optional<String> stateName;
 	private final ItemAwareElement dataElement;//DataObjectReference or DataStoreReference
+	private final int dataReference;//Id of the data element in the ProcessGraph
 	private final T bpmnAssociation;//DataInputAssociation or DataOutputAssociation
-	public StatefulDataAssociation(T bpmnAssociation, String stateName, ItemAwareElement dataElement) {
+	private final List<String> possibleStates;//States a state variable can be bound to, empty if the state name is a single state
+	public StatefulDataAssociation(T bpmnAssociation, String stateName, ItemAwareElement dataElement, int dataReference) {
+		this(bpmnAssociation, stateName, Collections.emptyList(), dataElement, dataReference);
+	}
+	
+	private StatefulDataAssociation(T bpmnAssociation, String stateName, List<String> possibleStates, ItemAwareElement dataElement, int dataReference) {
 		this.bpmnAssociation = bpmnAssociation;
 		this.stateName = Optional.ofNullable(stateName);
+		this.possibleStates = possibleStates;
 		
 		assert dataElement instanceof DataObjectReference || dataElement instanceof DataStoreReference;
 		this.dataElement = dataElement;
+		this.dataReference = dataReference;
+	}
+	
+	/**
+	 * Creates an association whose state is not fixed but bound to a variable, which is restricted to the possible states by {@link #stateGuard()}
+	 */
+	public static <T extends DataAssociation> StatefulDataAssociation<T> withStateVariable(T bpmnAssociation, String stateVariable, List<String> possibleStates, ItemAwareElement dataElement, int dataReference) {
+		assert !possibleStates.isEmpty();
+		return new StatefulDataAssociation<>(bpmnAssociation, stateVariable, possibleStates, dataElement, dataReference);
 	}
 	
 	public Optional<String> getStateName() {
@@ -28,9 +47,28 @@ public class StatefulDataAssociation<T extends DataAssociation> {
 		return dataElement;
 	}
 
+	/** Id of the {@link #getDataElement() data element} in the {@link ProcessGraph} of the compilation*/
+	public int getDataReference() {
+		return dataReference;
+	}
+
 	public T getBpmnAssociation() {
 		return bpmnAssociation;
 	}
+	
+	public boolean hasStateVariable() {
+		return !possibleStates.isEmpty();
+	}
+	
+	/**
+	 * Guard that restricts the state variable to the possible states, e.g. <code>(AInState = X orelse AInState = Y)</code>; empty if the state is fixed
+	 */
+	public Optional<String> stateGuard() {
+		if(!hasStateVariable()) return Optional.empty();
+		return Optional.of(possibleStates.stream()
+				.map(state -> stateName.get()+" = "+state)
+				.collect(Collectors.joining(" orelse ", "(", ")")));
+	}
 
 	@Override
 	public int hashCode() {
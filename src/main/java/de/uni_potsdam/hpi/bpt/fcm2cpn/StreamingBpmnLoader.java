@@ -0,0 +1,123 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.camunda.bpm.model.bpmn.BpmnModelException;
+import org.camunda.bpm.model.bpmn.impl.BpmnModelConstants;
+
+/**
+ * Reads bpmn files with a streaming xml parser into a {@link CompactBpmnModel}.<br>
+ * Only the elements the compiler translates are kept: flow nodes, sequence flows, data objects and stores, data associations and io-specifications.
+ * Everything else, in particular diagram interchange, extension elements and documentation, which make up most of typical (e.g. Signavio) exports, is skipped without being materialized.
+ * Unlike {@link org.camunda.bpm.model.bpmn.Bpmn#readModelFromFile(java.io.File)}, the file is not validated against the bpmn schema.
+ */
+public class StreamingBpmnLoader {
+
+	/** Local names of the bpmn elements that are kept; other elements are skipped together with their content*/
+	static final Set<String> TRANSLATED_ELEMENTS = Set.of(
+			"definitions", "process", "collaboration", "participant",
+			"task", "userTask", "serviceTask", "sendTask", "receiveTask", "manualTask", "businessRuleTask", "scriptTask", "callActivity",
+			"subProcess", "adHocSubProcess", "transaction",
+			"startEvent", "endEvent", "intermediateCatchEvent", "intermediateThrowEvent", "boundaryEvent",
+			"exclusiveGateway", "parallelGateway", "inclusiveGateway", "eventBasedGateway", "complexGateway",
+			"sequenceFlow", "incoming", "outgoing",
+			"dataObject", "dataObjectReference", "dataStore", "dataStoreReference", "dataState",
+			"ioSpecification", "dataInput", "dataOutput", "inputSet", "outputSet", "property",
+			"dataInputRefs", "optionalInputRefs", "whileExecutingInputRefs", "outputSetRefs",
+			"dataOutputRefs", "optionalOutputRefs", "whileExecutingOutputRefs", "inputSetRefs",
+			"dataInputAssociation", "dataOutputAssociation", "sourceRef", "targetRef");
+
+	private static final XMLInputFactory FACTORY = createFactory();
+
+	private StreamingBpmnLoader() {}
+
+	public static CompactBpmnModel load(Path file) throws IOException {
+		try(InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+			return load(in);
+		}
+	}
+
+	/**
+	 * @throws BpmnModelException if the stream contains no well-formed bpmn model
+	 */
+	public static CompactBpmnModel load(InputStream in) {
+		CompactBpmnModel.Builder model = new CompactBpmnModel.Builder();
+		try {
+			XMLStreamReader reader = FACTORY.createXMLStreamReader(in);
+			try {
+				read(reader, model);
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new BpmnModelException("Could not parse bpmn model: "+e.getMessage(), e);
+		}
+		return model.build();
+	}
+
+	private static void read(XMLStreamReader reader, CompactBpmnModel.Builder model) throws XMLStreamException {
+		// Index of the innermost kept element; the depth below it in skipped elements
+		int current = CompactBpmnModel.NO_ELEMENT;
+		int skippedDepth = 0;
+		StringBuilder text = new StringBuilder();
+		boolean rootRead = false;
+		while(reader.hasNext()) {
+			switch (reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				if(!rootRead && !(isTranslated(reader) && reader.getLocalName().equals("definitions"))) throw new BpmnModelException("Not a bpmn model, root element is "+reader.getName());
+				if(skippedDepth > 0 || !isTranslated(reader)) {
+					skippedDepth++;
+					break;
+				}
+				if(current == CompactBpmnModel.NO_ELEMENT && rootRead) throw new BpmnModelException("Unexpected element after definitions");
+				rootRead = true;
+				current = model.addElement(reader.getLocalName(), current);
+				for(int i = 0; i < reader.getAttributeCount(); i++) {
+					String namespace = reader.getAttributeNamespace(i);
+					if(namespace == null || namespace.isEmpty()) model.addAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+				}
+				text.setLength(0);
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+				if(skippedDepth == 0 && current != CompactBpmnModel.NO_ELEMENT) text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				if(skippedDepth > 0) {
+					skippedDepth--;
+					break;
+				}
+				String content = text.toString().trim();
+				if(!content.isEmpty()) model.setText(current, content);
+				text.setLength(0);
+				current = model.parentOf(current);
+				break;
+			default:
+				break;
+			}
+		}
+		if(!rootRead) throw new BpmnModelException("Not a bpmn model, no definitions found");
+	}
+
+	private static boolean isTranslated(XMLStreamReader reader) {
+		return BpmnModelConstants.BPMN20_NS.equals(reader.getNamespaceURI()) && TRANSLATED_ELEMENTS.contains(reader.getLocalName());
+	}
+
+	private static XMLInputFactory createFactory() {
+		XMLInputFactory factory = XMLInputFactory.newFactory();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		return factory;
+	}
+}
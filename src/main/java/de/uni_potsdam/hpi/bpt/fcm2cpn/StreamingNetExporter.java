@@ -0,0 +1,901 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.GZIPOutputStream;
+
+import javax.naming.OperationNotSupportedException;
+
+import org.cpntools.accesscpn.engine.highlevel.instance.InstanceFactory;
+import org.cpntools.accesscpn.engine.highlevel.instance.adapter.ModelData;
+import org.cpntools.accesscpn.engine.highlevel.instance.adapter.ModelDataAdapterFactory;
+import org.cpntools.accesscpn.engine.highlevel.instance.adapter.ModelInstance;
+import org.cpntools.accesscpn.engine.highlevel.instance.adapter.ModelInstanceAdapterFactory;
+import org.cpntools.accesscpn.model.Annotation;
+import org.cpntools.accesscpn.model.Arc;
+import org.cpntools.accesscpn.model.FusionGroup;
+import org.cpntools.accesscpn.model.HLArcType;
+import org.cpntools.accesscpn.model.HLDeclaration;
+import org.cpntools.accesscpn.model.Instance;
+import org.cpntools.accesscpn.model.ModelFactory;
+import org.cpntools.accesscpn.model.Name;
+import org.cpntools.accesscpn.model.Node;
+import org.cpntools.accesscpn.model.Page;
+import org.cpntools.accesscpn.model.ParameterAssignment;
+import org.cpntools.accesscpn.model.PetriNet;
+import org.cpntools.accesscpn.model.Place;
+import org.cpntools.accesscpn.model.PlaceNode;
+import org.cpntools.accesscpn.model.RefPlace;
+import org.cpntools.accesscpn.model.RefTrans;
+import org.cpntools.accesscpn.model.TimeType;
+import org.cpntools.accesscpn.model.Transition;
+import org.cpntools.accesscpn.model.auxgraphics.AuxGraphics;
+import org.cpntools.accesscpn.model.auxgraphics.Text;
+import org.cpntools.accesscpn.model.cpntypes.CPNAlias;
+import org.cpntools.accesscpn.model.cpntypes.CPNBool;
+import org.cpntools.accesscpn.model.cpntypes.CPNEnum;
+import org.cpntools.accesscpn.model.cpntypes.CPNIndex;
+import org.cpntools.accesscpn.model.cpntypes.CPNInt;
+import org.cpntools.accesscpn.model.cpntypes.CPNList;
+import org.cpntools.accesscpn.model.cpntypes.CPNProduct;
+import org.cpntools.accesscpn.model.cpntypes.CPNReal;
+import org.cpntools.accesscpn.model.cpntypes.CPNRecord;
+import org.cpntools.accesscpn.model.cpntypes.CPNString;
+import org.cpntools.accesscpn.model.cpntypes.CPNSubset;
+import org.cpntools.accesscpn.model.cpntypes.CPNType;
+import org.cpntools.accesscpn.model.cpntypes.CPNUnion;
+import org.cpntools.accesscpn.model.cpntypes.CPNUnit;
+import org.cpntools.accesscpn.model.cpntypes.NameTypePair;
+import org.cpntools.accesscpn.model.declaration.DeclarationStructure;
+import org.cpntools.accesscpn.model.declaration.GlobalReferenceDeclaration;
+import org.cpntools.accesscpn.model.declaration.MLDeclaration;
+import org.cpntools.accesscpn.model.declaration.TypeDeclaration;
+import org.cpntools.accesscpn.model.declaration.UseDeclaration;
+import org.cpntools.accesscpn.model.declaration.VariableDeclaration;
+import org.cpntools.accesscpn.model.exporter.DOMGenerator;
+import org.cpntools.accesscpn.model.exporter.JUNGHelper;
+import org.cpntools.accesscpn.model.exporter.LayoutAcylic;
+import org.cpntools.accesscpn.model.graphics.Coordinate;
+import org.cpntools.accesscpn.model.graphics.Fill;
+import org.cpntools.accesscpn.model.graphics.GraphicsFactory;
+import org.cpntools.accesscpn.model.graphics.Line;
+import org.cpntools.accesscpn.model.graphics.NodeGraphics;
+import org.cpntools.accesscpn.model.monitors.Monitor;
+
+/**
+ * Writes a net in the cpn tools xml format while traversing it, instead of building a dom of the whole net first as {@link DOMGenerator} does.
+ * Besides the net itself, only the layout of the page currently written is kept in memory.<br>
+ * The output is the same as that of {@link DOMGenerator#export(PetriNet, OutputStream)}: same elements, attribute order, escaping and indentation,
+ * and, like there, characters are written in the platform charset although iso-8859-1 is declared.
+ * Positions of nodes without graphics come from the same layout, whose fallback for nodes it cannot rank is random, so these differ between any two exports.
+ * Unlike {@link DOMGenerator}, block ids are numbered per document and no global state is kept, so nets can be exported concurrently.<br>
+ * Pages are independent of each other, so they can also be {@link #export(PetriNet, OutputStream, Executor) rendered in parallel} and are then written in their original order.
+ */
+public class StreamingNetExporter {
+
+	private static final String POSITION_CLASS = DOMGenerator.class.getName()+"$Position";
+	/** Getters of the positions computed by the access/cpn layouts, whose class is not visible outside the exporter package*/
+	private static final Method POSITION_X, POSITION_Y;
+	static {
+		try {
+			Class<?> positionClass = Class.forName(POSITION_CLASS);
+			POSITION_X = positionClass.getMethod("getA");
+			POSITION_Y = positionClass.getMethod("getB");
+			POSITION_X.setAccessible(true);
+			POSITION_Y.setAccessible(true);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/** Number of pages per thread that are rendered ahead of the page currently written, bounds the memory for rendered pages*/
+	private static final int PAGES_AHEAD_PER_THREAD = 4;
+
+	private final XmlWriter xml;
+	private final ModelData modelData;
+	private final ModelInstance modelInstance;
+	private int blockId = 0;
+
+	/**
+	 * Writes the net to the stream, which is flushed but not closed
+	 */
+	public static void export(PetriNet petriNet, OutputStream out) throws IOException, OperationNotSupportedException {
+		export(petriNet, out, null);
+	}
+
+	/**
+	 * Writes the net to the stream like {@link #export(PetriNet, OutputStream)}, but renders the pages on the executor.
+	 * A bounded number of pages is rendered ahead, so memory stays proportional to the number of threads rather than the size of the net.
+	 * @param pageExecutor executor to render pages on, null to render them while writing
+	 */
+	public static void export(PetriNet petriNet, OutputStream out, Executor pageExecutor) throws IOException, OperationNotSupportedException {
+		XmlWriter xml = new XmlWriter(new BufferedWriter(new OutputStreamWriter(out, Charset.defaultCharset())));
+		StreamingNetExporter exporter = new StreamingNetExporter(petriNet, xml);
+		exporter.exportNet(petriNet, pageExecutor);
+		xml.flush();
+	}
+
+	/**
+	 * Writes the net to a file, gzip compressed if the file name ends with <code>.gz</code>
+	 */
+	public static void export(PetriNet petriNet, Path file) throws IOException, OperationNotSupportedException {
+		try(OutputStream out = openOutput(file)) {
+			export(petriNet, out);
+		}
+	}
+
+	static OutputStream openOutput(Path file) throws IOException {
+		OutputStream out = Files.newOutputStream(file);
+		return file.getFileName().toString().endsWith(".gz") ? new GZIPOutputStream(out, 1 << 16) : out;
+	}
+
+	/**
+	 * The adapters are created here, as creating them concurrently while rendering pages would modify the net; using them is synchronized
+	 */
+	private StreamingNetExporter(PetriNet petriNet, XmlWriter xml) {
+		this(xml,
+			(ModelData) ModelDataAdapterFactory.getInstance().adapt(petriNet, ModelData.class),
+			(ModelInstance) ModelInstanceAdapterFactory.getInstance().adapt(petriNet, ModelInstance.class));
+	}
+
+	private StreamingNetExporter(XmlWriter xml, ModelData modelData, ModelInstance modelInstance) {
+		this.xml = xml;
+		this.modelData = modelData;
+		this.modelInstance = modelInstance;
+	}
+
+	private void exportNet(PetriNet petriNet, Executor pageExecutor) throws IOException, OperationNotSupportedException {
+		xml.startDocument();
+		xml.start("workspaceElements");
+		xml.start("generator").attribute("tool", "Access/CPN").attribute("version", "1.0.0").attribute("format", "6").end();
+		xml.start("cpnet");
+		exportDeclarations(petriNet);
+		if(pageExecutor == null) {
+			for(Page page : petriNet.getPage()) {
+				exportPage(page);
+			}
+		} else {
+			exportPagesInParallel(petriNet, pageExecutor);
+		}
+		for(FusionGroup fusionGroup : petriNet.getFusionGroups()) {
+			exportFusionGroup(fusionGroup);
+		}
+		Map<org.cpntools.accesscpn.engine.highlevel.instance.Instance<Page>, String> instances = exportInstances(petriNet);
+		exportMonitors(petriNet, instances);
+		exportOptions(petriNet);
+		xml.end();
+		xml.end();
+		xml.endDocument();
+	}
+
+	//========Declarations======
+	/**
+	 * Declarations are sorted into the four blocks, each block is written in one pass over the declarations
+	 */
+	private void exportDeclarations(PetriNet petriNet) throws IOException, OperationNotSupportedException {
+		xml.start("globbox");
+		for(Class<?> blockType : new Class<?>[] {TypeDeclaration.class, VariableDeclaration.class, MLDeclaration.class, GlobalReferenceDeclaration.class}) {
+			xml.start("block").attribute("id", "idblock" + blockId++);
+			xml.textElement("id", blockName(blockType));
+			for(HLDeclaration declaration : petriNet.declaration()) {
+				DeclarationStructure structure = declaration.getStructure();
+				if(structure instanceof UseDeclaration) throw new OperationNotSupportedException();
+				if(blockType.isInstance(structure)) exportDeclaration(structure, declaration);
+			}
+			xml.end();
+		}
+		xml.end();
+	}
+
+	private static String blockName(Class<?> blockType) {
+		if(blockType == TypeDeclaration.class) return "Types";
+		if(blockType == VariableDeclaration.class) return "Variables";
+		if(blockType == MLDeclaration.class) return "Functions";
+		return "Parameters";
+	}
+
+	private void exportDeclaration(DeclarationStructure structure, HLDeclaration declaration) throws IOException, OperationNotSupportedException {
+		if(structure instanceof GlobalReferenceDeclaration) {
+			GlobalReferenceDeclaration reference = (GlobalReferenceDeclaration) structure;
+			xml.start("globref").attribute("id", declaration.getId());
+			xml.textElement("id", reference.getName());
+			xml.textElement("ml", reference.getValue());
+			xml.end();
+		} else if(structure instanceof MLDeclaration) {
+			xml.start("ml").attribute("id", declaration.getId()).text(((MLDeclaration) structure).getCode()).end();
+		} else if(structure instanceof TypeDeclaration) {
+			TypeDeclaration type = (TypeDeclaration) structure;
+			xml.start("color").attribute("id", declaration.getId());
+			xml.textElement("id", type.getTypeName());
+			exportType(type.getSort());
+			xml.end();
+		} else if(structure instanceof VariableDeclaration) {
+			VariableDeclaration variable = (VariableDeclaration) structure;
+			xml.start("var").attribute("id", declaration.getId());
+			xml.start("type");
+			xml.textElement("id", variable.getTypeName());
+			xml.end();
+			for(String name : variable.getVariables()) {
+				xml.textElement("id", name);
+			}
+			xml.end();
+		}
+	}
+
+	private void exportType(CPNType type) throws IOException, OperationNotSupportedException {
+		if(type.getTimed()) xml.start("timed").end();
+		if(!type.getDeclares().isEmpty()) throw new OperationNotSupportedException();
+		if(type instanceof CPNAlias) {
+			xml.start("alias");
+			xml.textElement("id", ((CPNAlias) type).getSort());
+			xml.end();
+		} else if(type instanceof CPNBool) {
+			xml.start("bool").end();
+			CPNBool bool = (CPNBool) type;
+			if(bool.getTrueValue() != null || bool.getFalseValue() != null) throw new OperationNotSupportedException();
+		} else if(type instanceof CPNEnum) {
+			xml.start("enum");
+			for(String value : ((CPNEnum) type).getValues()) {
+				xml.textElement("id", value);
+			}
+			xml.end();
+		} else if(type instanceof CPNIndex) {
+			CPNIndex index = (CPNIndex) type;
+			xml.start("index");
+			xml.textElement("id", index.getName());
+			xml.textElement("ml", index.getLow());
+			xml.textElement("ml", index.getHigh());
+			xml.end();
+		} else if(type instanceof CPNInt) {
+			xml.start("int").end();
+			CPNInt integer = (CPNInt) type;
+			if(integer.getHigh() != null || integer.getLow() != null) throw new OperationNotSupportedException();
+		} else if(type instanceof CPNList) {
+			xml.start("list");
+			xml.textElement("id", ((CPNList) type).getSort());
+			xml.end();
+		} else if(type instanceof CPNProduct) {
+			xml.start("product");
+			for(String component : ((CPNProduct) type).getTypes()) {
+				xml.textElement("id", component);
+			}
+			xml.end();
+		} else if(type instanceof CPNReal) {
+			throw new OperationNotSupportedException();
+		} else if(type instanceof CPNRecord) {
+			xml.start("record");
+			for(NameTypePair field : ((CPNRecord) type).getValues()) {
+				xml.start("recordfield");
+				xml.textElement("id", field.getName());
+				xml.textElement("id", field.getSort());
+				xml.end();
+			}
+			xml.end();
+		} else if(type instanceof CPNString) {
+			xml.start("string").end();
+			CPNString string = (CPNString) type;
+			if(string.getLengthHigh() != null || string.getLengthLow() != null || string.getRangeHigh() != null || string.getRangeLow() != null) throw new OperationNotSupportedException();
+		} else if(type instanceof CPNSubset) {
+			CPNSubset subset = (CPNSubset) type;
+			xml.start("subset");
+			xml.textElement("id", subset.getSort());
+			if(subset.getBy() == null) throw new OperationNotSupportedException();
+			xml.start("by");
+			xml.textElement("ml", subset.getBy());
+			xml.end();
+			xml.end();
+		} else if(type instanceof CPNUnion) {
+			throw new OperationNotSupportedException();
+		} else if(type instanceof CPNUnit) {
+			xml.start("unit").end();
+			if(((CPNUnit) type).getId() != null) throw new OperationNotSupportedException();
+		}
+	}
+
+	//========Pages======
+	private void exportPage(Page page) throws IOException, OperationNotSupportedException {
+		xml.start("page").attribute("id", page.getId());
+		xml.start("pageattr").attribute("name", page.getName().getText()).end();
+		Map<Object, int[]> positions = layout(page);
+		for(org.cpntools.accesscpn.model.Object object : page.getObject()) {
+			if(object instanceof Instance) {
+				exportInstance((Instance) object, positions);
+			} else if(object instanceof Place) {
+				exportPlaceNode((Place) object, positions);
+				xml.end();
+			} else if(object instanceof RefPlace) {
+				exportReferencePlace((RefPlace) object, positions);
+			} else if(object instanceof Transition) {
+				exportTransition((Transition) object, positions);
+			} else if(object instanceof RefTrans) {
+				throw new OperationNotSupportedException();
+			} else if(object instanceof AuxGraphics) {
+				if(object instanceof Text) exportText((Text) object, positions);
+			} else {
+				throw new OperationNotSupportedException();
+			}
+		}
+		for(Arc arc : page.getArc()) {
+			exportArc(arc, positions);
+		}
+		xml.end();
+	}
+
+	/**
+	 * Renders pages on the executor, each into its own fragment, and writes the fragments in page order as soon as they are done.
+	 * At most {@link #PAGES_AHEAD_PER_THREAD} pages per available processor are rendered but not yet written.
+	 */
+	private void exportPagesInParallel(PetriNet petriNet, Executor pageExecutor) throws IOException, OperationNotSupportedException {
+		int pagesAhead = PAGES_AHEAD_PER_THREAD * Runtime.getRuntime().availableProcessors();
+		Deque<CompletableFuture<String>> rendered = new ArrayDeque<>();
+		Iterator<Page> pages = petriNet.getPage().iterator();
+		try {
+			while(pages.hasNext() || !rendered.isEmpty()) {
+				while(pages.hasNext() && rendered.size() < pagesAhead) {
+					Page page = pages.next();
+					rendered.add(CompletableFuture.supplyAsync(() -> renderPage(page), pageExecutor));
+				}
+				xml.fragment(rendered.poll().join());
+			}
+		} catch (CompletionException e) {
+			rendered.forEach(each -> each.cancel(false));
+			if(e.getCause() instanceof UncheckedIOException) throw ((UncheckedIOException) e.getCause()).getCause();
+			if(e.getCause() instanceof PageNotSupportedException) throw (OperationNotSupportedException) e.getCause().getCause();
+			throw e;
+		}
+	}
+
+	/**
+	 * Renders a page as it would be written inside the cpnet element of a document
+	 */
+	private String renderPage(Page page) {
+		StringWriter fragment = new StringWriter();
+		XmlWriter pageXml = XmlWriter.fragment(fragment, "workspaceElements", "cpnet");
+		try {
+			new StreamingNetExporter(pageXml, modelData, modelInstance).exportPage(page);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (OperationNotSupportedException e) {
+			throw new PageNotSupportedException(e);
+		}
+		return fragment.toString();
+	}
+
+	/** Carries an {@link OperationNotSupportedException} out of a page rendering task*/
+	private static class PageNotSupportedException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private PageNotSupportedException(OperationNotSupportedException cause) {
+			super(cause);
+		}
+	}
+
+	/**
+	 * Positions of the page nodes as computed by the access/cpn layouts, used for nodes without graphics
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Map<Object, int[]> layout(Page page) {
+		Map layoutPositions;
+		try {
+			layoutPositions = JUNGHelper.createGraph(page);
+		} catch (Throwable t) {
+			if(!(t instanceof NoClassDefFoundError)) t.printStackTrace();
+			layoutPositions = new HashMap<>();
+			LayoutAcylic layout = new LayoutAcylic(page);
+			for(org.cpntools.accesscpn.model.Object object : page.getObject()) {
+				layout.setPosition(object, layoutPositions);
+			}
+		}
+		Map<Object, int[]> positions = new HashMap<>();
+		try {
+			for(Map.Entry<?, ?> each : ((Map<?, ?>) layoutPositions).entrySet()) {
+				positions.put(each.getKey(), new int[] {(int) POSITION_X.invoke(each.getValue()), (int) POSITION_Y.invoke(each.getValue())});
+			}
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+		return positions;
+	}
+
+	private void exportInstance(Instance instance, Map<Object, int[]> positions) throws IOException {
+		xml.start("trans").attribute("id", instance.getId());
+		exportSize("box", instance);
+		Coordinate position = exportGraphics(instance, positions);
+		xml.textElement("text", instance.getName().getText());
+		Name empty = ModelFactory.INSTANCE.createName();
+		empty.setText("");
+		exportLabel("cond", instance.getId()+"a", empty, position.getX() - 36.0, position.getY() - 24.0);
+		exportLabel("time", instance.getId()+"b", empty, position.getX() + 36.0, position.getY() + 24.0);
+		exportLabel("code", instance.getId()+"c", empty, position.getX() + 36.0, position.getY());
+		StringBuilder portSockets = new StringBuilder();
+		for(ParameterAssignment assignment : instance.getParameterAssignment()) {
+			portSockets.append('(').append(assignment.getValue()).append(',').append(assignment.getParameter()).append(')');
+		}
+		xml.start("subst").attribute("subpage", instance.getSubPageID()).attribute("portsock", portSockets.toString());
+		empty.setText(modelData.getPage(instance.getSubPageID()).getName().getText());
+		exportLabel("subpageinfo", instance.getId()+"e", empty, position.getX() - 36.0, position.getY() - 24.0, "name", empty.getText());
+		xml.end();
+		xml.end();
+	}
+
+	/**
+	 * Writes the start and the common children of a place node, the element is left open for the children of reference places
+	 */
+	private Coordinate exportPlaceNode(PlaceNode place, Map<Object, int[]> positions) throws IOException {
+		xml.start("place").attribute("id", place.getId());
+		exportSize("ellipse", place);
+		Coordinate position = exportGraphics(place, positions);
+		xml.textElement("text", place.getName().getText());
+		exportLabel("type", place.getId()+"a", place.getSort(), position.getX() + 36.0, position.getY() - 24.0);
+		exportLabel("initmark", place.getId()+"b", place.getInitialMarking(), position.getX() + 36.0, position.getY() - 24.0);
+		return position;
+	}
+
+	private void exportReferencePlace(RefPlace place, Map<Object, int[]> positions) throws IOException {
+		Coordinate position = exportPlaceNode(place, positions);
+		double x = position.getX();
+		double y = position.getY();
+		if(place.getRef() == null) {
+			Name empty = ModelFactory.INSTANCE.createName();
+			empty.setText("");
+			exportLabel("port", place.getId()+"c", empty, (int) x - 36, (int) y - 24, "type", portType(place));
+		} else if(place.isFusionGroup() && place.getRef() instanceof FusionGroup) {
+			xml.start("fusioninfo").attribute("name", place.getRef().getName().getText());
+			xml.start("posattr").attribute("x", "" + (x - 25.0)).attribute("y", "" + (y - 16.0)).end();
+			xml.end();
+		} else {
+			boolean placeToTransition = !place.getSourceArc().isEmpty();
+			boolean transitionToPlace = !place.getTargetArc().isEmpty();
+			String type = placeToTransition && !transitionToPlace ? "In" : !placeToTransition && transitionToPlace ? "Out" : "I/O";
+			xml.start("port").attribute("type", type);
+			xml.start("posattr").attribute("x", "" + x).attribute("y", "" + (y - 24.0)).end();
+			xml.end();
+		}
+		xml.end();
+	}
+
+	/**
+	 * Direction of a port without socket, derived from the arcs of the substitution transitions it is assigned to
+	 */
+	private String portType(RefPlace place) {
+		boolean in = false;
+		boolean out = false;
+		for(org.cpntools.accesscpn.engine.highlevel.instance.Instance<RefPlace> placeInstance : modelInstance.getAllInstances(place)) {
+			Instance substitution = placeInstance.getTransitionPath().getNode();
+			for(Arc arc : substitution.getSourceArc()) {
+				for(ParameterAssignment assignment : substitution.getParameterAssignment()) {
+					if(!assignment.getValue().equals(place.getId()) || !assignment.getParameter().equals(arc.getPlaceNode().getId())) continue;
+					out = true;
+					in = arc.getKind() == HLArcType.TEST;
+				}
+			}
+			for(Arc arc : substitution.getTargetArc()) {
+				for(ParameterAssignment assignment : substitution.getParameterAssignment()) {
+					if(!assignment.getValue().equals(place.getId()) || !assignment.getParameter().equals(arc.getPlaceNode().getId())) continue;
+					in = true;
+					out = arc.getKind() == HLArcType.TEST;
+				}
+			}
+		}
+		return in && out ? "I/O" : in ? "In" : out ? "Out" : "I/O";
+	}
+
+	private void exportTransition(Transition transition, Map<Object, int[]> positions) throws IOException {
+		xml.start("trans").attribute("id", transition.getId());
+		exportSize("box", transition);
+		Coordinate position = exportGraphics(transition, positions);
+		xml.textElement("text", transition.getName().getText());
+		exportLabel("cond", transition.getId()+"a", transition.getCondition(), position.getX() - 36.0, position.getY() - 24.0);
+		exportLabel("time", transition.getId()+"b", transition.getTime(), position.getX() + 36.0, position.getY() + 24.0);
+		exportLabel("code", transition.getId()+"c", transition.getCode(), position.getX() + 36.0, position.getY());
+		xml.end();
+	}
+
+	private void exportText(Text text, Map<Object, int[]> positions) throws IOException {
+		xml.start("Aux").attribute("id", text.getId());
+		exportGraphics(text, positions);
+		xml.start("label").end();
+		xml.textElement("text", text.getText());
+		xml.end();
+	}
+
+	private void exportArc(Arc arc, Map<Object, int[]> positions) throws IOException {
+		String orientation = arc.getKind() == HLArcType.TEST ? "BOTHDIR" : arc.getSource() == arc.getPlaceNode() ? "PtoT" : "TtoP";
+		xml.start("arc").attribute("id", arc.getId()).attribute("orientation", orientation).attribute("order", "1");
+		xml.start("transend").attribute("idref", arc.getOtherEnd(arc.getPlaceNode()).getId()).end();
+		xml.start("placeend").attribute("idref", arc.getPlaceNode().getId()).end();
+		int[] source = positions.get(arc.getSource());
+		int[] target = positions.get(arc.getTarget());
+		xml.start("lineattr");
+		try {
+			Line line = arc.getArcGraphics().getLine();
+			xml.attribute("colour", line.getColor()).attribute("thick", "" + Math.round(line.getWidth()));
+		} catch (Exception e) {
+			xml.attribute("colour", "Black").attribute("thick", "1");
+		}
+		xml.attribute("type", "Solid").end();
+		try {
+			int serial = 1;
+			for(Coordinate bendpoint : arc.getArcGraphics().getPosition()) {
+				xml.start("bendpoint").attribute("serial", "" + serial++);
+				xml.start("posattr").attribute("x", "" + bendpoint.getX()).attribute("y", "" + bendpoint.getY()).end();
+				xml.end();
+			}
+		} catch (Exception e) {}
+		Coordinate position;
+		try {
+			position = arc.getHlinscription().getAnnotationGraphics().getOffset();
+		} catch (Exception e) {
+			position = GraphicsFactory.INSTANCE.createCoordinate();
+			position.setX((source[0] + target[0]) / 2.0);
+			position.setY((source[1] + target[1]) / 2.0);
+		}
+		exportLabel("annot", arc.getId()+"a", arc.getHlinscription(), position.getX(), position.getY());
+		xml.end();
+	}
+
+	private void exportSize(String element, Node node) throws IOException {
+		xml.start(element);
+		try {
+			Coordinate dimension = node.getNodeGraphics().getDimension();
+			xml.attribute("w", "" + dimension.getX()).attribute("h", "" + dimension.getY());
+		} catch (Exception e) {
+			xml.attribute("w", "60.0").attribute("h", "40.0");
+		}
+		xml.end();
+	}
+
+	/**
+	 * Writes position, fill, line and text attributes of a node, falling back to the layout and default colors if the node has no graphics
+	 */
+	private Coordinate exportGraphics(org.cpntools.accesscpn.model.Object object, Map<Object, int[]> positions) throws IOException {
+		NodeGraphics graphics = null;
+		Coordinate position;
+		xml.start("posattr");
+		try {
+			if(object instanceof Node) {
+				graphics = ((Node) object).getNodeGraphics();
+			} else if(object instanceof AuxGraphics) {
+				graphics = ((AuxGraphics) object).getNodeGraphics();
+			}
+			position = graphics.getPosition();
+			xml.attribute("x", "" + position.getX()).attribute("y", "" + position.getY());
+		} catch (Exception e) {
+			int x = positions.get(object)[0];
+			int y = positions.get(object)[1];
+			xml.attribute("x", "" + x).attribute("y", "" + y);
+			position = GraphicsFactory.INSTANCE.createCoordinate();
+			position.setX(x);
+			position.setY(y);
+		}
+		xml.end();
+
+		xml.start("fillattr");
+		try {
+			Fill fill = graphics.getFill();
+			xml.attribute("colour", fill.getColor());
+		} catch (Exception e) {
+			xml.attribute("colour", "White");
+		}
+		xml.attribute("pattern", "filled").attribute("filled", "false").end();
+
+		String lineColor, thickness;
+		try {
+			Line line = graphics.getLine();
+			lineColor = line.getColor();
+			thickness = "" + Math.round(line.getWidth());
+		} catch (Exception e) {
+			lineColor = "Black";
+			thickness = "1";
+		}
+		xml.start("lineattr").attribute("colour", lineColor).attribute("thick", thickness).attribute("pattern", "Solid").end();
+		xml.start("textattr").attribute("colour", lineColor).attribute("bold", "false").end();
+		return position;
+	}
+
+	/**
+	 * Writes an inscription with its graphics, the position is used if the inscription has no offset to its node
+	 * @param extraAttributes name value pairs of further attributes of the label element
+	 */
+	private void exportLabel(String element, String id, Annotation label, double x, double y, String... extraAttributes) throws IOException {
+		xml.start(element).attribute("id", id);
+		for(int i = 0; i + 1 < extraAttributes.length; i += 2) {
+			xml.attribute(extraAttributes[i], extraAttributes[i + 1]);
+		}
+		xml.start("posattr");
+		try {
+			Coordinate offset = label.getAnnotationGraphics().getOffset();
+			Coordinate position = ((Node) label.getParent()).getNodeGraphics().getPosition();
+			xml.attribute("x", "" + (offset.getX() + position.getX())).attribute("y", "" + (offset.getY() + position.getY()));
+		} catch (Exception e) {
+			xml.attribute("x", "" + x).attribute("y", "" + y);
+		}
+		xml.end();
+
+		xml.start("fillattr");
+		try {
+			Fill fill = label.getAnnotationGraphics().getFill();
+			xml.attribute("colour", fill.getColor());
+		} catch (Exception e) {
+			xml.attribute("colour", "White");
+		}
+		xml.attribute("pattern", "Solid").attribute("filled", "false").end();
+
+		String lineColor;
+		xml.start("lineattr");
+		try {
+			Line line = label.getAnnotationGraphics().getLine();
+			lineColor = line.getColor();
+			xml.attribute("colour", lineColor).attribute("thick", "" + Math.round(line.getWidth()));
+		} catch (Exception e) {
+			lineColor = "Black";
+			xml.attribute("colour", lineColor).attribute("thick", "0");
+		}
+		xml.attribute("type", "Solid").end();
+		xml.start("textattr").attribute("colour", lineColor).attribute("bold", "false").end();
+		xml.textElement("text", label == null || label.getText() == null ? "" : label.getText());
+		xml.end();
+	}
+
+	private void exportFusionGroup(FusionGroup fusionGroup) throws IOException {
+		xml.start("fusion").attribute("id", fusionGroup.getId()).attribute("name", fusionGroup.getName().getText());
+		for(RefPlace reference : fusionGroup.getReferences()) {
+			xml.start("fusion_elm").attribute("idref", reference.getId()).end();
+		}
+		xml.end();
+	}
+
+	//========Instances, monitors and options======
+	/**
+	 * Writes the page instance hierarchy; like in {@link DOMGenerator}, every subpage instance is suffixed with <code>ia</code>
+	 */
+	private Map<org.cpntools.accesscpn.engine.highlevel.instance.Instance<Page>, String> exportInstances(PetriNet petriNet) throws IOException {
+		Map<org.cpntools.accesscpn.engine.highlevel.instance.Instance<Page>, String> result = new HashMap<>();
+		xml.start("instances");
+		for(Page page : modelInstance.getTopPages()) {
+			for(org.cpntools.accesscpn.engine.highlevel.instance.Instance<Page> pageInstance : modelInstance.getAllInstances(page)) {
+				xml.start("instance").attribute("page", page.getId()).attribute("id", page.getId()+"itop");
+				result.put(pageInstance, page.getId()+"itop");
+				for(org.cpntools.accesscpn.engine.highlevel.instance.Instance<Page> subpageInstance : modelInstance.getAllSubpages(pageInstance)) {
+					exportSubpageInstance(subpageInstance, result);
+				}
+				xml.end();
+			}
+		}
+		xml.end();
+		return result;
+	}
+
+	private void exportSubpageInstance(org.cpntools.accesscpn.engine.highlevel.instance.Instance<Page> pageInstance, Map<org.cpntools.accesscpn.engine.highlevel.instance.Instance<Page>, String> result) throws IOException {
+		Instance substitution = pageInstance.getTransitionPath().getNode();
+		String id = substitution.getId()+"ia";
+		xml.start("instance").attribute("trans", substitution.getId()).attribute("id", id);
+		result.put(pageInstance, id);
+		for(org.cpntools.accesscpn.engine.highlevel.instance.Instance<Page> subpageInstance : modelInstance.getAllSubpages(pageInstance)) {
+			exportSubpageInstance(subpageInstance, result);
+		}
+		xml.end();
+	}
+
+	private void exportMonitors(PetriNet petriNet, Map<org.cpntools.accesscpn.engine.highlevel.instance.Instance<Page>, String> instances) throws IOException {
+		xml.start("monitorblock").attribute("name", "Monitors");
+		for(Monitor monitor : petriNet.getMonitors()) {
+			xml.start("monitor")
+				.attribute("id", monitor.getId())
+				.attribute("name", monitor.getName().getText())
+				.attribute("type", "" + monitor.getKind().getValue())
+				.attribute("disabled", "" + monitor.isDisabled());
+			for(Object node : monitor.getNodes()) {
+				org.cpntools.accesscpn.engine.highlevel.instance.Instance<?> nodeInstance = (org.cpntools.accesscpn.engine.highlevel.instance.Instance<?>) node;
+				Page page = modelData.getPage(nodeInstance.getTransitionPath().getNode().getSubPageID());
+				org.cpntools.accesscpn.engine.highlevel.instance.Instance<Page> pageInstance = InstanceFactory.INSTANCE.createInstance(page, nodeInstance.getTransitionPath());
+				xml.start("node").attribute("idref", ((Node) nodeInstance.getNode()).getId()).attribute("pageinstanceidref", instances.get(pageInstance)).end();
+			}
+			exportMonitorDeclaration(monitor, monitor.getPredicate(), "Predicate", "c");
+			exportMonitorDeclaration(monitor, monitor.getObserver(), "Observer", "d");
+			exportMonitorDeclaration(monitor, monitor.getInit(), "Init function", "a");
+			exportMonitorDeclaration(monitor, monitor.getStop(), "Stop", "b");
+			exportMonitorDeclaration(monitor, monitor.getAction(), "Action", "e");
+			exportOption("Disabled", monitor.isDisabled());
+			exportOption("Timed", monitor.isTimed());
+			exportOption("Logging", monitor.isLogging());
+			xml.end();
+		}
+		xml.end();
+	}
+
+	private void exportMonitorDeclaration(Monitor monitor, MLDeclaration declaration, String name, String idSuffix) throws IOException {
+		if(declaration == null) return;
+		xml.start("declaration").attribute("name", name);
+		xml.start("ml").attribute("id", monitor.getId()+idSuffix).text(declaration.getCode()).end();
+		xml.end();
+	}
+
+	private void exportOption(String name, boolean value) throws IOException {
+		xml.start("option").attribute("name", name).attribute("value", "" + value).end();
+	}
+
+	private void exportOptions(PetriNet petriNet) throws IOException {
+		xml.start("options");
+		xml.start("option").attribute("name", "realtimestamp");
+		xml.start("value");
+		xml.textElement("boolean", "" + (petriNet.getTimeType() == TimeType.REAL));
+		xml.end();
+		xml.end();
+		xml.end();
+	}
+
+	/**
+	 * Minimal xml writer that reproduces the output of the jdk transformer used by {@link DOMGenerator}:
+	 * attributes sorted by name (as the dom stores them), four spaces of indentation for elements with child elements, empty elements collapsed,
+	 * and the escaping of the iso-8859-1 output encoding.<br>
+	 * Attributes are collected until the first child or the end of an element, so they may be added in any order.
+	 */
+	static class XmlWriter {
+		private static final String INDENT = "    ";
+		private final String lineSeparator = System.lineSeparator();
+		private final Writer out;
+		/** Open elements, each with whether it has child elements*/
+		private final Deque<OpenElement> open = new ArrayDeque<>();
+		private final Map<String, String> attributes = new TreeMap<>();
+		/** Whether the start tag of the innermost element still has to be written*/
+		private boolean startTagPending = false;
+
+		private static class OpenElement {
+			private final String name;
+			private boolean hasChildElements = false;
+			private boolean hasText = false;
+
+			private OpenElement(String name) {
+				this.name = name;
+			}
+		}
+
+		XmlWriter(Writer out) {
+			this.out = out;
+		}
+
+		/**
+		 * Creates a writer for a fragment that is later {@link #fragment(String) inserted} into the given, already started, elements
+		 */
+		static XmlWriter fragment(Writer out, String... enclosingElements) {
+			XmlWriter writer = new XmlWriter(out);
+			for(String element : enclosingElements) {
+				writer.open.push(new OpenElement(element));
+			}
+			return writer;
+		}
+
+		void startDocument() throws IOException {
+			out.write("<?xml version=\"1.0\" encoding=\"ISO-8859-1\" standalone=\"no\"?>");
+			out.write(lineSeparator);
+		}
+
+		XmlWriter start(String name) throws IOException {
+			if(!open.isEmpty()) {
+				writePendingStartTag(false);
+				open.peek().hasChildElements = true;
+				out.write(lineSeparator);
+				for(int i = 0; i < open.size(); i++) out.write(INDENT);
+			}
+			open.push(new OpenElement(name));
+			startTagPending = true;
+			return this;
+		}
+
+		XmlWriter attribute(String name, String value) {
+			if(!startTagPending) throw new IllegalStateException("Attribute "+name+" after content of element "+open.peek().name);
+			attributes.put(name, value == null ? "" : value);
+			return this;
+		}
+
+		/** Text content of the innermost element, empty text is omitted like by the dom*/
+		XmlWriter text(String text) throws IOException {
+			if(text == null || text.isEmpty()) return this;
+			writePendingStartTag(false);
+			open.peek().hasText = true;
+			escape(text, false);
+			return this;
+		}
+
+		/** Writes an element that only contains text*/
+		void textElement(String name, String text) throws IOException {
+			start(name).text(text).end();
+		}
+
+		/** Inserts child elements of the innermost element that were written by a {@link #fragment(Writer, String...) fragment writer}*/
+		void fragment(String fragment) throws IOException {
+			if(fragment.isEmpty()) return;
+			writePendingStartTag(false);
+			open.peek().hasChildElements = true;
+			out.write(fragment);
+		}
+
+		XmlWriter end() throws IOException {
+			OpenElement element = open.peek();
+			if(startTagPending) {
+				writePendingStartTag(true);
+			} else {
+				if(element.hasChildElements && !element.hasText) {
+					out.write(lineSeparator);
+					for(int i = 1; i < open.size(); i++) out.write(INDENT);
+				}
+				out.write("</");
+				out.write(element.name);
+				out.write('>');
+			}
+			open.pop();
+			return this;
+		}
+
+		void endDocument() throws IOException {
+			out.write(lineSeparator);
+		}
+
+		void flush() throws IOException {
+			out.flush();
+		}
+
+		private void writePendingStartTag(boolean empty) throws IOException {
+			if(!startTagPending) return;
+			out.write('<');
+			out.write(open.peek().name);
+			for(Map.Entry<String, String> attribute : attributes.entrySet()) {
+				out.write(' ');
+				out.write(attribute.getKey());
+				out.write("=\"");
+				escape(attribute.getValue(), true);
+				out.write('"');
+			}
+			out.write(empty ? "/>" : ">");
+			attributes.clear();
+			startTagPending = false;
+		}
+
+		private void escape(String text, boolean inAttribute) throws IOException {
+			for(int i = 0; i < text.length(); i++) {
+				char c = text.charAt(i);
+				switch (c) {
+				case '<': out.write("&lt;"); continue;
+				case '>': out.write("&gt;"); continue;
+				case '&': out.write("&amp;"); continue;
+				case '"': out.write(inAttribute ? "&quot;" : "\""); continue;
+				case '\n': out.write(inAttribute ? "&#10;" : lineSeparator); continue;
+				case '\t': out.write(inAttribute ? "&#9;" : "\t"); continue;
+				default:
+				}
+				if(Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+					characterReference(Character.toCodePoint(c, text.charAt(++i)));
+				} else if(c < 0x20 || c > 0xFF || (!inAttribute && c >= 0x7F && c <= 0x9F)) {
+					characterReference(c);
+				} else {
+					out.write(c);
+				}
+			}
+		}
+
+		private void characterReference(int codePoint) throws IOException {
+			out.write("&#");
+			out.write(Integer.toString(codePoint));
+			out.write(';');
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package de.uni_potsdam.hpi.bpt.fcm2cpn;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,23 +28,28 @@ public class SubpageElement {
 		this.mainTransition = mainTransition;
 		this.subpageTransitions = subpageTransitions;
 		this.placeReferences = new HashMap<>();
+		compilerApp.getAttribution().addSubpage(page, id);
+		subpageTransitions.forEach(transition -> compilerApp.getAttribution().transition(transition, "element transition", Collections.emptyList()));
 	}
 	
 	RefPlace refPlaceFor(Place place) {
 		return placeReferences.computeIfAbsent(place, sourcePlace -> {
-			return this.compilerApp.getBuilder().addReferencePlace(
+			RefPlace reference = this.compilerApp.getBuilder().addReferencePlace(
 				page, 
 				sourcePlace.getName().asString(), 
 				sourcePlace.getSort().getText(), 
 				"", 
 				sourcePlace, 
 				mainTransition);
+			compilerApp.getAttribution().referencePlace(reference, "reference to "+sourcePlace.getName().asString());
+			return reference;
 		});
 	}
 	
 	public List<Arc> createArcsFrom(Place place, String inscription) {
 		return getSubpageTransitions().stream()
 				.map(transition -> compilerApp.createArc(getPage(), refPlaceFor(place), transition, inscription))
+				.peek(arc -> compilerApp.getAttribution().arc(arc, "control flow", null))
 				.collect(Collectors.toList());
 	}
 	
@@ -55,6 +61,7 @@ public class SubpageElement {
 	public List<Arc> createArcsTo(Place place, String inscription) {
 		return getSubpageTransitions().stream()
 				.map(transition -> compilerApp.createArc(getPage(), transition, refPlaceFor(place), inscription))
+				.peek(arc -> compilerApp.getAttribution().arc(arc, "control flow", null))
 				.collect(Collectors.toList());
 	}
 	
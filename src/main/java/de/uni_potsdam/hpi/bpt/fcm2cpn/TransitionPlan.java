@@ -0,0 +1,59 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import java.util.List;
+import java.util.Optional;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.TransputSetWrapper.InputSetWrapper;
+import de.uni_potsdam.hpi.bpt.fcm2cpn.TransputSetWrapper.OutputSetWrapper;
+
+/**
+ * Contents of one subpage transition of an activity, i.e. of one transput set, computed before the transition is added to the net.<br>
+ * Plans only refer to wrappers and inscriptions, not to net elements, so they can be computed in parallel.
+ */
+public class TransitionPlan {
+
+	private final InputSetWrapper inputSet;
+	private final OutputSetWrapper outputSet;
+	/** Data objects that are written but not read, they need creation counters*/
+	private final List<DataObjectWrapper> createdObjects;
+	/** Code segment that generates the ids of created objects, empty if nothing is created*/
+	private final Optional<String> creationCode;
+	/** Inscription for writing back the associations place, empty if the associations place is not accessed*/
+	private final Optional<String> associationWriteAnnotation;
+	/** Guard including association checks and state restrictions, empty if the transition is not guarded*/
+	private final Optional<String> guard;
+
+	public TransitionPlan(InputSetWrapper inputSet, OutputSetWrapper outputSet, List<DataObjectWrapper> createdObjects, Optional<String> creationCode, Optional<String> associationWriteAnnotation, Optional<String> guard) {
+		this.inputSet = inputSet;
+		this.outputSet = outputSet;
+		this.createdObjects = createdObjects;
+		this.creationCode = creationCode;
+		this.associationWriteAnnotation = associationWriteAnnotation;
+		this.guard = guard;
+	}
+
+	public InputSetWrapper getInputSet() {
+		return inputSet;
+	}
+
+	public OutputSetWrapper getOutputSet() {
+		return outputSet;
+	}
+
+	public List<DataObjectWrapper> getCreatedObjects() {
+		return createdObjects;
+	}
+
+	public Optional<String> getCreationCode() {
+		return creationCode;
+	}
+
+	public Optional<String> getAssociationWriteAnnotation() {
+		return associationWriteAnnotation;
+	}
+
+	public Optional<String> getGuard() {
+		return guard;
+	}
+
+}
@@ -1,9 +1,12 @@
 package de.uni_potsdam.hpi.bpt.fcm2cpn;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.camunda.bpm.model.bpmn.impl.instance.SourceRef;
@@ -19,6 +22,10 @@ import org.camunda.bpm.model.xml.ModelInstance;
 
 public class Utils {
 	
+	/** Patterns of the name and state normalizations, compiled once instead of by each {@link String#replaceAll(String, String)}*/
+	static final Pattern WHITESPACE = Pattern.compile("\\s");
+	private static final Pattern STATE_BRACKETS = Pattern.compile("[\\[\\]]");
+	
 	/**
 	 * Determines a name for a bpmn element, uses id as substitute if no name is available
 	 */
@@ -39,7 +46,7 @@ public class Utils {
      * Splits a state name to single states and normalizes them. Example: [A | b |  c] becomes A, B, and C
      */
     public static Stream<String> dataObjectStateToNetColors(String state) {
-    	return Arrays.stream(state.replaceAll("\\[", "").replaceAll("\\]", "").split("\\|"))
+    	return Arrays.stream(STATE_BRACKETS.matcher(state).replaceAll("").split("\\|"))
     			.map(Utils::singleDataObjectStateToNetColor);
     }
     
@@ -47,10 +54,9 @@ public class Utils {
      * Normalizes a single state name, can then be used as value for the STATE color set
      */
     public static String singleDataObjectStateToNetColor(String state) {
-    	return state
-			.trim()
-    		.replaceAll("\\s","_")
-    		.replaceAll("-","_")
+    	return WHITESPACE.matcher(state.trim())
+    		.replaceAll("_")
+    		.replace('-', '_')
     		.toUpperCase();
     }
     
@@ -102,23 +108,19 @@ public class Utils {
     
     /***
      * Creates the n-fold cartesian product of a collection of lists.
+     * Materializes all combinations, use {@link CartesianProduct} to iterate them lazily.
      */
 	public static <T> List<List<T>> allCombinationsOf(Collection<List<T>> sets) {
-        int numberOfCombinations = sets.stream()
-                .mapToInt(Collection::size)
-                .reduce(1, (a,b) -> a*b);
-        
-        List<List<T>> combinations = new ArrayList<>(numberOfCombinations);
-        for(int i = 0; i < numberOfCombinations; i++) {
-            int j = 1;
-            List<T> combination = new ArrayList<>();
-            for(List<T> objectVariants : sets) {
-            	combination.add(objectVariants.get((i/j)%objectVariants.size()));
-                j *= objectVariants.size();
-            }
-            combinations.add(combination);
-        }
-        return combinations;
+        return new CartesianProduct<>(sets).stream().collect(Collectors.toList());
+	}
+	
+	/**
+	 * Maps each element of a list to the position of its first occurrence, like {@link List#indexOf(Object)} without searching the list for each element
+	 */
+	public static <T> Map<T, Integer> positionsIn(List<T> list) {
+		Map<T, Integer> positions = new HashMap<>();
+		for(int i = 0; i < list.size(); i++) positions.putIfAbsent(list.get(i), i);
+		return positions;
 	}
 
 }
@@ -0,0 +1,58 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.instance.Activity;
+import org.cpntools.accesscpn.model.Arc;
+import org.cpntools.accesscpn.model.Page;
+import org.cpntools.accesscpn.model.PetriNet;
+import org.cpntools.accesscpn.model.Transition;
+import org.junit.jupiter.api.Test;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils.BpmnModelGenerator;
+import de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils.TestModels;
+
+public class ActivityTransputSetsTests {
+
+	/**
+	 * Without io-specification, all output sets are combined with one input set before the next input set is used, so transitions that read the same input set are numbered consecutively
+	 */
+	@Test
+	public void testCombinationsWithoutIoSpecificationAreNumberedPerInputSet() {
+		BpmnModelInstance bpmn = TestModels.load(BpmnModelGenerator.modelName(1));
+		List<Activity> activities = bpmn.getModelElementsByType(Activity.class).stream()
+				.filter(activity -> activity.getIoSpecification() == null)
+				.collect(Collectors.toList());
+		assertTrue(!activities.isEmpty());
+		PetriNet petriNet = CompilerApp.translateBPMN2CPN(bpmn);
+		for(Activity activity : activities) {
+			String name = Utils.normalizeElementName(activity.getName());
+			Page page = petriNet.getPage().stream().filter(each -> each.getName().asString().equals(name)).findAny().get();
+			List<Transition> transitions = new ArrayList<>();
+			page.transition().forEach(transitions::add);
+			transitions.sort((a, b) -> Integer.compare(index(a), index(b)));
+			long inputSets = transitions.stream().map(ActivityTransputSetsTests::inputs).distinct().count();
+			assertTrue(inputSets < transitions.size(), "Activity "+name+" has only one output set");
+			long changesOfInputSet = IntStream.range(1, transitions.size())
+					.filter(i -> !inputs(transitions.get(i - 1)).equals(inputs(transitions.get(i))))
+					.count();
+			assertEquals(inputSets - 1, changesOfInputSet, "Transitions of activity "+name+" that read the same input set are not numbered consecutively");
+		}
+	}
+
+	private static int index(Transition transition) {
+		String name = transition.getName().asString();
+		return Integer.parseInt(name.substring(name.lastIndexOf('_') + 1));
+	}
+
+	private static List<String> inputs(Transition transition) {
+		return transition.getTargetArc().stream().map(Arc::getHlinscription).map(Object::toString).sorted().collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,64 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BatchCompilerTests {
+
+	@TempDir
+	public Path outputDirectory;
+
+	private final ByteArrayOutputStream summary = new ByteArrayOutputStream();
+
+	private int run(String... args) {
+		return BatchCompiler.run(args, new PrintStream(summary));
+	}
+
+	@Test
+	public void testGlobsAndFilesAreCompiled() {
+		int exitCode = run("-o", outputDirectory.toString(), "-j", "2", "src/test/resources/SimpleWith*.bpmn", "src/test/resources/Simple.bpmn");
+		assertEquals(BatchCompiler.SUCCESS, exitCode, summary.toString());
+		Arrays.asList("Simple", "SimpleWithStates", "SimpleWithEvents", "SimpleWithGateways", "SimpleWithDataStore").forEach(model -> {
+			assertTrue(Files.isRegularFile(outputDirectory.resolve(model+".cpn")), "No net was written for model "+model);
+		});
+	}
+
+	@Test
+	public void testFailuresAreReported() {
+		int exitCode = run("-o", outputDirectory.toString(), "src/test/resources/Simple.bpmn", "src/test/resources/DoesNotExist.bpmn");
+		assertEquals(BatchCompiler.FAILURE, exitCode);
+		assertTrue(summary.toString().contains("DoesNotExist.bpmn"), "Failed file is not part of the summary");
+		assertTrue(Files.isRegularFile(outputDirectory.resolve("Simple.cpn")), "Other files are not compiled if one fails");
+	}
+
+	@Test
+	public void testCachedNetsAreNotCompiledAgain() {
+		Path cacheDirectory = outputDirectory.resolve("cache");
+		assertEquals(BatchCompiler.SUCCESS, run("-o", outputDirectory.toString(), "--cache", cacheDirectory.toString(), "src/test/resources/SimpleWith*.bpmn"), summary.toString());
+		assertFalse(summary.toString().contains("CACHED"), summary.toString());
+		summary.reset();
+		assertEquals(BatchCompiler.SUCCESS, run("-o", outputDirectory.toString(), "--cache", cacheDirectory.toString(), "--verify-cache", "src/test/resources/SimpleWith*.bpmn"), summary.toString());
+		assertTrue(summary.toString().contains("4 cache entries verified"), summary.toString());
+		assertTrue(summary.toString().contains("4 from cache"), summary.toString());
+	}
+
+	@Test
+	public void testInvalidArgumentsAreRejected() {
+		assertEquals(BatchCompiler.USAGE_ERROR, run("-j", "0", "src/test/resources/Simple.bpmn"));
+		assertEquals(BatchCompiler.USAGE_ERROR, run("-o", outputDirectory.toString()));
+		assertEquals(BatchCompiler.USAGE_ERROR, run("--verify-cache", "src/test/resources/Simple.bpmn"));
+		assertEquals(BatchCompiler.USAGE_ERROR, run("--cache-size", "many", "src/test/resources/Simple.bpmn"));
+		assertEquals(BatchCompiler.USAGE_ERROR, run("--cache-size", "17592186044417", "src/test/resources/Simple.bpmn"));
+	}
+
+}
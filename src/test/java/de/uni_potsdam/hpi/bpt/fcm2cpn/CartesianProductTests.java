@@ -0,0 +1,64 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+public class CartesianProductTests {
+
+	@Test
+	public void testFirstListVariesFastest() {
+		CartesianProduct<String> product = new CartesianProduct<>(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("1", "2")));
+		assertEquals(Arrays.asList(
+				Arrays.asList("a", "1"),
+				Arrays.asList("b", "1"),
+				Arrays.asList("a", "2"),
+				Arrays.asList("b", "2")),
+			product.stream().collect(Collectors.toList()));
+	}
+
+	@Test
+	public void testEmptyProducts() {
+		assertEquals(Collections.singletonList(Collections.emptyList()), Utils.allCombinationsOf(Collections.<List<String>>emptyList()));
+		assertTrue(new CartesianProduct<>(Arrays.asList(Arrays.asList("a", "b"), Collections.<String>emptyList())).isEmpty());
+	}
+
+	@Test
+	public void testOverflowIsDetected() {
+		List<List<Integer>> sets = Collections.nCopies(64, Arrays.asList(0, 1, 2));
+		assertThrows(IllegalArgumentException.class, () -> new CartesianProduct<>(sets, Long.MAX_VALUE));
+	}
+
+	@Test
+	public void testMaximumIsEnforced() {
+		List<List<Integer>> sets = Collections.nCopies(3, Arrays.asList(0, 1));
+		assertEquals(8, new CartesianProduct<>(sets, 8).size());
+		assertThrows(IllegalArgumentException.class, () -> new CartesianProduct<>(sets, 7));
+	}
+
+	@Test
+	public void testSplitsCoverAllCombinations() {
+		List<List<Integer>> sets = Collections.nCopies(10, Arrays.asList(0, 1, 2));
+		CartesianProduct<Integer> product = new CartesianProduct<>(sets);
+
+		Spliterator<List<Integer>> suffix = product.spliterator();
+		Spliterator<List<Integer>> prefix = suffix.trySplit();
+		assertNotNull(prefix);
+		assertEquals(product.size(), prefix.estimateSize() + suffix.estimateSize());
+
+		List<List<Integer>> sequential = product.stream().collect(Collectors.toList());
+		assertEquals(sequential, product.parallelStream().collect(Collectors.toList()));
+		assertEquals(IntStream.range(0, (int) product.size()).mapToObj(product::get).collect(Collectors.toList()), sequential);
+	}
+
+}
@@ -0,0 +1,109 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.cpntools.accesscpn.model.PetriNet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.CompilerApp.StateEncoding;
+import de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils.NetExports;
+import de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils.TestModels;
+
+public class CompilationCacheTests {
+
+	/** Masks coordinates, which the layout of access/cpn picks randomly for some nodes*/
+
+	@TempDir
+	public Path cacheDirectory;
+
+	@Test
+	public void testCachedNetsAreExportedLikeCompiledNets() throws Exception {
+		CompilationCache cache = new CompilationCache(cacheDirectory);
+		for(String model : new String[] {"TransputSets", "SimpleWithStates", "Associations", "SimpleWithDataStore"}) {
+			byte[] content = Files.readAllBytes(new File("./src/test/resources/"+model+".bpmn").toPath());
+			String key = CompilationCache.key(content, StateEncoding.EXPANDED);
+			assertNull(cache.get(key));
+			PetriNet petriNet = CompilerApp.translateBPMN2CPN(TestModels.load(model));
+			cache.put(key, petriNet);
+			PetriNet cachedNet = cache.get(key);
+			assertNotNull(cachedNet, "Net of model "+model+" was not cached");
+			assertEquals(NetExports.export(petriNet), NetExports.export(cachedNet), "Cached net of model "+model+" differs");
+		}
+	}
+
+	@Test
+	public void testKeysDependOnContentAndOptions() {
+		byte[] content = "<definitions/>".getBytes();
+		assertEquals(CompilationCache.key(content, StateEncoding.EXPANDED), CompilationCache.key(content.clone(), StateEncoding.EXPANDED));
+		assertNotEquals(CompilationCache.key(content, StateEncoding.EXPANDED), CompilationCache.key(content, StateEncoding.SYMBOLIC));
+		assertNotEquals(CompilationCache.key(content, StateEncoding.EXPANDED), CompilationCache.key("<definitions />".getBytes(), StateEncoding.EXPANDED));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEntriesAreEvicted() throws Exception {
+		PetriNet petriNet = CompilerApp.translateBPMN2CPN(Bpmn.readModelFromFile(new File("./src/test/resources/Simple.bpmn")));
+		CompilationCache measure = new CompilationCache(cacheDirectory.resolve("measure"));
+		measure.put("entry", petriNet);
+		long entrySize = measure.size();
+
+		CompilationCache cache = new CompilationCache(cacheDirectory.resolve("cache"), 2 * entrySize);
+		cache.put("first", petriNet);
+		cache.put("second", petriNet);
+		setLastUsed(cache, "first", 1000);
+		setLastUsed(cache, "second", 2000);
+		assertNotNull(cache.get("first"));
+		cache.put("third", petriNet);
+
+		assertEquals(List.of("first.net", "third.net"), entries(cache));
+		assertTrue(cache.size() <= 2 * entrySize);
+	}
+
+	@Test
+	public void testCorruptEntriesAreDetected() throws Exception {
+		PetriNet petriNet = CompilerApp.translateBPMN2CPN(Bpmn.readModelFromFile(new File("./src/test/resources/Simple.bpmn")));
+		CompilationCache cache = new CompilationCache(cacheDirectory);
+		cache.put("intact", petriNet);
+		cache.put("corrupt", petriNet);
+		cache.put("truncated", petriNet);
+		Path corrupt = cacheDirectory.resolve("corrupt.net");
+		byte[] bytes = Files.readAllBytes(corrupt);
+		bytes[bytes.length / 2] ^= 1;
+		Files.write(corrupt, bytes);
+		Path truncated = cacheDirectory.resolve("truncated.net");
+		Files.write(truncated, new byte[] {1, 2, 3});
+
+		CompilationCache.Verification verification = cache.verify();
+		assertEquals(1, verification.getValidEntries());
+		assertEquals(2, verification.getCorruptEntries().size());
+		assertEquals(List.of("intact.net"), entries(cache));
+
+		Files.write(corrupt, bytes);
+		assertNull(cache.get("corrupt"), "Corrupt entry was read");
+		assertTrue(Files.notExists(corrupt), "Corrupt entry was not removed");
+	}
+
+	private static void setLastUsed(CompilationCache cache, String key, long millis) throws IOException {
+		Files.setLastModifiedTime(cache.getDirectory().resolve(key+".net"), FileTime.fromMillis(millis));
+	}
+
+	private static List<String> entries(CompilationCache cache) throws IOException {
+		try(Stream<Path> files = Files.list(cache.getDirectory())) {
+			return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.instance.Activity;
+import org.cpntools.accesscpn.model.PetriNet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.CompilerApp.StateEncoding;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class CompilationEventsTests {
+
+	@TempDir
+	public Path outputDirectory;
+
+	@Test
+	public void testPhasesAndActivitiesAreRecorded() throws Exception {
+		BpmnModelInstance bpmn = Bpmn.readModelFromFile(new File("./src/test/resources/SimpleWithStates.bpmn"));
+		Path recordingFile = outputDirectory.resolve("compile.jfr");
+		CompilationMetrics metrics;
+		try(Recording recording = new Recording()) {
+			recording.enable("de.uni_potsdam.hpi.bpt.fcm2cpn.Phase").withoutThreshold();
+			recording.enable("de.uni_potsdam.hpi.bpt.fcm2cpn.Activity").withoutThreshold();
+			recording.start();
+			CompilationResult result = CompilerApp.compile(bpmn, StateEncoding.EXPANDED);
+			PetriNet petriNet = result.getPetriNet();
+			metrics = result.getMetrics();
+			CompilerApp.exportPetriNet(petriNet, outputDirectory.resolve("net.cpn").toString());
+			recording.stop();
+			recording.dump(recordingFile);
+		}
+		List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+
+		List<String> phases = events.stream()
+				.filter(event -> event.getEventType().getName().equals("de.uni_potsdam.hpi.bpt.fcm2cpn.Phase"))
+				.map(event -> event.getString("phase"))
+				.collect(Collectors.toList());
+		assertEquals(metrics.getPhases().keySet().stream().collect(Collectors.toList()), phases.subList(0, phases.size() - 1));
+		assertEquals("export", phases.get(phases.size() - 1));
+
+		List<RecordedEvent> activityEvents = events.stream()
+				.filter(event -> event.getEventType().getName().equals("de.uni_potsdam.hpi.bpt.fcm2cpn.Activity"))
+				.collect(Collectors.toList());
+		assertEquals(bpmn.getModelElementsByType(Activity.class).size(), activityEvents.size());
+		for(RecordedEvent event : activityEvents) {
+			String activityId = event.getString("activityId");
+			assertEquals((int) metrics.getTransputSetsPerActivity().get(activityId), event.getInt("transputSets"), "Wrong number of transput sets for activity "+activityId);
+			assertTrue(event.getInt("arcs") > 0, "No arcs recorded for activity "+activityId);
+		}
+	}
+}
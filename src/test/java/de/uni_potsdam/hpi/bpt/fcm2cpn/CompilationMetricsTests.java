@@ -0,0 +1,60 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.instance.Activity;
+import org.cpntools.accesscpn.model.PetriNet;
+import org.junit.jupiter.api.Test;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.CompilerApp.StateEncoding;
+import de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils.TestModels;
+
+public class CompilationMetricsTests {
+
+	private static CompilationResult compile(String model) {
+		BpmnModelInstance bpmn = TestModels.load(model);
+		return CompilerApp.compile(bpmn, StateEncoding.EXPANDED);
+	}
+
+	@Test
+	public void testAllPhasesAreMeasured() {
+		CompilationMetrics metrics = compile("SimpleWithStates").getMetrics();
+		assertEquals("[estimateNetSize, initializeCPNModel, translateData, translateActivities, translateEvents, translateGateways, translateControlFlow, runDeferredCalls, layout]",
+				metrics.getPhases().keySet().toString());
+		metrics.getPhases().values().forEach(phase -> assertTrue(phase.getWallNanos() >= 0));
+		assertEquals(metrics.getPhases().values().stream().mapToLong(CompilationMetrics.Phase::getWallNanos).sum(), metrics.getTotalNanos());
+	}
+
+	@Test
+	public void testCountsMatchNet() {
+		CompilationResult result = compile("SimpleWithStates");
+		PetriNet petriNet = result.getPetriNet();
+		CompilationMetrics metrics = result.getMetrics();
+		assertEquals(petriNet.getPage().size(), metrics.getPages());
+		assertEquals(petriNet.getPage().stream().mapToInt(page -> page.getArc().size()).sum(), metrics.getArcs());
+		assertEquals(petriNet.getPage().stream().mapToInt(page -> page.getObject().size()).sum(),
+				metrics.getPlaces() + metrics.getReferencePlaces() + metrics.getFusionPlaces() + metrics.getTransitions() + metrics.getSubstitutionTransitions());
+		assertTrue(metrics.getColorSets() > 0);
+		assertTrue(metrics.getVariables() > 0);
+	}
+
+	@Test
+	public void testTransputSetsAreCountedPerActivity() {
+		BpmnModelInstance bpmn = TestModels.load("SimpleWithStates");
+		CompilationMetrics metrics = CompilerApp.compile(bpmn, StateEncoding.EXPANDED).getMetrics();
+		bpmn.getModelElementsByType(Activity.class).forEach(activity ->
+			assertTrue(metrics.getTransputSetsPerActivity().get(activity.getId()) >= 1, "Activity "+activity.getId()+" has no transput sets"));
+		assertEquals(bpmn.getModelElementsByType(Activity.class).size(), metrics.getTransputSetsPerActivity().size());
+	}
+
+	@Test
+	public void testJsonReport() {
+		String json = compile("SimpleWithStates").getMetrics().toJson();
+		assertTrue(json.startsWith("{") && json.endsWith("}"));
+		assertTrue(json.contains("\"translateActivities\": {\"wallNanos\": "));
+		assertTrue(json.contains("\"transputSetsPerActivity\""));
+		assertEquals("\"a\\\"b\\\\c\\n\"", CompilationMetrics.quote("a\"b\\c\n"));
+	}
+}
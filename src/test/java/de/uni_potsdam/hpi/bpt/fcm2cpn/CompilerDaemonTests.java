@@ -0,0 +1,180 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils.BpmnModelGenerator;
+
+public class CompilerDaemonTests {
+
+	private static final Path MODEL = Paths.get("./src/test/resources/SimpleWithStates.bpmn");
+
+	@TempDir
+	public Path baseDirectory;
+
+	private CompilerDaemon daemon;
+
+	@AfterEach
+	public void stopDaemon() {
+		if(daemon != null) daemon.stop();
+	}
+
+	private CompilerDaemon start(int threads, int queueSize, long timeoutMillis) throws IOException {
+		daemon = new CompilerDaemon(0, threads, queueSize, timeoutMillis).setBaseDirectory(baseDirectory);
+		daemon.start();
+		return daemon;
+	}
+
+	@Test
+	public void testCompileRequestBody() throws IOException {
+		start(1, 1, 60_000);
+		Response response = post("/compile", Files.readAllBytes(MODEL));
+		assertEquals(200, response.status, response.body);
+		assertTrue(response.body.startsWith("<?xml"), "Response is not xml: "+response.body);
+		assertTrue(response.body.contains("<cpnet>"), "Response is no cpn file");
+	}
+
+	@Test
+	public void testCompilePathToOutputFile() throws IOException {
+		start(1, 1, 60_000);
+		Files.createDirectories(baseDirectory.resolve("models"));
+		Files.copy(MODEL, baseDirectory.resolve("models/model.bpmn"));
+		Path output = baseDirectory.resolve("net.cpn");
+		Response response = post("/compile?states=symbolic&path="+encode("models/model.bpmn")+"&output="+encode(output.toString()), new byte[0]);
+		assertEquals(200, response.status, response.body);
+		assertTrue(Files.size(output) > 0, "Net was not written");
+	}
+
+	@Test
+	public void testPathsOutsideBaseDirectoryAreRefused() throws IOException {
+		start(1, 1, 60_000);
+		Files.copy(MODEL, baseDirectory.resolve("model.bpmn"));
+		assertEquals(403, post("/compile?path="+encode(MODEL.toAbsolutePath().toString()), new byte[0]).status);
+		assertEquals(403, post("/compile?path="+encode("models/../../model.bpmn"), new byte[0]).status);
+		Path outside = baseDirectory.resolveSibling(baseDirectory.getFileName()+".cpn");
+		assertEquals(403, post("/compile?path=model.bpmn&output="+encode(outside.toString()), new byte[0]).status);
+		assertTrue(Files.notExists(outside), "Net was written outside of the base directory");
+	}
+
+	@Test
+	public void testRequestsFromOtherHostsAreRefused() throws IOException {
+		start(1, 1, 60_000);
+		assertEquals(403, rawStatus("GET /status HTTP/1.1\r\nHost: attacker.example:"+daemon.getPort()+"\r\n\r\n"));
+		assertEquals(403, rawStatus("GET /status HTTP/1.1\r\nHost: 127.0.0.1:"+daemon.getPort()+"\r\nOrigin: https://attacker.example\r\n\r\n"));
+		assertEquals(403, rawStatus("POST /compile?path=model.bpmn HTTP/1.1\r\nHost: localhost:"+daemon.getPort()+"\r\nOrigin: null\r\nContent-Length: 0\r\n\r\n"));
+		assertEquals(200, rawStatus("GET /status HTTP/1.1\r\nHost: localhost:"+daemon.getPort()+"\r\nOrigin: http://localhost:3000\r\n\r\n"));
+	}
+
+	@Test
+	public void testInvalidModelIsRejected() throws IOException {
+		start(1, 1, 60_000);
+		assertEquals(400, post("/compile", "<definitions".getBytes(StandardCharsets.UTF_8)).status);
+		assertEquals(400, post("/compile", new byte[0]).status);
+	}
+
+	@Test
+	public void testLargeBodyIsRejected() throws IOException {
+		start(1, 1, 60_000).setMaxBodyBytes(1024);
+		Response response = post("/compile", Files.readAllBytes(MODEL));
+		assertEquals(413, response.status, response.body);
+	}
+
+	@Test
+	public void testFullQueueIsRejected() throws Exception {
+		start(1, 1, 60_000);
+		CountDownLatch release = new CountDownLatch(1);
+		Future<?> running = daemon.submit(() -> release.await(1, TimeUnit.MINUTES));
+		Future<?> queued = daemon.submit(() -> release.await(1, TimeUnit.MINUTES));
+		try {
+			Response response = post("/compile", Files.readAllBytes(MODEL));
+			assertEquals(503, response.status, response.body);
+			assertTrue(get("/status").body.contains("\"rejected\": 1"));
+		} finally {
+			release.countDown();
+		}
+		running.get();
+		queued.get();
+		assertEquals(200, post("/compile", Files.readAllBytes(MODEL)).status);
+	}
+
+	@Test
+	public void testSlowRequestsTimeOut() throws IOException {
+		start(1, 1, 1);
+		ByteArrayOutputStream model = new ByteArrayOutputStream();
+		Bpmn.writeModelToStream(model, BpmnModelGenerator.forModelName(BpmnModelGenerator.modelName(10)).generate());
+		Response response = post("/compile", model.toByteArray());
+		assertEquals(504, response.status, response.body);
+		assertTrue(get("/status").body.contains("\"timedOut\": 1"));
+	}
+
+	private static String encode(String parameter) throws IOException {
+		return URLEncoder.encode(parameter, "UTF-8");
+	}
+
+	private Response post(String path, byte[] body) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(daemon.getUrl()+path).openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		try(OutputStream out = connection.getOutputStream()) {
+			out.write(body);
+		}
+		return new Response(connection);
+	}
+
+	/**
+	 * Sends the raw request, as {@link HttpURLConnection} does not allow to set the host and origin headers
+	 */
+	private int rawStatus(String request) throws IOException {
+		try(Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+			socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+			String statusLine = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII)).readLine();
+			return Integer.parseInt(statusLine.split(" ")[1]);
+		}
+	}
+
+	private Response get(String path) throws IOException {
+		return new Response((HttpURLConnection) new URL(daemon.getUrl()+path).openConnection());
+	}
+
+	private static class Response {
+		private final int status;
+		private final String body;
+
+		private Response(HttpURLConnection connection) throws IOException {
+			status = connection.getResponseCode();
+			InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			if(in != null) {
+				try(InputStream stream = in) {
+					stream.transferTo(content);
+				}
+			}
+			body = new String(content.toByteArray(), StandardCharsets.UTF_8);
+			connection.disconnect();
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.cpntools.accesscpn.model.PetriNet;
+import org.junit.jupiter.api.Test;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.CompilerApp.StateEncoding;
+import de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils.NetExports;
+import de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils.TestModels;
+
+/**
+ * Compiles all test models concurrently, and with parallel translation of activities, and checks that the resulting nets do not differ from sequentially compiled ones.<br>
+ * Nets are compared by their exports, so they must match in all ids, names and element orders; only the randomized layout may differ.
+ */
+public class ConcurrencyStressTests {
+
+	private static final int THREADS = 8;
+	private static final int ROUNDS = 4;
+
+	@Test
+	public void testConcurrentTranslationsMatchSequentialTranslations() throws Exception {
+		List<String> models = TestModels.allModels().collect(Collectors.toList());
+		for(StateEncoding stateEncoding : StateEncoding.values()) {
+			Map<String, String> expected = new HashMap<>();
+			for(String model : models) expected.put(model, NetExports.export(compile(model, stateEncoding, false)));
+
+			List<String> tasks = new ArrayList<>();
+			for(int i = 0; i < ROUNDS; i++) tasks.addAll(models);
+			Collections.shuffle(tasks, new Random(42));
+
+			ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+			try {
+				CountDownLatch start = new CountDownLatch(1);
+				List<Future<String>> results = new ArrayList<>();
+				for(String model : tasks) {
+					Callable<String> task = () -> {
+						start.await();
+						return NetExports.export(compile(model, stateEncoding, false));
+					};
+					results.add(executor.submit(task));
+				}
+				start.countDown();
+				for(int i = 0; i < tasks.size(); i++) {
+					String model = tasks.get(i);
+					assertEquals(expected.get(model), results.get(i).get(), "Concurrent translation of model "+model+" ("+stateEncoding+") differs from sequential translation");
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	@Test
+	public void testParallelActivitiesMatchSequentialTranslation() {
+		TestModels.allModelsAndLargeGenerated().forEach(model -> {
+			for(StateEncoding stateEncoding : StateEncoding.values()) {
+				assertEquals(NetExports.export(compile(model, stateEncoding, false)), NetExports.export(compile(model, stateEncoding, true)),
+						"Translation of model "+model+" ("+stateEncoding+") with parallel activities differs from sequential translation");
+			}
+		});
+	}
+
+	private static PetriNet compile(String model, StateEncoding stateEncoding, boolean parallelActivities) {
+		return new CompilerApp(TestModels.load(model), stateEncoding)
+				.setProgressOutput(TestModels.silentOutput())
+				.setParallelActivities(parallelActivities)
+				.translateBPMN2CPN();
+	}
+}
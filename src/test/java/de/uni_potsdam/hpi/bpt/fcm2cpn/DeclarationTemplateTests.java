@@ -0,0 +1,59 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.cpntools.accesscpn.model.HLDeclaration;
+import org.cpntools.accesscpn.model.HasId;
+import org.cpntools.accesscpn.model.PetriNet;
+import org.cpntools.accesscpn.model.util.BuildCPNUtil;
+import org.junit.jupiter.api.Test;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils.TestModels;
+
+public class DeclarationTemplateTests {
+
+	@Test
+	public void testTemplatesAreReused() {
+		assertSame(DeclarationTemplate.of("caseId", true), DeclarationTemplate.of("caseId", true));
+		assertNotSame(DeclarationTemplate.of("caseId", true), DeclarationTemplate.of("caseId", false));
+	}
+
+	@Test
+	public void testNetsGetIndependentCopies() {
+		DeclarationTemplate template = DeclarationTemplate.of("caseId", false);
+		PetriNet first = new BuildCPNUtil().createPetriNet();
+		PetriNet second = new BuildCPNUtil().createPetriNet();
+		template.copyInto(first);
+		template.copyInto(second);
+
+		assertEquals(first.getLabel().size(), second.getLabel().size());
+		for(int i = 0; i < first.getLabel().size(); i++) {
+			assertNotSame(first.getLabel().get(i), second.getLabel().get(i));
+			assertSame(first, first.getLabel().get(i).getParent());
+		}
+		((HLDeclaration) first.getLabel().get(0)).setId("changed");
+		PetriNet third = new BuildCPNUtil().createPetriNet();
+		template.copyInto(third);
+		assertEquals(((HLDeclaration) second.getLabel().get(0)).getId(), ((HLDeclaration) third.getLabel().get(0)).getId());
+	}
+
+	@Test
+	public void testIdsAreUniqueInCompiledNets() {
+		TestModels.allModels().forEach(model -> {
+			PetriNet petriNet = CompilerApp.translateBPMN2CPN(TestModels.load(model));
+			List<String> ids = Stream.concat(
+					petriNet.getLabel().stream().filter(HLDeclaration.class::isInstance).map(HasId.class::cast),
+					petriNet.getPage().stream().flatMap(page -> Stream.concat(Stream.of(page), Stream.concat(page.getObject().stream(), page.getArc().stream())))
+				).map(HasId::getId).collect(Collectors.toList());
+			Set<String> uniqueIds = Set.copyOf(ids);
+			assertEquals(ids.size(), uniqueIds.size(), "Duplicate ids in net of model "+model);
+		});
+	}
+}
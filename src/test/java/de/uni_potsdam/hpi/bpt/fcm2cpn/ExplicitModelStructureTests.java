@@ -1,15 +1,21 @@
 package de.uni_potsdam.hpi.bpt.fcm2cpn;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.File;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import org.camunda.bpm.model.bpmn.Bpmn;
 import org.cpntools.accesscpn.model.Page;
 import org.cpntools.accesscpn.model.Place;
+import org.cpntools.accesscpn.model.Transition;
 import org.junit.jupiter.api.Test;
 
+import de.uni_potsdam.hpi.bpt.fcm2cpn.CompilerApp.StateEncoding;
 import de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils.ModelsToTest;
 
 public class ExplicitModelStructureTests extends ModelStructureTests {
@@ -19,6 +25,8 @@ public class ExplicitModelStructureTests extends ModelStructureTests {
 	private static final String STARTEVENTNAME_NORMALIZED = "Case Started";
 	private static final String FIRSTDATAOBJECTNAME = "A";
 	private static final String SECONDDATAOBJECTNAME = "B";
+	private static final String IOSETACTIVITYNAME = "Process Data";
+	private static final String DATASTORENAME = "Database";
 
 	@Test
 	public void testAlwaysTrue() {
@@ -128,4 +136,34 @@ public class ExplicitModelStructureTests extends ModelStructureTests {
 			}
 		}
 	}
+	
+	@Test
+	@ModelsToTest("IoSetsWithDataStore")
+	public void testDataStoresAreAccessedOncePerTransputSet() {
+		Page activityPage = pageNamed(IOSETACTIVITYNAME);
+		List<Transition> transitions = activityTransitionsNamed(activityPage, IOSETACTIVITYNAME).collect(Collectors.toList());
+		assertEquals(2, transitions.size(), 
+				"There is not exactly one transition per output set of activity "+IOSETACTIVITYNAME);
+		transitions.forEach(transition -> {
+			assertEquals(1, arcsFromNodeNamed(transition, DATASTORENAME).count(),
+					"There is not exactly one read arc from data store "+DATASTORENAME+" to transition "+transition.getName().asString());
+			assertEquals(1, arcsToNodeNamed(transition, DATASTORENAME).count(),
+					"There is not exactly one write arc from transition "+transition.getName().asString()+" to data store "+DATASTORENAME);
+		});
+	}
+	
+	@Test
+	public void testSymbolicStatesUseOneTransitionPerTransputSet() {
+		bpmn = Bpmn.readModelFromFile(new File("./src/test/resources/SimpleWithStates.bpmn"));
+		petrinet = CompilerApp.translateBPMN2CPN(bpmn, StateEncoding.SYMBOLIC);
+		Page activityPage = pagesNamed(ACTIVITYNAME).findAny().get();
+		List<Transition> transitions = activityTransitionsNamed(activityPage, ACTIVITYNAME).collect(Collectors.toList());
+		assertEquals(2, transitions.size(), "There is not exactly one transition for each combination of output data associations");
+		transitions.forEach(transition -> {
+			assertTrue(transition.getCondition().getText().contains("(AInState = X orelse AInState = Y)"), "Input state is not restricted by guard of transition "+transition.getName().asString());
+			assertEquals(1, transition.getTargetArc().stream().filter(arc -> arc.getHlinscription().asString().contains("state = AInState")).count(), "Input state is not bound to variable");
+		});
+		assertEquals(1, transitions.stream().filter(transition -> transition.getCondition().getText().contains("(BOutState = Z2 orelse BOutState = Z3)")).count(), 
+				"There is not exactly one transition that writes the output states Z2 and Z3 symbolically");
+	}
 }
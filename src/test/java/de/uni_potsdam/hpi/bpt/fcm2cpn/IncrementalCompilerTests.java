@@ -0,0 +1,126 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.instance.Activity;
+import org.camunda.bpm.model.bpmn.instance.BaseElement;
+import org.camunda.bpm.model.bpmn.instance.DataObjectReference;
+import org.cpntools.accesscpn.model.PetriNet;
+import org.junit.jupiter.api.Test;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.CompilerApp.StateEncoding;
+import de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils.NetExports;
+import de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils.TestModels;
+
+public class IncrementalCompilerTests {
+
+	/** Masks coordinates, which the layout of access/cpn picks randomly for some nodes*/
+
+	@Test
+	public void testUnchangedModelsReuseAllActivities() {
+		for(StateEncoding stateEncoding : StateEncoding.values()) testUnchangedModelsReuseAllActivities(stateEncoding);
+	}
+
+	private void testUnchangedModelsReuseAllActivities(StateEncoding stateEncoding) {
+		TestModels.allModels().forEach(model -> {
+			IncrementalCompiler compiler = new IncrementalCompiler(stateEncoding);
+			compiler.compile(TestModels.load(model));
+			PetriNet petriNet = compiler.compile(TestModels.load(model));
+			assertEquals(activityIds(TestModels.load(model)), compiler.getReusedActivities(), "Not all activities of model "+model+" were reused");
+			assertTrue(compiler.getRetranslatedActivities().isEmpty());
+			assertEquals(NetExports.export(CompilerApp.translateBPMN2CPN(TestModels.load(model), stateEncoding)), NetExports.export(petriNet), "Incrementally compiled net of model "+model+" differs");
+		});
+	}
+
+	@Test
+	public void testOnlyRenamedActivityIsRetranslated() {
+		for(StateEncoding stateEncoding : StateEncoding.values()) testOnlyRenamedActivityIsRetranslated(stateEncoding);
+	}
+
+	private void testOnlyRenamedActivityIsRetranslated(StateEncoding stateEncoding) {
+		TestModels.allModels().forEach(model -> {
+			Consumer<BpmnModelInstance> rename = bpmn -> firstActivity(bpmn).setName("Renamed Activity");
+			Set<String> retranslated = Set.of(firstActivity(TestModels.load(model)).getId());
+			assertIncrementalCompilation(model, rename, retranslated, stateEncoding, false);
+		});
+	}
+
+	@Test
+	public void testOnlyActivitiesAccessingChangedStateAreRetranslated() {
+		for(StateEncoding stateEncoding : StateEncoding.values()) testOnlyActivitiesAccessingChangedStateAreRetranslated(stateEncoding);
+	}
+
+	private void testOnlyActivitiesAccessingChangedStateAreRetranslated(StateEncoding stateEncoding) {
+		String model = "SimpleWithStates";
+		Consumer<BpmnModelInstance> changeState = bpmn -> firstReferenceWithState(bpmn).getDataState().setName("[changed]");
+		BpmnModelInstance bpmn = TestModels.load(model);
+		String reference = firstReferenceWithState(bpmn).getId();
+		Set<String> retranslated = bpmn.getModelElementsByType(Activity.class).stream()
+				.filter(activity -> Stream.concat(
+						activity.getDataInputAssociations().stream().flatMap(assoc -> assoc.getSources().stream()), 
+						activity.getDataOutputAssociations().stream().map(assoc -> assoc.getTarget()))
+					.anyMatch(element -> element.getId().equals(reference)))
+				.map(Activity::getId)
+				.collect(Collectors.toSet());
+		assertIncrementalCompilation(model, changeState, retranslated, stateEncoding, false);
+	}
+
+	@Test
+	public void testParallelIncrementalCompilation() {
+		for(StateEncoding stateEncoding : StateEncoding.values()) testParallelIncrementalCompilation(stateEncoding);
+	}
+
+	private void testParallelIncrementalCompilation(StateEncoding stateEncoding) {
+		TestModels.allModels().forEach(model -> {
+			Consumer<BpmnModelInstance> rename = bpmn -> firstActivity(bpmn).setName("Renamed Activity");
+			Set<String> retranslated = Set.of(firstActivity(TestModels.load(model)).getId());
+			assertIncrementalCompilation(model, rename, retranslated, stateEncoding, true);
+		});
+	}
+
+	/**
+	 * Compiles the model, changes it and compiles it again; checks that exactly the expected activities were retranslated and that the net equals that of a full compilation
+	 */
+	private static void assertIncrementalCompilation(String model, Consumer<BpmnModelInstance> change, Set<String> expectedRetranslated, StateEncoding stateEncoding, boolean parallel) {
+		IncrementalCompiler compiler = new IncrementalCompiler(stateEncoding).setParallelActivities(parallel);
+		BpmnModelInstance bpmn = TestModels.load(model);
+		compiler.compile(bpmn);
+		change.accept(bpmn);
+		PetriNet petriNet = compiler.compile(bpmn);
+		assertEquals(expectedRetranslated, compiler.getRetranslatedActivities(), "Wrong activities of model "+model+" were retranslated");
+		Set<String> expectedReused = activityIds(bpmn);
+		expectedReused.removeAll(expectedRetranslated);
+		assertEquals(expectedReused, compiler.getReusedActivities(), "Wrong activities of model "+model+" were reused");
+
+		BpmnModelInstance changed = TestModels.load(model);
+		change.accept(changed);
+		assertEquals(NetExports.export(CompilerApp.translateBPMN2CPN(changed, stateEncoding)), NetExports.export(petriNet), "Incrementally compiled net of changed model "+model+" differs");
+	}
+
+	private static Set<String> activityIds(BpmnModelInstance bpmn) {
+		return bpmn.getModelElementsByType(Activity.class).stream().map(BaseElement::getId).collect(Collectors.toSet());
+	}
+
+	private static Activity firstActivity(BpmnModelInstance bpmn) {
+		return first(bpmn.getModelElementsByType(Activity.class));
+	}
+
+	private static DataObjectReference firstReferenceWithState(BpmnModelInstance bpmn) {
+		return bpmn.getModelElementsByType(DataObjectReference.class).stream()
+				.filter(reference -> reference.getDataState() != null)
+				.sorted((a, b) -> a.getId().compareTo(b.getId()))
+				.findFirst().get();
+	}
+
+	private static <T extends BaseElement> T first(Collection<T> elements) {
+		return elements.stream().sorted((a, b) -> a.getId().compareTo(b.getId())).findFirst().get();
+	}
+}
@@ -0,0 +1,32 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+public class InscriptionCacheTests {
+
+	@Test
+	public void testStateColorsMatchUncachedNormalization() {
+		InscriptionCache cache = new InscriptionCache();
+		for(String state : new String[] {"[A | b |  c]", "in progress", "half-done", "[x]|y", " "}) {
+			assertEquals(Utils.dataObjectStateToNetColors(state).collect(Collectors.toList()), cache.stateColors(state), "Wrong colors for state \""+state+"\"");
+		}
+		assertEquals(List.of("A", "B", "C"), cache.stateColors("[A | b |  c]"));
+		assertEquals(List.of("IN_PROGRESS"), cache.stateColors("in progress"));
+		assertEquals(List.of("HALF_DONE"), cache.stateColors("half-done"));
+	}
+
+	@Test
+	public void testResultsAreShared() {
+		InscriptionCache cache = new InscriptionCache();
+		assertSame(cache.stateColors("[A | B]"), cache.stateColors(new String("[A | B]")));
+		String name = cache.normalizedName(" Some\nActivity ");
+		assertEquals("Some Activity", name);
+		assertSame(name, cache.normalizedName(new String(" Some\nActivity ")));
+	}
+}
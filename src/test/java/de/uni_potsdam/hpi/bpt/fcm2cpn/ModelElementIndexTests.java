@@ -0,0 +1,36 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.instance.Activity;
+import org.camunda.bpm.model.bpmn.instance.BaseElement;
+import org.camunda.bpm.model.bpmn.instance.DataAssociation;
+import org.camunda.bpm.model.bpmn.instance.DataObject;
+import org.camunda.bpm.model.bpmn.instance.DataState;
+import org.camunda.bpm.model.bpmn.instance.DataStore;
+import org.camunda.bpm.model.bpmn.instance.FlowNode;
+import org.camunda.bpm.model.bpmn.instance.ItemAwareElement;
+import org.camunda.bpm.model.bpmn.instance.SequenceFlow;
+import org.junit.jupiter.api.Test;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils.TestModels;
+
+public class ModelElementIndexTests {
+
+	@Test
+	public void testElementsMatchModelQueries() {
+		List<Class<? extends BaseElement>> types = List.of(FlowNode.class, Activity.class, SequenceFlow.class, ItemAwareElement.class, DataAssociation.class, DataObject.class, DataStore.class, DataState.class);
+		TestModels.allModelsAndLargeGenerated().forEach(model -> {
+			BpmnModelInstance bpmn = TestModels.load(model);
+			ModelElementIndex elements = new ModelElementIndex(bpmn);
+			for(Class<? extends BaseElement> type : types) {
+				// Same instances in the same order
+				assertEquals(new ArrayList<>(bpmn.getModelElementsByType(type)), elements.getModelElementsByType(type), "Wrong "+type.getSimpleName()+" elements in model "+model);
+			}
+		});
+	}
+}
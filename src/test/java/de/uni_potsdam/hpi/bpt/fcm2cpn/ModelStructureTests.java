@@ -2,7 +2,6 @@ package de.uni_potsdam.hpi.bpt.fcm2cpn;
 
 import static de.uni_potsdam.hpi.bpt.fcm2cpn.Utils.*;
 
-import java.io.File;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.reflect.Method;
@@ -25,7 +24,6 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
-import org.camunda.bpm.model.bpmn.Bpmn;
 import org.camunda.bpm.model.bpmn.BpmnModelInstance;
 import org.camunda.bpm.model.bpmn.instance.Activity;
 import org.camunda.bpm.model.bpmn.instance.DataInputAssociation;
@@ -56,6 +54,7 @@ import org.junit.platform.commons.util.ReflectionUtils;
 
 import de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils.ArgumentTreeTests;
 import de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils.ModelsToTest;
+import de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils.TestModels;
 
 public abstract class ModelStructureTests {
 
@@ -366,7 +365,7 @@ public abstract class ModelStructureTests {
 	}
 	
 	public Stream<Arc> arcsFromNodeNamed(Node target, String sourceName) {
-		return target.getTargetArc().stream().filter(arc -> arc.getOtherEnd(target).getName().asString().equals(sourceName));
+		return target.getTargetArc().stream().filter(arc -> sourceName.equals(arc.getOtherEnd(target).getName().asString()));
 	}
 	
 	public Stream<Transition> activityTransitionsNamed(Page page, String activityName) {
@@ -421,7 +420,7 @@ public abstract class ModelStructureTests {
 	
 	protected void compileModel(String modelName) {
 		model = modelName;
-		bpmn = Bpmn.readModelFromFile(new File("./src/test/resources/"+model+".bpmn"));
+		bpmn = TestModels.load(model);
         petrinet = CompilerApp.translateBPMN2CPN(bpmn);
 	}
 	
@@ -430,16 +429,7 @@ public abstract class ModelStructureTests {
 	protected static @interface TestWithAllModels {}
 	
 	public Stream<String> allModels() {
-		return Stream.of(
-			"Simple", 
-			"SimpleWithStates", 
-			"SimpleWithEvents", 
-			"SimpleWithGateways", 
-			"SimpleWithDataStore", 
-			"TranslationJob",
-			"Associations",
-			"TransputSets"
-		);
+		return TestModels.allModels();
 	}
 	
 	
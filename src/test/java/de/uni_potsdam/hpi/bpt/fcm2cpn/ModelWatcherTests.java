@@ -0,0 +1,118 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.CompilerApp.StateEncoding;
+
+public class ModelWatcherTests {
+
+	private static final Path MODEL = Paths.get("./src/test/resources/SimpleWithStates.bpmn");
+	private static final long TIMEOUT_MILLIS = 30_000;
+
+	@TempDir
+	public Path directory;
+
+	private ModelWatcher watcher;
+	private Thread watcherThread;
+	private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+	@AfterEach
+	public void stopWatcher() throws Exception {
+		if(watcher != null) watcher.close();
+		if(watcherThread != null) watcherThread.join(TIMEOUT_MILLIS);
+	}
+
+	private void watch(Path input, long debounceMillis) throws IOException {
+		watcher = new ModelWatcher(List.of(input), null, StateEncoding.EXPANDED, debounceMillis, new PrintStream(output, true));
+		watcher.start();
+		watcherThread = new Thread(watcher::run);
+		watcherThread.start();
+	}
+
+	@Test
+	public void testChangedModelIsRecompiled() throws Exception {
+		Path model = Files.copy(MODEL, directory.resolve("model.bpmn"));
+		Path net = directory.resolve("model.cpn");
+		watch(directory, 10);
+		assertTrue(Files.exists(net), "Net was not compiled initially");
+		assertTrue(!read(net).contains("Renamed"));
+
+		write(model, content().replace("name=\"One\"", "name=\"Renamed\""));
+		awaitUntil(() -> read(net).contains("Renamed"), "Changed model was not recompiled");
+		assertTrue(output.toString().contains("1 of 1 activities retranslated"), output.toString());
+	}
+
+	@Test
+	public void testNewModelInWatchedDirectoryIsCompiled() throws Exception {
+		watch(directory, 10);
+		Files.createDirectories(directory.resolve("sub"));
+		Files.copy(MODEL, directory.resolve("sub/new.bpmn"));
+		awaitUntil(() -> Files.exists(directory.resolve("sub/new.cpn")), "New model was not compiled");
+	}
+
+	@Test
+	public void testChangesAreDebounced() throws Exception {
+		Path model = Files.copy(MODEL, directory.resolve("model.bpmn"));
+		watch(model, 1000);
+		assertEquals(1, watcher.getCompilations());
+		for(int i = 0; i < 5; i++) {
+			write(model, content().replace("name=\"One\"", "name=\"Version"+i+"\""));
+		}
+		awaitUntil(() -> read(directory.resolve("model.cpn")).contains("Version4"), "Changed model was not recompiled");
+		// The net is written before the compilation is counted
+		awaitUntil(() -> watcher.getCompilations() >= 2, "Recompilation did not finish");
+		assertEquals(2, watcher.getCompilations(), "Burst of changes was not compiled once");
+	}
+
+	@Test
+	public void testInvalidModelKeepsPreviousNet() throws Exception {
+		Path model = Files.copy(MODEL, directory.resolve("model.bpmn"));
+		Path net = directory.resolve("model.cpn");
+		watch(model, 10);
+		String compiledNet = read(net);
+		write(model, "<definitions");
+		awaitUntil(() -> watcher.getCompilations() == 2, "Changed model was not recompiled");
+		assertTrue(output.toString().contains("FAILED"), output.toString());
+		assertEquals(compiledNet, read(net));
+	}
+
+	private static String content() throws IOException {
+		return new String(Files.readAllBytes(MODEL), StandardCharsets.UTF_8);
+	}
+
+	private static void write(Path file, String content) throws IOException {
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String read(Path file) {
+		try {
+			return new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+		} catch (IOException e) {
+			return "";
+		}
+	}
+
+	private static void awaitUntil(BooleanSupplier condition, String message) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while(!condition.getAsBoolean()) {
+			if(System.currentTimeMillis() > deadline) fail(message);
+			Thread.sleep(20);
+		}
+	}
+}
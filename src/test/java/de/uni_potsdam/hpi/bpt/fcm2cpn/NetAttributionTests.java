@@ -0,0 +1,89 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.cpntools.accesscpn.model.Page;
+import org.cpntools.accesscpn.model.PetriNet;
+import org.cpntools.accesscpn.model.RefPlace;
+import org.cpntools.accesscpn.model.Transition;
+import org.junit.jupiter.api.Test;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.CompilerApp.StateEncoding;
+import de.uni_potsdam.hpi.bpt.fcm2cpn.NetAttribution.Contribution;
+import de.uni_potsdam.hpi.bpt.fcm2cpn.NetAttribution.Entry;
+import de.uni_potsdam.hpi.bpt.fcm2cpn.NetAttribution.Kind;
+import de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils.TestModels;
+
+public class NetAttributionTests {
+
+	@Test
+	public void testAllSubpageElementsAreAttributed() {
+		TestModels.allModels().forEach(model -> {
+			CompilerApp compiler = compiler(model).setAttribution(true);
+			PetriNet petriNet = compiler.translateBPMN2CPN();
+			List<Page> subpages = petriNet.getPage().stream().filter(page -> !page.getName().asString().equals("Main Page")).collect(Collectors.toList());
+			List<Entry> entries = compiler.getAttribution().getEntries();
+
+			assertEquals(idsOf(subpages.stream().flatMap(page -> page.getObject().stream()).filter(Transition.class::isInstance).map(Transition.class::cast).map(Transition::getId)),
+					idsOf(entries, Kind.TRANSITION), "Not all subpage transitions of model "+model+" are attributed");
+			assertEquals(idsOf(subpages.stream().flatMap(page -> page.getArc().stream()).map(arc -> arc.getId())),
+					idsOf(entries, Kind.ARC), "Not all subpage arcs of model "+model+" are attributed");
+			assertEquals(idsOf(subpages.stream().flatMap(page -> page.getObject().stream()).filter(RefPlace.class::isInstance).map(RefPlace.class::cast).map(RefPlace::getId)),
+					idsOf(entries, Kind.REFERENCE_PLACE), "Not all reference places of model "+model+" are attributed");
+			entries.forEach(entry -> assertTrue(entry.getElementId() != null, "Entry "+entry.getNetElementId()+" of model "+model+" is not attributed to a bpmn element"));
+		});
+	}
+
+	@Test
+	public void testDataAssociationArcsNameTheirAssociation() {
+		CompilerApp compiler = compiler("TransputSets").setAttribution(true);
+		compiler.translateBPMN2CPN();
+		List<Entry> dataFlowArcs = compiler.getAttribution().getEntries().stream()
+				.filter(entry -> entry.getKind() == Kind.ARC && Set.of("read", "write", "write back", "read before write").contains(entry.getCause()))
+				.collect(Collectors.toList());
+		assertFalse(dataFlowArcs.isEmpty());
+		dataFlowArcs.forEach(entry -> assertEquals(1, entry.getDataAssociations().size(), "Data flow arc "+entry.getNetElementId()+" does not name its association"));
+	}
+
+	@Test
+	public void testContributionsAreRanked() {
+		CompilerApp compiler = compiler("TransputSets").setAttribution(true);
+		compiler.translateBPMN2CPN();
+		NetAttribution attribution = compiler.getAttribution();
+		for(List<Contribution> ranking : List.of(attribution.rankByElement(), attribution.rankByDataAssociation())) {
+			assertFalse(ranking.isEmpty());
+			for(int i = 1; i < ranking.size(); i++) {
+				assertTrue(ranking.get(i - 1).getSize() >= ranking.get(i).getSize(), "Contributions are not ranked by size");
+			}
+		}
+		assertEquals(attribution.getEntries().size(), attribution.rankByElement().stream().mapToLong(Contribution::getSize).sum());
+		String report = attribution.report();
+		assertTrue(report.contains(attribution.rankByElement().get(0).getKey()));
+	}
+
+	@Test
+	public void testNothingIsRecordedByDefault() {
+		CompilerApp compiler = compiler("TransputSets");
+		compiler.translateBPMN2CPN();
+		assertTrue(compiler.getAttribution().getEntries().isEmpty());
+	}
+
+	private static Set<String> idsOf(Stream<String> ids) {
+		return ids.collect(Collectors.toSet());
+	}
+
+	private static Set<String> idsOf(List<Entry> entries, Kind kind) {
+		return idsOf(entries.stream().filter(entry -> entry.getKind() == kind).map(Entry::getNetElementId));
+	}
+
+	private static CompilerApp compiler(String model) {
+		return new CompilerApp(TestModels.load(model), StateEncoding.EXPANDED).setProgressOutput(TestModels.silentOutput());
+	}
+}
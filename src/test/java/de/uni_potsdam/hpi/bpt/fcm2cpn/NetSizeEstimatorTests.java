@@ -0,0 +1,68 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.cpntools.accesscpn.model.Page;
+import org.cpntools.accesscpn.model.PetriNet;
+import org.cpntools.accesscpn.model.RefPlace;
+import org.cpntools.accesscpn.model.Transition;
+import org.junit.jupiter.api.Test;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.CompilerApp.StateEncoding;
+import de.uni_potsdam.hpi.bpt.fcm2cpn.NetSizeEstimate.ActivityEstimate;
+import de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils.TestModels;
+
+public class NetSizeEstimatorTests {
+
+	@Test
+	public void testEstimateMatchesNet() {
+		TestModels.allModelsAndLargeGenerated().forEach(model -> {
+			for(StateEncoding stateEncoding : StateEncoding.values()) {
+				CompilerApp compiler = compiler(model, stateEncoding);
+				PetriNet petriNet = compiler.translateBPMN2CPN();
+				Map<String, Page> pages = petriNet.getPage().stream().collect(Collectors.toMap(page -> page.getName().asString(), Function.identity(), (a, b) -> a));
+				for(ActivityEstimate activity : compiler.getNetSizeEstimate().getActivities()) {
+					Page page = pages.get(Utils.normalizeElementName(activity.getName()));
+					String context = "Activity "+activity.getName()+" of model "+model+" ("+stateEncoding+")";
+					assertEquals(count(page, Transition.class), activity.getTransitions(), context+": wrong number of transitions");
+					assertTrue(activity.getArcs() >= page.getArc().size(), context+": "+activity.getArcs()+" arcs estimated, but "+page.getArc().size()+" created");
+					assertTrue(activity.getReferencePlaces() >= count(page, RefPlace.class), context+": "+activity.getReferencePlaces()+" reference places estimated, but "+count(page, RefPlace.class)+" created");
+				}
+			}
+		});
+	}
+
+	@Test
+	public void testLimitsFailBeforeTranslation() {
+		CompilerApp compiler = compiler("TransputSets", StateEncoding.EXPANDED).setNetSizeLimits(new NetSizeLimits(1, Long.MAX_VALUE, Long.MAX_VALUE));
+		NetSizeLimitExceededException exception = assertThrows(NetSizeLimitExceededException.class, compiler::translateBPMN2CPN);
+		assertEquals(1, compiler.getMetrics().getPhases().size(), "Translation continued after the estimate");
+		exception.getEstimate().getActivities().stream()
+			.filter(activity -> activity.getTransitions() > 1)
+			.forEach(activity -> assertTrue(exception.getMessage().contains(activity.getId()), "Offending activity "+activity.getId()+" is not reported"));
+	}
+
+	@Test
+	public void testTotalLimitsReportLargestActivities() {
+		CompilerApp compiler = compiler("TransputSets", StateEncoding.EXPANDED).setNetSizeLimits(new NetSizeLimits(Long.MAX_VALUE, 1, Long.MAX_VALUE));
+		NetSizeLimitExceededException exception = assertThrows(NetSizeLimitExceededException.class, compiler::translateBPMN2CPN);
+		assertTrue(exception.getMessage().contains("Largest activities"));
+		ActivityEstimate largest = exception.getEstimate().getActivities().stream().max(Comparator.comparingLong(ActivityEstimate::getTransitions)).get();
+		assertTrue(exception.getMessage().contains(largest.getId()));
+	}
+
+	private static long count(Page page, Class<?> type) {
+		return page.getObject().stream().filter(type::isInstance).count();
+	}
+
+	private static CompilerApp compiler(String model, StateEncoding stateEncoding) {
+		return new CompilerApp(TestModels.load(model), stateEncoding).setProgressOutput(TestModels.silentOutput());
+	}
+}
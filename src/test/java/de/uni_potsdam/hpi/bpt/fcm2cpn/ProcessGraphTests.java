@@ -0,0 +1,69 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.instance.Activity;
+import org.camunda.bpm.model.bpmn.instance.BaseElement;
+import org.camunda.bpm.model.bpmn.instance.BoundaryEvent;
+import org.camunda.bpm.model.bpmn.instance.DataAssociation;
+import org.camunda.bpm.model.bpmn.instance.FlowNode;
+import org.camunda.bpm.model.bpmn.instance.SequenceFlow;
+import org.junit.jupiter.api.Test;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils.TestModels;
+
+public class ProcessGraphTests {
+
+	@Test
+	public void testControlFlowMatchesModel() {
+		TestModels.allModelsAndLargeGenerated().forEach(model -> {
+			BpmnModelInstance bpmn = TestModels.load(model);
+			ProcessGraph graph = new ProcessGraph(bpmn, new DataAssociationIndex(bpmn));
+			assertEquals(bpmn.getModelElementsByType(FlowNode.class).size(), graph.flowNodeCount(), "Wrong number of flow nodes in model "+model);
+			assertEquals(ids(bpmn.getModelElementsByType(Activity.class).stream()), ids(Arrays.stream(graph.activities()).mapToObj(graph::flowNode)), "Activities of model "+model+" are not in translation order");
+			for(int node = 0; node < graph.flowNodeCount(); node++) {
+				FlowNode flowNode = graph.flowNode(node);
+				assertEquals(node, graph.flowNodeId(flowNode));
+				String context = "Flow node "+flowNode.getId()+" of model "+model;
+				if(flowNode instanceof BoundaryEvent) assertSame(((BoundaryEvent) flowNode).getAttachedTo(), graph.flowNode(graph.attachedTo(node)), context+": wrong attached activity");
+				else assertEquals(ProcessGraph.NONE, graph.attachedTo(node));
+			}
+			List<SequenceFlow> sequenceFlows = new ArrayList<>(bpmn.getModelElementsByType(SequenceFlow.class));
+			assertEquals(sequenceFlows.size(), graph.sequenceFlowCount(), "Wrong number of sequence flows in model "+model);
+			for(int flow = 0; flow < graph.sequenceFlowCount(); flow++) {
+				SequenceFlow sequenceFlow = sequenceFlows.get(flow);
+				assertSame(sequenceFlow.getSource(), graph.flowNode(graph.source(flow)), "Wrong source of sequence flow "+sequenceFlow.getId()+" of model "+model);
+				assertSame(sequenceFlow.getTarget(), graph.flowNode(graph.target(flow)), "Wrong target of sequence flow "+sequenceFlow.getId()+" of model "+model);
+			}
+		});
+	}
+
+	@Test
+	public void testAssociationsReferToTheirDataElements() {
+		TestModels.allModelsAndLargeGenerated().forEach(model -> {
+			BpmnModelInstance bpmn = TestModels.load(model);
+			DataAssociationIndex dataAssociations = new DataAssociationIndex(bpmn);
+			ProcessGraph graph = new ProcessGraph(bpmn, dataAssociations);
+			for(DataAssociation association : bpmn.getModelElementsByType(DataAssociation.class)) {
+				int reference = graph.dataReferenceOf(graph.associationId(association));
+				assertSame(dataAssociations.getDataElement(association), graph.dataReference(reference), "Association "+association.getId()+" of model "+model+": wrong data element");
+			}
+			for(int reference = 0; reference < graph.dataReferenceCount(); reference++) {
+				assertTrue(graph.isDataObjectReference(reference) == graph.dataReference(reference).getElementType().getTypeName().equals("dataObjectReference"));
+			}
+		});
+	}
+
+	private static String ids(Stream<? extends BaseElement> elements) {
+		return elements.map(BaseElement::getId).collect(Collectors.joining(", "));
+	}
+}
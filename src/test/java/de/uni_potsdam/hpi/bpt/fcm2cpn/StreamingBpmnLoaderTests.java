@@ -0,0 +1,94 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelException;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.instance.Activity;
+import org.camunda.bpm.model.bpmn.instance.ExtensionElements;
+import org.camunda.bpm.model.bpmn.instance.bpmndi.BpmnShape;
+import org.cpntools.accesscpn.model.PetriNet;
+import org.junit.jupiter.api.Test;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.CompilerApp.StateEncoding;
+import de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils.NetExports;
+
+public class StreamingBpmnLoaderTests {
+
+	/** Masks coordinates, which the layout of access/cpn picks randomly for some nodes*/
+
+	@Test
+	public void testNetsAreIdenticalToCamundaLoadedModels() throws IOException {
+		for(Path file : bpmnFiles()) {
+			for(StateEncoding stateEncoding : StateEncoding.values()) {
+				PetriNet expected = CompilerApp.translateBPMN2CPN(Bpmn.readModelFromFile(file.toFile()), stateEncoding);
+				PetriNet actual = CompilerApp.translateBPMN2CPN(StreamingBpmnLoader.load(file), stateEncoding);
+				assertEquals(NetExports.export(expected), NetExports.export(actual), "Net of "+file+" differs when loaded by streaming");
+			}
+		}
+	}
+
+	@Test
+	public void testOnlyTranslatedElementsAreKept() throws IOException {
+		Path file = Paths.get("./src/test/resources/TranslationJob.bpmn");
+		CompactBpmnModel model = StreamingBpmnLoader.load(file);
+		for(int element = 0; element < model.size(); element++) {
+			assertTrue(StreamingBpmnLoader.TRANSLATED_ELEMENTS.contains(model.kind(element)), "Element "+model.kind(element)+" was kept");
+		}
+		BpmnModelInstance full = Bpmn.readModelFromFile(file.toFile());
+		BpmnModelInstance lean = model.toModelInstance();
+		assertTrue(!full.getModelElementsByType(BpmnShape.class).isEmpty() && !full.getModelElementsByType(ExtensionElements.class).isEmpty());
+		assertTrue(lean.getModelElementsByType(BpmnShape.class).isEmpty(), "Diagram interchange was kept");
+		assertTrue(lean.getModelElementsByType(ExtensionElements.class).isEmpty(), "Extension elements were kept");
+		assertEquals(
+				full.getModelElementsByType(Activity.class).stream().map(Activity::getId).collect(Collectors.toList()),
+				Arrays.stream(model.elementsOfKind("task")).mapToObj(model::id).collect(Collectors.toList()));
+	}
+
+	@Test
+	public void testElementsAreIndexed() throws IOException {
+		CompactBpmnModel model = StreamingBpmnLoader.load(Paths.get("./src/test/resources/SimpleWithStates.bpmn"));
+		assertEquals("definitions", model.kind(0));
+		assertEquals(CompactBpmnModel.NO_ELEMENT, model.parent(0));
+		for(int element = 0; element < model.size(); element++) {
+			if(model.id(element) != null) assertEquals(element, model.indexOf(model.id(element)));
+			for(int child = model.firstChild(element); child != CompactBpmnModel.NO_ELEMENT; child = model.nextSibling(child)) {
+				assertEquals(element, model.parent(child));
+				assertTrue(child > element, "Children are not in document order");
+			}
+		}
+		assertEquals(CompactBpmnModel.NO_ELEMENT, model.indexOf("no such id"));
+		int sequenceFlow = model.elementsOfKind("sequenceFlow")[0];
+		assertTrue(model.indexOf(model.attribute(sequenceFlow, "sourceRef")) != CompactBpmnModel.NO_ELEMENT);
+	}
+
+	@Test
+	public void testInvalidModelsAreRejected() {
+		for(String content : new String[] {"", "<definitions", "<notBpmn/>", "<definitions xmlns=\"http://example.org\"/>"}) {
+			assertThrows(BpmnModelException.class, () -> StreamingBpmnLoader.load(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))), content);
+		}
+	}
+
+	private static List<Path> bpmnFiles() throws IOException {
+		try(Stream<Path> resources = Files.list(Paths.get("./src/test/resources")); Stream<Path> models = Files.list(Paths.get("./models"))) {
+			return Stream.concat(resources, models)
+					.filter(file -> file.getFileName().toString().endsWith(".bpmn"))
+					.sorted()
+					.collect(Collectors.toList());
+		}
+	}
+}
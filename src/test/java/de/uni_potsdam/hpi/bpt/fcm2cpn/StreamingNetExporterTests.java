@@ -0,0 +1,191 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPInputStream;
+
+import javax.naming.OperationNotSupportedException;
+
+import org.cpntools.accesscpn.model.Arc;
+import org.cpntools.accesscpn.model.ModelFactory;
+import org.cpntools.accesscpn.model.Node;
+import org.cpntools.accesscpn.model.Page;
+import org.cpntools.accesscpn.model.PetriNet;
+import org.cpntools.accesscpn.model.Transition;
+import org.cpntools.accesscpn.model.exporter.DOMGenerator;
+import org.cpntools.accesscpn.model.graphics.AnnotationGraphics;
+import org.cpntools.accesscpn.model.graphics.Coordinate;
+import org.cpntools.accesscpn.model.graphics.Fill;
+import org.cpntools.accesscpn.model.graphics.GraphicsFactory;
+import org.cpntools.accesscpn.model.graphics.Line;
+import org.cpntools.accesscpn.model.graphics.NodeGraphics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils.NetExports;
+import de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils.TestModels;
+
+public class StreamingNetExporterTests {
+
+	/** Masks coordinates, which the layout of access/cpn picks randomly for some nodes*/
+
+	@TempDir
+	public Path outputDirectory;
+
+	@Test
+	public void testOutputIsIdenticalForLaidOutNets() throws Exception {
+		TestModels.allModels().forEach(model -> {
+			PetriNet petriNet = CompilerApp.translateBPMN2CPN(TestModels.load(model));
+			layout(petriNet);
+			assertArrayEquals(domExport(petriNet), streamingExport(petriNet), "Streamed net of model "+model+" differs");
+		});
+	}
+
+	@Test
+	public void testOutputIsIdenticalUpToRandomLayout() throws Exception {
+		TestModels.allModels().forEach(model -> {
+			PetriNet petriNet = CompilerApp.translateBPMN2CPN(TestModels.load(model));
+			assertEquals(asString(domExport(petriNet)).replaceAll(NetExports.COORDINATES, ""), asString(streamingExport(petriNet)).replaceAll(NetExports.COORDINATES, ""), "Streamed net of model "+model+" differs");
+		});
+	}
+
+	@Test
+	public void testSpecialCharactersAreEscapedLikeByTheDom() throws Exception {
+		PetriNet petriNet = CompilerApp.translateBPMN2CPN(TestModels.load("TransputSets"));
+		layout(petriNet);
+		String[] texts = {" ", "\n", "a\r\nb", "<&>\"'", "\t", "\u00e9\u00ff", "\u20ac", "\ud83d\ude00", "\u0001", "]]>", "\u007f\u0085\u009f\u00a0"};
+		int i = 0;
+		for(Page page : petriNet.getPage()) {
+			for(Transition transition : page.transition()) {
+				String text = texts[i++ % texts.length];
+				transition.getName().setText(text);
+				transition.getCode().setText(text);
+			}
+			for(Arc arc : page.getArc()) {
+				arc.getHlinscription().setText(texts[i++ % texts.length]);
+			}
+		}
+		assertArrayEquals(domExport(petriNet), streamingExport(petriNet));
+	}
+
+	@Test
+	public void testParallelOutputIsIdentical() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			TestModels.allModels().forEach(model -> {
+				PetriNet petriNet = CompilerApp.translateBPMN2CPN(TestModels.load(model));
+				layout(petriNet);
+				assertArrayEquals(domExport(petriNet), streamingExport(petriNet, executor), "Streamed net of model "+model+" differs");
+			});
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testParallelExportReportsUnsupportedElements() throws Exception {
+		PetriNet petriNet = CompilerApp.translateBPMN2CPN(TestModels.load("TransputSets"));
+		petriNet.getPage().get(petriNet.getPage().size() - 1).getObject().add(ModelFactory.INSTANCE.createRefTrans());
+		assertThrows(OperationNotSupportedException.class, () -> StreamingNetExporter.export(petriNet, new ByteArrayOutputStream(), ForkJoinPool.commonPool()));
+	}
+
+	@Test
+	public void testGzipOutput() throws Exception {
+		PetriNet petriNet = CompilerApp.translateBPMN2CPN(TestModels.load("TransputSets"));
+		layout(petriNet);
+		Path file = outputDirectory.resolve("net.cpn.gz");
+		StreamingNetExporter.export(petriNet, file);
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		try(InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+			in.transferTo(content);
+		}
+		assertArrayEquals(streamingExport(petriNet), content.toByteArray());
+	}
+
+	/**
+	 * Gives each node and arc inscription graphics, so that neither exporter falls back to the random layout
+	 */
+	private static void layout(PetriNet petriNet) {
+		int i = 0;
+		for(Page page : petriNet.getPage()) {
+			for(Object object : page.getObject()) {
+				if(!(object instanceof Node)) continue;
+				NodeGraphics graphics = GraphicsFactory.INSTANCE.createNodeGraphics();
+				graphics.setPosition(coordinate(i * 10.5, -i * 7));
+				if(i % 2 == 0) graphics.setDimension(coordinate(80, 30));
+				if(i % 3 == 0) {
+					Line line = GraphicsFactory.INSTANCE.createLine();
+					line.setColor("Blue");
+					line.setWidth(2.6);
+					graphics.setLine(line);
+					Fill fill = GraphicsFactory.INSTANCE.createFill();
+					fill.setColor("Red");
+					graphics.setFill(fill);
+				}
+				graphics.setParent((Node) object);
+				i++;
+			}
+			for(Arc arc : page.getArc()) {
+				AnnotationGraphics graphics = GraphicsFactory.INSTANCE.createAnnotationGraphics();
+				graphics.setOffset(coordinate(i, i++));
+				graphics.setParent(arc.getHlinscription());
+			}
+		}
+	}
+
+	private static Coordinate coordinate(double x, double y) {
+		Coordinate coordinate = GraphicsFactory.INSTANCE.createCoordinate();
+		coordinate.setX(x);
+		coordinate.setY(y);
+		return coordinate;
+	}
+
+	/**
+	 * Exports with block ids starting from zero, as in the first export of a jvm
+	 */
+	private static byte[] domExport(PetriNet petriNet) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		synchronized (DOMGenerator.class) {
+			try {
+				Field blockId = DOMGenerator.class.getDeclaredField("id");
+				blockId.setAccessible(true);
+				blockId.setInt(null, 0);
+				DOMGenerator.export(petriNet, out);
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] streamingExport(PetriNet petriNet) {
+		return streamingExport(petriNet, null);
+	}
+
+	private static byte[] streamingExport(PetriNet petriNet, Executor pageExecutor) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			StreamingNetExporter.export(petriNet, out, pageExecutor);
+		} catch (IOException | OperationNotSupportedException e) {
+			throw new RuntimeException(e);
+		}
+		return out.toByteArray();
+	}
+
+	private static String asString(byte[] bytes) {
+		return new String(bytes, Charset.defaultCharset());
+	}
+}
@@ -0,0 +1,408 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.impl.instance.SourceRef;
+import org.camunda.bpm.model.bpmn.impl.instance.TargetRef;
+import org.camunda.bpm.model.bpmn.instance.Activity;
+import org.camunda.bpm.model.bpmn.instance.BaseElement;
+import org.camunda.bpm.model.bpmn.instance.BoundaryEvent;
+import org.camunda.bpm.model.bpmn.instance.BpmnModelElementInstance;
+import org.camunda.bpm.model.bpmn.instance.DataInput;
+import org.camunda.bpm.model.bpmn.instance.DataInputAssociation;
+import org.camunda.bpm.model.bpmn.instance.DataObject;
+import org.camunda.bpm.model.bpmn.instance.DataObjectReference;
+import org.camunda.bpm.model.bpmn.instance.DataOutput;
+import org.camunda.bpm.model.bpmn.instance.DataOutputAssociation;
+import org.camunda.bpm.model.bpmn.instance.DataState;
+import org.camunda.bpm.model.bpmn.instance.DataStore;
+import org.camunda.bpm.model.bpmn.instance.DataStoreReference;
+import org.camunda.bpm.model.bpmn.instance.Definitions;
+import org.camunda.bpm.model.bpmn.instance.EndEvent;
+import org.camunda.bpm.model.bpmn.instance.ExclusiveGateway;
+import org.camunda.bpm.model.bpmn.instance.FlowNode;
+import org.camunda.bpm.model.bpmn.instance.Gateway;
+import org.camunda.bpm.model.bpmn.instance.InputSet;
+import org.camunda.bpm.model.bpmn.instance.IoSpecification;
+import org.camunda.bpm.model.bpmn.instance.ItemAwareElement;
+import org.camunda.bpm.model.bpmn.instance.OutputSet;
+import org.camunda.bpm.model.bpmn.instance.ParallelGateway;
+import org.camunda.bpm.model.bpmn.instance.Process;
+import org.camunda.bpm.model.bpmn.instance.SequenceFlow;
+import org.camunda.bpm.model.bpmn.instance.StartEvent;
+import org.camunda.bpm.model.bpmn.instance.Task;
+
+/**
+ * Generates synthetic fragment models of configurable size, e.g. to stress test the compiler.<br>
+ * The generated process is a sequence of activities, interleaved with blocks of two parallel branches that are split and joined by (alternating exclusive and parallel) gateways.
+ * Each activity reads and writes data objects in states that use the <code>[A | B]</code> shortcut, accesses one data store and may have an io-specification with several input and output sets.
+ * Boundary events are attached to activities and lead to their own end events.<br>
+ * Generated models can be referred to by name, see {@link #forModelName(String)}, so they can be used wherever test models are referenced.
+ */
+public class BpmnModelGenerator {
+
+	/** Name pattern for generated models, e.g. Generated_x10 is ten times the size of {@link #BpmnModelGenerator() the default model}*/
+	private static final Pattern MODEL_NAME = Pattern.compile("Generated_x(\\d+)");
+
+	private int activities = 8;
+	private int dataObjects = 5;
+	private int dataStores = 2;
+	private int statesPerObject = 4;
+	private int statesPerReference = 2;
+	private int readsPerActivity = 2;
+	private int writesPerActivity = 2;
+	private int ioSpecificationInterval = 2;
+	private int setsPerIoSpecification = 2;
+	private int gateways = 2;
+	private int boundaryEvents = 1;
+	private long seed = 42;
+
+	private BpmnModelInstance model;
+	private Process process;
+	private Random random;
+	private int idCounter;
+
+	/**
+	 * Creates a generator for a model that is roughly as large as the largest handmade test models
+	 */
+	public BpmnModelGenerator() {}
+
+	/**
+	 * Creates a generator for a model that has <code>factor</code> times as many elements as {@link #BpmnModelGenerator() the default model}
+	 */
+	public static BpmnModelGenerator scaled(int factor) {
+		BpmnModelGenerator generator = new BpmnModelGenerator();
+		return generator
+			.activities(generator.activities * factor)
+			.dataObjects(generator.dataObjects * factor)
+			.dataStores(generator.dataStores * factor)
+			.gateways(generator.gateways * factor)
+			.boundaryEvents(generator.boundaryEvents * factor);
+	}
+
+	public static boolean isGeneratedModel(String modelName) {
+		return MODEL_NAME.matcher(modelName).matches();
+	}
+
+	/**
+	 * Resolves a model name of the form <code>Generated_x&lt;factor&gt;</code> to the {@link #scaled(int) scaled} generator
+	 */
+	public static BpmnModelGenerator forModelName(String modelName) {
+		Matcher matcher = MODEL_NAME.matcher(modelName);
+		if(!matcher.matches()) throw new IllegalArgumentException("Not the name of a generated model: "+modelName);
+		return scaled(Integer.parseInt(matcher.group(1)));
+	}
+
+	public static String modelName(int factor) {
+		return "Generated_x"+factor;
+	}
+
+
+	//======= Configuration ========
+	public BpmnModelGenerator activities(int activities) {
+		this.activities = activities;
+		return this;
+	}
+
+	public BpmnModelGenerator dataObjects(int dataObjects) {
+		this.dataObjects = dataObjects;
+		return this;
+	}
+
+	public BpmnModelGenerator dataStores(int dataStores) {
+		this.dataStores = dataStores;
+		return this;
+	}
+
+	public BpmnModelGenerator statesPerObject(int statesPerObject) {
+		this.statesPerObject = statesPerObject;
+		return this;
+	}
+
+	/**
+	 * Number of states that a single data object reference is labeled with, values greater than one lead to <code>[A | B | C]</code> shortcuts
+	 */
+	public BpmnModelGenerator statesPerReference(int statesPerReference) {
+		this.statesPerReference = statesPerReference;
+		return this;
+	}
+
+	public BpmnModelGenerator readsPerActivity(int readsPerActivity) {
+		this.readsPerActivity = readsPerActivity;
+		return this;
+	}
+
+	public BpmnModelGenerator writesPerActivity(int writesPerActivity) {
+		this.writesPerActivity = writesPerActivity;
+		return this;
+	}
+
+	/**
+	 * Every n-th activity gets an io-specification, 0 means that no activity has one
+	 */
+	public BpmnModelGenerator ioSpecificationInterval(int ioSpecificationInterval) {
+		this.ioSpecificationInterval = ioSpecificationInterval;
+		return this;
+	}
+
+	/**
+	 * Number of input sets and of output sets per io-specification
+	 */
+	public BpmnModelGenerator setsPerIoSpecification(int setsPerIoSpecification) {
+		this.setsPerIoSpecification = setsPerIoSpecification;
+		return this;
+	}
+
+	/**
+	 * Number of split/join gateway pairs; each pair encloses two activities
+	 */
+	public BpmnModelGenerator gateways(int gateways) {
+		this.gateways = gateways;
+		return this;
+	}
+
+	public BpmnModelGenerator boundaryEvents(int boundaryEvents) {
+		this.boundaryEvents = boundaryEvents;
+		return this;
+	}
+
+	public BpmnModelGenerator seed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+
+	//======= Generation ========
+	public BpmnModelInstance generate() {
+		model = Bpmn.createEmptyModel();
+		random = new Random(seed);
+		idCounter = 0;
+
+		Definitions definitions = model.newInstance(Definitions.class);
+		definitions.setTargetNamespace("http://bpt.hpi.uni-potsdam.de/fcm2cpn/generated");
+		model.setDefinitions(definitions);
+		process = createElement(definitions, Process.class);
+
+		List<DataObject> dataObjectElements = IntStream.range(0, dataObjects)
+				.mapToObj(i -> createNamedElement(process, DataObject.class, "Object"+i))
+				.collect(Collectors.toList());
+		List<DataStore> dataStoreElements = IntStream.range(0, dataStores)
+				.mapToObj(i -> createNamedElement(definitions, DataStore.class, "Store"+i))
+				.collect(Collectors.toList());
+
+		List<Activity> activityElements = IntStream.range(0, activities)
+				.mapToObj(i -> createNamedElement(process, Task.class, "Activity "+i))
+				.collect(Collectors.toList());
+		createControlFlow(activityElements);
+
+		for(int i = 0; i < activities; i++) {
+			Activity activity = activityElements.get(i);
+			List<DataObject> readObjects = objectsForActivity(dataObjectElements, i, readsPerActivity);
+			List<DataObject> writtenObjects = objectsForActivity(dataObjectElements, i + readsPerActivity, writesPerActivity);
+			if(ioSpecificationInterval > 0 && i % ioSpecificationInterval == 0) {
+				createIoSpecification(activity, readObjects, writtenObjects);
+			} else {
+				readObjects.forEach(dataObject -> createDataInputAssociation(activity, createDataObjectReference(dataObject), null));
+				writtenObjects.forEach(dataObject -> createDataOutputAssociation(activity, createDataObjectReference(dataObject), null));
+			}
+			if(!dataStoreElements.isEmpty()) {
+				DataStoreReference storeReference = createDataStoreReference(dataStoreElements.get(i % dataStoreElements.size()));
+				if(i % 2 == 0) createDataInputAssociation(activity, storeReference, null);
+				else createDataOutputAssociation(activity, storeReference, null);
+			}
+		}
+
+		createBoundaryEvents(activityElements);
+		return model;
+	}
+
+	private void createControlFlow(List<Activity> activityElements) {
+		FlowNode current = createNamedElement(process, StartEvent.class, "Start");
+		int remainingBlocks = Math.min(gateways, activityElements.size() / 2);
+		int remainingSingles = activityElements.size() - 2 * remainingBlocks;
+		int nextActivity = 0;
+		int blockIndex = 0;
+		while(remainingBlocks > 0 || remainingSingles > 0) {
+			if(remainingBlocks > 0 && (remainingSingles == 0 || blockIndex <= nextActivity / 4)) {
+				Class<? extends Gateway> gatewayType = blockIndex % 2 == 0 ? ExclusiveGateway.class : ParallelGateway.class;
+				String gatewayLabel = gatewayType == ExclusiveGateway.class ? "XOR" : "AND";
+				Gateway split = createNamedElement(process, gatewayType, gatewayLabel+" Split "+blockIndex);
+				Gateway join = createNamedElement(process, gatewayType, gatewayLabel+" Join "+blockIndex);
+				createSequenceFlow(current, split);
+				for(int branch = 0; branch < 2; branch++) {
+					Activity activity = activityElements.get(nextActivity++);
+					createSequenceFlow(split, activity);
+					createSequenceFlow(activity, join);
+				}
+				current = join;
+				remainingBlocks--;
+				blockIndex++;
+			} else {
+				Activity activity = activityElements.get(nextActivity++);
+				createSequenceFlow(current, activity);
+				current = activity;
+				remainingSingles--;
+			}
+		}
+		createSequenceFlow(current, createNamedElement(process, EndEvent.class, "End"));
+	}
+
+	private void createBoundaryEvents(List<Activity> activityElements) {
+		int numberOfEvents = Math.min(boundaryEvents, activityElements.size());
+		for(int i = 0; i < numberOfEvents; i++) {
+			Activity attachedTo = activityElements.get(i * activityElements.size() / numberOfEvents);
+			BoundaryEvent event = createNamedElement(process, BoundaryEvent.class, "Interrupt "+i);
+			event.setAttachedTo(attachedTo);
+			event.setCancelActivity(true);
+			createSequenceFlow(event, createNamedElement(process, EndEvent.class, "Interrupted "+i));
+		}
+	}
+
+	private void createIoSpecification(Activity activity, List<DataObject> readObjects, List<DataObject> writtenObjects) {
+		IoSpecification ioSpecification = createElement(activity, IoSpecification.class);
+		List<InputSet> inputSets = new ArrayList<>();
+		List<OutputSet> outputSets = new ArrayList<>();
+
+		for(int set = 0; set < setsPerIoSpecification; set++) {
+			List<DataInput> dataInputs = readObjects.stream()
+					.map(dataObject -> {
+						DataInput input = createElement(ioSpecification, DataInput.class);
+						createDataInputAssociation(activity, createDataObjectReference(dataObject), input);
+						return input;
+					}).collect(Collectors.toList());
+			List<DataOutput> dataOutputs = writtenObjects.stream()
+					.map(dataObject -> {
+						DataOutput output = createElement(ioSpecification, DataOutput.class);
+						createDataOutputAssociation(activity, createDataObjectReference(dataObject), output);
+						return output;
+					}).collect(Collectors.toList());
+
+			InputSet inputSet = createNamedElement(ioSpecification, InputSet.class, "Input "+set);
+			inputSet.getDataInputs().addAll(dataInputs);
+			inputSets.add(inputSet);
+			OutputSet outputSet = createNamedElement(ioSpecification, OutputSet.class, "Output "+set);
+			outputSet.getDataOutputRefs().addAll(dataOutputs);
+			outputSets.add(outputSet);
+		}
+
+		// Each input set leads to its "own" output set and to the next one
+		for(int set = 0; set < setsPerIoSpecification; set++) {
+			InputSet inputSet = inputSets.get(set);
+			for(OutputSet outputSet : new OutputSet[] {outputSets.get(set), outputSets.get((set + 1) % setsPerIoSpecification)}) {
+				if(inputSet.getOutputSets().contains(outputSet)) continue;
+				inputSet.getOutputSets().add(outputSet);
+				outputSet.getInputSetRefs().add(inputSet);
+			}
+		}
+	}
+
+	private List<DataObject> objectsForActivity(List<DataObject> dataObjectElements, int offset, int count) {
+		if(dataObjectElements.isEmpty()) return new ArrayList<>();
+		return IntStream.range(0, Math.min(count, dataObjectElements.size()))
+				.mapToObj(i -> dataObjectElements.get((offset + i) % dataObjectElements.size()))
+				.collect(Collectors.toList());
+	}
+
+	private DataObjectReference createDataObjectReference(DataObject dataObject) {
+		String stateName = randomStateName();
+		DataObjectReference reference = createNamedElement(process, DataObjectReference.class, dataObject.getName()+" ["+stateName+"]");
+		reference.setDataObject(dataObject);
+		DataState state = model.newInstance(DataState.class, nextId(DataState.class));
+		state.setName(stateName);
+		reference.setDataState(state);
+		return reference;
+	}
+
+	/**
+	 * Random consecutive states, joined to a shortcut such as <code>State1 | State2</code> if {@link #statesPerReference} is greater than one
+	 */
+	private String randomStateName() {
+		int numberOfStates = Math.max(1, Math.min(statesPerReference, statesPerObject));
+		int firstState = random.nextInt(Math.max(1, statesPerObject - numberOfStates + 1));
+		return IntStream.range(firstState, firstState + numberOfStates)
+			.mapToObj(state -> "State"+state)
+			.collect(Collectors.joining(" | "));
+	}
+
+	private DataStoreReference createDataStoreReference(DataStore dataStore) {
+		DataStoreReference reference = createNamedElement(process, DataStoreReference.class, dataStore.getName());
+		reference.setDataStore(dataStore);
+		return reference;
+	}
+
+	/**
+	 * Creates an association from a data element reference to an activity, or to the data input of its io-specification if it is given
+	 */
+	private DataInputAssociation createDataInputAssociation(Activity activity, ItemAwareElement source, DataInput input) {
+		DataInputAssociation association = createElement(activity, DataInputAssociation.class);
+		association.getSources().add(source);
+		if(input != null) {
+			association.setTarget(input);
+		} else {
+			createReference(association, TargetRef.class, activity);
+		}
+		return association;
+	}
+
+	/**
+	 * Creates an association to a data element reference from an activity, or from the data output of its io-specification if it is given
+	 */
+	private DataOutputAssociation createDataOutputAssociation(Activity activity, ItemAwareElement target, DataOutput output) {
+		DataOutputAssociation association = createElement(activity, DataOutputAssociation.class);
+		if(output != null) {
+			association.getSources().add(output);
+		} else {
+			createReference(association, SourceRef.class, activity);
+		}
+		association.setTarget(target);
+		return association;
+	}
+
+	/**
+	 * Source and target references of data associations to activities have to be set by id, as activities are no item aware elements
+	 */
+	private void createReference(BpmnModelElementInstance association, Class<? extends BpmnModelElementInstance> referenceType, BaseElement referencedElement) {
+		BpmnModelElementInstance reference = model.newInstance(referenceType);
+		reference.setTextContent(referencedElement.getId());
+		association.addChildElement(reference);
+	}
+
+	private SequenceFlow createSequenceFlow(FlowNode source, FlowNode target) {
+		SequenceFlow flow = createElement(process, SequenceFlow.class);
+		flow.setSource(source);
+		flow.setTarget(target);
+		source.getOutgoing().add(flow);
+		target.getIncoming().add(flow);
+		return flow;
+	}
+
+	private <T extends BpmnModelElementInstance> T createNamedElement(BpmnModelElementInstance parent, Class<T> elementClass, String name) {
+		T element = createElement(parent, elementClass);
+		element.setAttributeValue("name", name);
+		return element;
+	}
+
+	private <T extends BpmnModelElementInstance> T createElement(BpmnModelElementInstance parent, Class<T> elementClass) {
+		T element = model.newInstance(elementClass, nextId(elementClass));
+		if(parent == process || parent instanceof Definitions) {
+			// Process and definitions only get flow and root elements, which may be in any order; appending avoids the linear search for the insert position
+			parent.getDomElement().appendChild(element.getDomElement());
+		} else {
+			parent.addChildElement(element);
+		}
+		return element;
+	}
+
+	private String nextId(Class<?> elementClass) {
+		return elementClass.getSimpleName()+"_"+(idCounter++);
+	}
+
+}
@@ -0,0 +1,31 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils;
+
+import java.io.ByteArrayOutputStream;
+
+import org.cpntools.accesscpn.model.PetriNet;
+
+import de.uni_potsdam.hpi.bpt.fcm2cpn.StreamingNetExporter;
+
+/**
+ * Compares nets by their exported files, which includes ids, names, inscriptions and the order of all elements
+ */
+public class NetExports {
+
+	/** Node coordinates in exported nets; the layout is randomized, so they differ between translations of the same model*/
+	public static final String COORDINATES = " (x|y)=\"[-0-9.E]*\"";
+
+	private NetExports() {}
+
+	/**
+	 * The exported net with all {@link #COORDINATES coordinates} removed
+	 */
+	public static String export(PetriNet petriNet) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			StreamingNetExporter.export(petriNet, out);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+		return out.toString().replaceAll(COORDINATES, "");
+	}
+}
@@ -0,0 +1,57 @@
+package de.uni_potsdam.hpi.bpt.fcm2cpn.testUtils;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.stream.Stream;
+
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+
+/**
+ * The models that tests compile, referenced by name: either a bpmn file in the test resources or a {@link BpmnModelGenerator generated} model
+ */
+public class TestModels {
+
+	private TestModels() {}
+
+	/**
+	 * Names of all test resource models and a small generated model
+	 */
+	public static Stream<String> allModels() {
+		return Stream.of(
+			"Simple", 
+			"SimpleWithStates", 
+			"SimpleWithEvents", 
+			"SimpleWithGateways", 
+			"SimpleWithDataStore", 
+			"TranslationJob",
+			"Associations",
+			"TransputSets",
+			BpmnModelGenerator.modelName(1)
+		);
+	}
+
+	/**
+	 * {@link #allModels() All models} and a generated model large enough to have many transitions per activity
+	 */
+	public static Stream<String> allModelsAndLargeGenerated() {
+		return Stream.concat(allModels(), Stream.of(BpmnModelGenerator.modelName(10)));
+	}
+
+	/**
+	 * Parses the test resource of that name, or generates the model if it is a {@link BpmnModelGenerator#isGeneratedModel(String) generated} one
+	 */
+	public static BpmnModelInstance load(String model) {
+		return BpmnModelGenerator.isGeneratedModel(model) ? 
+				BpmnModelGenerator.forModelName(model).generate() : 
+				Bpmn.readModelFromFile(new File("./src/test/resources/"+model+".bpmn"));
+	}
+
+	/**
+	 * A print stream that discards everything, to silence the progress output of compilers under test
+	 */
+	public static PrintStream silentOutput() {
+		return new PrintStream(OutputStream.nullOutputStream());
+	}
+}